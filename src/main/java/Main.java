@@ -2,7 +2,9 @@ package main.java;
 
 import ioc.IoCContainer;
 import ioc.IoCException;
+import factory.StorageEngineFactory;
 import repository.MediaRepository;
+import service.FacetService;
 import service.MediaService;
 import observer.LoggingMediaObserver;
 import ui.UserInterfaceUI;
@@ -21,6 +23,12 @@ public class Main {
             // Starting the IoC container
             IoCContainer container = IoCContainer.getInstance();
 
+            // Selection of the storage engine (-Dlibrary.storage=memory, serialization,
+            // binary, mapped or segmented) and of write-behind persistence (-Dlibrary.writeBehind=true)
+            String storageEngineName = System.getProperty("library.storage", "binary");
+            boolean writeBehind = Boolean.getBoolean("library.writeBehind");
+            MediaRepository.setStorageEngine(StorageEngineFactory.createStorageEngine(storageEngineName, writeBehind));
+
             // Registration of classes with IoC
             MediaRepository mediaRepository = MediaRepository.getInstance();
             container.register(MediaRepository.class, mediaRepository);
@@ -28,6 +36,9 @@ public class Main {
             MediaService mediaService = MediaService.getInstance();
             container.register(MediaService.class, mediaService);
 
+            FacetService facetService = FacetService.getInstance();
+            container.register(FacetService.class, facetService);
+
             // Registration of observers
             LoggingMediaObserver loggingObserver = new LoggingMediaObserver();
 
@@ -0,0 +1,73 @@
+package builder;
+
+import model.media.MediaType;
+import query.MediaQuery;
+
+// Builder pattern implementation for creating MediaQuery objects, every
+// criterion is optional
+public class MediaQueryBuilder {
+    private String titleTerms;
+    private Integer fromYear;
+    private Integer toYear;
+    private Boolean available;
+    private MediaType type;
+    private String author;
+    private String publisher;
+
+    public MediaQueryBuilder withTitle(String titleTerms) {
+        this.titleTerms = titleTerms;
+        return this;
+    }
+
+    public MediaQueryBuilder withPublicationYear(int year) {
+        return withPublicationYearRange(year, year);
+    }
+
+    public MediaQueryBuilder withPublicationYearRange(int fromYear, int toYear) {
+        this.fromYear = fromYear;
+        this.toYear = toYear;
+        return this;
+    }
+
+    public MediaQueryBuilder publishedFrom(int fromYear) {
+        this.fromYear = fromYear;
+        return this;
+    }
+
+    public MediaQueryBuilder publishedUntil(int toYear) {
+        this.toYear = toYear;
+        return this;
+    }
+
+    public MediaQueryBuilder withAvailable(boolean available) {
+        this.available = available;
+        return this;
+    }
+
+    public MediaQueryBuilder withType(MediaType type) {
+        this.type = type;
+        return this;
+    }
+
+    public MediaQueryBuilder withAuthor(String author) {
+        this.author = author;
+        return this;
+    }
+
+    public MediaQueryBuilder withPublisher(String publisher) {
+        this.publisher = publisher;
+        return this;
+    }
+
+    /**
+     * Build a MediaQuery object
+     * 
+     * @return a new MediaQuery instance
+     */
+    public MediaQuery build() {
+        if (fromYear != null && toYear != null && fromYear > toYear) {
+            throw new IllegalStateException("The first year of the query is after the last year");
+        }
+        return new MediaQuery(titleTerms, fromYear, toYear, available, type, author, publisher);
+    }
+}
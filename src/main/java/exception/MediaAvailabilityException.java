@@ -0,0 +1,22 @@
+package exception;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+// Exception class for media whose availability is not the expected one, such as
+// a media already checked out
+public class MediaAvailabilityException extends LibraryException {
+    private final List<String> mediaIds;
+
+    public MediaAvailabilityException(Collection<String> mediaIds, boolean expectedAvailable) {
+        super("Media with ID " + String.join(", ", mediaIds)
+                + (expectedAvailable ? " not available" : " already available"));
+        this.mediaIds = Collections.unmodifiableList(new ArrayList<>(mediaIds));
+    }
+
+    public List<String> getMediaIds() {
+        return mediaIds;
+    }
+}
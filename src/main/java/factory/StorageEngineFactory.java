@@ -0,0 +1,57 @@
+package factory;
+
+import repository.BinaryFileStorageEngine;
+import repository.FileStorageManager;
+import repository.InMemoryStorageEngine;
+import repository.SegmentedStorageEngine;
+import repository.SerializationStorageEngine;
+import repository.StorageEngine;
+import repository.WriteBehindStorageEngine;
+
+// Factory class for creation of the storage engines of the repository
+public class StorageEngineFactory {
+    private static final int SEGMENT_COUNT = 16;
+
+    /**
+     * Create a storage engine from its name
+     * 
+     * @param name : The engine name (memory, serialization, binary, mapped or
+     *             segmented)
+     * @return a new StorageEngine
+     * @throws IllegalArgumentException : If the name does not match an engine
+     */
+    public static StorageEngine createStorageEngine(String name) {
+        switch (name.trim().toLowerCase()) {
+            case "memory":
+                return new InMemoryStorageEngine();
+            case "serialization":
+                return new SerializationStorageEngine();
+            case "binary":
+                return new BinaryFileStorageEngine(FileStorageManager.SnapshotMode.STREAM);
+            case "mapped":
+                return new BinaryFileStorageEngine(FileStorageManager.SnapshotMode.MAPPED);
+            case "segmented":
+                return new SegmentedStorageEngine(SEGMENT_COUNT);
+            default:
+                throw new IllegalArgumentException("Unknown storage engine: " + name);
+        }
+    }
+
+    /**
+     * Create a storage engine from its name, with write-behind persistence if
+     * requested (flush every 50 ms or every 1000 changes)
+     * 
+     * @param name        : The engine name (memory, serialization, binary,
+     *                    mapped or segmented)
+     * @param writeBehind : true to buffer the changes and write them in batches
+     * @return a new StorageEngine
+     * @throws IllegalArgumentException : If the name does not match an engine
+     */
+    public static StorageEngine createStorageEngine(String name, boolean writeBehind) {
+        StorageEngine storageEngine = createStorageEngine(name);
+        if (writeBehind) {
+            return new WriteBehindStorageEngine(storageEngine, 50, 1000);
+        }
+        return storageEngine;
+    }
+}
@@ -0,0 +1,128 @@
+package index;
+
+import model.media.Media;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+
+// Case-insensitive index of a text attribute of the media (author, publisher).
+// Exact lookups use a hash map of the lower case values; prefix lookups walk a
+// sorted set of the values. Like the other bucket indexes, a value is kept once
+// added so that concurrent changes of the same value cannot be lost
+public class AttributeIndex implements MediaIndex {
+    private final Function<Media, String> extractor;
+    private final Map<String, Set<String>> values = new ConcurrentHashMap<>();
+    private final NavigableSet<String> sortedValues = new ConcurrentSkipListSet<>();
+
+    /**
+     * Create a new AttributeIndex
+     * 
+     * @param extractor : Function giving the attribute of a media, or null if the
+     *                  media does not have it
+     */
+    public AttributeIndex(Function<Media, String> extractor) {
+        this.extractor = extractor;
+    }
+
+    @Override
+    public void add(Media media) {
+        String value = valueOf(media);
+        if (value != null) {
+            values.computeIfAbsent(value, key -> {
+                sortedValues.add(key);
+                return ConcurrentHashMap.newKeySet();
+            }).add(media.getId());
+        }
+    }
+
+    @Override
+    public void remove(Media media) {
+        String value = valueOf(media);
+        if (value != null) {
+            Set<String> ids = values.get(value);
+            if (ids != null) {
+                ids.remove(media.getId());
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        values.clear();
+        sortedValues.clear();
+    }
+
+    /**
+     * Check if a media has the given attribute value, ignoring case
+     * 
+     * @param media : The media to check
+     * @param value : The attribute value
+     * @return true if the attribute of the media is equal to the value
+     */
+    public boolean matches(Media media, String value) {
+        String attribute = valueOf(media);
+        return attribute != null && attribute.equals(MediaAttributes.normalize(value));
+    }
+
+    /**
+     * Check if the attribute of a media starts with a prefix, ignoring case
+     * 
+     * @param media  : The media to check
+     * @param prefix : The prefix
+     * @return true if the attribute of the media starts with the prefix
+     */
+    public boolean matchesPrefix(Media media, String prefix) {
+        String attribute = valueOf(media);
+        return attribute != null && attribute.startsWith(MediaAttributes.normalize(prefix));
+    }
+
+    /**
+     * Find the media with an attribute equal to a value, ignoring case
+     * 
+     * @param value : The attribute value
+     * @return the IDs of the media
+     */
+    public List<String> find(String value) {
+        Set<String> ids = values.get(MediaAttributes.normalize(value));
+        return ids == null ? new ArrayList<>() : new ArrayList<>(ids);
+    }
+
+    /**
+     * Find the media with an attribute starting with a prefix, ignoring case
+     * 
+     * @param prefix : The prefix of the attribute
+     * @return the IDs of the media, sorted by attribute value
+     */
+    public List<String> findByPrefix(String prefix) {
+        String normalized = MediaAttributes.normalize(prefix);
+        List<String> result = new ArrayList<>();
+        for (String value : sortedValues.subSet(normalized, true, normalized + Character.MAX_VALUE, true)) {
+            Set<String> ids = values.get(value);
+            if (ids != null) {
+                result.addAll(ids);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Count the media with an attribute equal to a value, ignoring case
+     * 
+     * @param value : The attribute value
+     * @return the number of media
+     */
+    public int count(String value) {
+        Set<String> ids = values.get(MediaAttributes.normalize(value));
+        return ids == null ? 0 : ids.size();
+    }
+
+    private String valueOf(Media media) {
+        String value = extractor.apply(media);
+        return value == null ? null : MediaAttributes.normalize(value);
+    }
+}
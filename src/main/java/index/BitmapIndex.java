@@ -0,0 +1,147 @@
+package index;
+
+import model.media.Media;
+import model.media.MediaType;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Bitmap index of the low-cardinality attributes: availability and type. Every
+// media gets a dense ordinal, reused after a delete, and each attribute value
+// has a compressed bitmap of the ordinals. Filters and counts are bitmap ANDs
+// and popcounts, without reading the media
+public class BitmapIndex implements MediaIndex {
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final List<String> ids = new ArrayList<>();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+    private final RoaringBitmap allMedia = new RoaringBitmap();
+    private final RoaringBitmap availableMedia = new RoaringBitmap();
+    private final RoaringBitmap unavailableMedia = new RoaringBitmap();
+    private final Map<MediaType, RoaringBitmap> typeBitmaps = new EnumMap<>(MediaType.class);
+
+    /**
+     * Create a new BitmapIndex
+     */
+    public BitmapIndex() {
+        for (MediaType type : MediaType.values()) {
+            typeBitmaps.put(type, new RoaringBitmap());
+        }
+    }
+
+    @Override
+    public synchronized void add(Media media) {
+        Integer ordinal = ordinals.get(media.getId());
+        if (ordinal == null) {
+            ordinal = freeOrdinals.isEmpty() ? ids.size() : freeOrdinals.pop();
+            ordinals.put(media.getId(), ordinal);
+            if (ordinal == ids.size()) {
+                ids.add(media.getId());
+            } else {
+                ids.set(ordinal, media.getId());
+            }
+        }
+        allMedia.add(ordinal);
+        for (Map.Entry<MediaType, RoaringBitmap> entry : typeBitmaps.entrySet()) {
+            if (entry.getKey() == MediaType.of(media)) {
+                entry.getValue().add(ordinal);
+            } else {
+                entry.getValue().remove(ordinal);
+            }
+        }
+        setAvailable(ordinal, media.isAvailable());
+    }
+
+    @Override
+    public synchronized void remove(Media media) {
+        Integer ordinal = ordinals.remove(media.getId());
+        if (ordinal == null) {
+            return;
+        }
+        allMedia.remove(ordinal);
+        availableMedia.remove(ordinal);
+        unavailableMedia.remove(ordinal);
+        for (RoaringBitmap bitmap : typeBitmaps.values()) {
+            bitmap.remove(ordinal);
+        }
+        ids.set(ordinal, null);
+        freeOrdinals.push(ordinal);
+    }
+
+    @Override
+    public synchronized void clear() {
+        ordinals.clear();
+        ids.clear();
+        freeOrdinals.clear();
+        allMedia.clear();
+        availableMedia.clear();
+        unavailableMedia.clear();
+        for (RoaringBitmap bitmap : typeBitmaps.values()) {
+            bitmap.clear();
+        }
+    }
+
+    /**
+     * Update the availability of an indexed media
+     * 
+     * @param media : The media whose availability changed
+     */
+    public synchronized void updateAvailability(Media media) {
+        Integer ordinal = ordinals.get(media.getId());
+        if (ordinal != null) {
+            setAvailable(ordinal, media.isAvailable());
+        }
+    }
+
+    /**
+     * Count the media with an availability and a type
+     * 
+     * @param available : The availability, or null for any
+     * @param type      : The type, or null for any
+     * @return the number of media
+     */
+    public synchronized int count(Boolean available, MediaType type) {
+        RoaringBitmap availability = availabilityBitmap(available);
+        if (type == null) {
+            return availability.cardinality();
+        }
+        return availability.andCardinality(typeBitmaps.get(type));
+    }
+
+    /**
+     * Find the media with an availability and a type
+     * 
+     * @param available : The availability, or null for any
+     * @param type      : The type, or null for any
+     * @return the IDs of the media
+     */
+    public synchronized List<String> find(Boolean available, MediaType type) {
+        RoaringBitmap result = availabilityBitmap(available);
+        if (type != null) {
+            result = result.and(typeBitmaps.get(type));
+        }
+        List<String> found = new ArrayList<>(result.cardinality());
+        result.forEach(ordinal -> found.add(ids.get(ordinal)));
+        return found;
+    }
+
+    private void setAvailable(int ordinal, boolean available) {
+        if (available) {
+            availableMedia.add(ordinal);
+            unavailableMedia.remove(ordinal);
+        } else {
+            unavailableMedia.add(ordinal);
+            availableMedia.remove(ordinal);
+        }
+    }
+
+    private RoaringBitmap availabilityBitmap(Boolean available) {
+        if (available == null) {
+            return allMedia;
+        }
+        return available ? availableMedia : unavailableMedia;
+    }
+}
@@ -0,0 +1,179 @@
+package index;
+
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// BK-tree of words under the Levenshtein distance. The children of a node are
+// keyed by their distance to it, and by the triangle inequality a search within
+// a distance d only visits the children at distance [k - d, k + d] of each
+// node, so a fuzzy lookup reads a small part of the dictionary
+public class BkTree {
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Node root;
+    private int size;
+
+    /**
+     * Add a word to the tree, a word already present is ignored
+     *
+     * @param word : The word to add
+     */
+    public void add(String word) {
+        lock.writeLock().lock();
+        try {
+            if (root == null) {
+                root = new Node(word);
+                size++;
+                return;
+            }
+            Node node = root;
+            while (true) {
+                int distance = distance(word, node.word);
+                if (distance == 0) {
+                    return;
+                }
+                Node child = node.children.get(distance);
+                if (child == null) {
+                    node.children.put(distance, new Node(word));
+                    size++;
+                    return;
+                }
+                node = child;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the words within a distance of a word
+     *
+     * @param word        : The searched word
+     * @param maxDistance : The maximum Levenshtein distance
+     * @return the words of the tree at most maxDistance edits away
+     */
+    public List<String> search(String word, int maxDistance) {
+        List<String> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (root == null) {
+                return result;
+            }
+            // Rows of the distance computation, shared by the visited nodes
+            char[] letters = word.toCharArray();
+            int[] previous = new int[letters.length + 1];
+            int[] current = new int[letters.length + 1];
+            Deque<Node> pending = new ArrayDeque<>();
+            pending.push(root);
+            while (!pending.isEmpty()) {
+                Node node = pending.pop();
+                int distance = distance(node.letters, letters, previous, current);
+                if (distance <= maxDistance) {
+                    result.add(node.word);
+                }
+                for (Map.Entry<Integer, Node> entry : node.children.entrySet()) {
+                    if (Math.abs(entry.getKey() - distance) <= maxDistance) {
+                        pending.push(entry.getValue());
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Get the number of words in the tree
+     *
+     * @return the number of words
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replace the words of the tree, to drop the words no longer in use since
+     * the tree has no removal
+     *
+     * @param words : The words to keep
+     */
+    public void rebuild(Iterable<String> words) {
+        lock.writeLock().lock();
+        try {
+            root = null;
+            size = 0;
+            for (String word : words) {
+                add(word);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove all the words
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            root = null;
+            size = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Compute the Levenshtein distance between two words
+     *
+     * @param first  : The first word
+     * @param second : The second word
+     * @return the minimum number of insertions, deletions and substitutions
+     */
+    public static int distance(String first, String second) {
+        return distance(first.toCharArray(), second.toCharArray(), new int[second.length() + 1],
+                new int[second.length() + 1]);
+    }
+
+    // Two-row dynamic programming, the rows are sized for the second word
+    private static int distance(char[] first, char[] second, int[] previous, int[] current) {
+        for (int j = 0; j <= second.length; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= first.length; i++) {
+            current[0] = i;
+            char letter = first[i - 1];
+            for (int j = 1; j <= second.length; j++) {
+                int substitution = previous[j - 1] + (letter == second[j - 1] ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[second.length];
+    }
+
+    // Node of the tree, with its children by distance
+    private static class Node {
+        private final String word;
+        private final char[] letters;
+        private final Map<Integer, Node> children = new HashMap<>();
+
+        Node(String word) {
+            this.word = word;
+            this.letters = word.toCharArray();
+        }
+    }
+}
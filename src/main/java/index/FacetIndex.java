@@ -0,0 +1,150 @@
+package index;
+
+import model.media.Media;
+import model.media.MediaType;
+import query.FacetCounts;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Live facet counters: number of media by publication year, publisher, type and
+// availability. Every change adjusts a few counters in O(1) and a snapshot reads
+// the counters only, never the media. The facet values counted for each media
+// are kept, so that a media is uncounted exactly as it was counted even if it
+// was changed in place. Counters dropping to zero are kept and skipped
+public class FacetIndex implements MediaIndex {
+    private final Map<String, Facets> counted = new ConcurrentHashMap<>();
+    private final Map<Integer, LongAdder> years = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> publishers = new ConcurrentHashMap<>();
+    private final Map<MediaType, LongAdder> types = new EnumMap<>(MediaType.class);
+    private final LongAdder available = new LongAdder();
+    private final LongAdder unavailable = new LongAdder();
+
+    public FacetIndex() {
+        for (MediaType type : MediaType.values()) {
+            types.put(type, new LongAdder());
+        }
+    }
+
+    @Override
+    public void add(Media media) {
+        Facets facets = new Facets(media);
+        // Per media atomic with the availability changes
+        counted.compute(media.getId(), (id, previous) -> {
+            if (previous != null) {
+                count(previous, -1);
+            }
+            count(facets, 1);
+            return facets;
+        });
+    }
+
+    @Override
+    public void remove(Media media) {
+        counted.computeIfPresent(media.getId(), (id, previous) -> {
+            count(previous, -1);
+            return null;
+        });
+    }
+
+    @Override
+    public void clear() {
+        counted.clear();
+        years.clear();
+        publishers.clear();
+        for (LongAdder counter : types.values()) {
+            counter.reset();
+        }
+        available.reset();
+        unavailable.reset();
+    }
+
+    /**
+     * Move a media to its current availability, if it is counted
+     * 
+     * @param media : The media whose availability changed
+     */
+    public void updateAvailability(Media media) {
+        counted.computeIfPresent(media.getId(), (id, previous) -> {
+            // Read once, the availability may change concurrently
+            boolean isAvailable = media.isAvailable();
+            if (previous.available == isAvailable) {
+                return previous;
+            }
+            availabilityCounter(previous.available).decrement();
+            availabilityCounter(isAvailable).increment();
+            return previous.withAvailable(isAvailable);
+        });
+    }
+
+    /**
+     * Take a snapshot of the counters
+     * 
+     * @return the facet counts, without the values counted zero times
+     */
+    public FacetCounts snapshot() {
+        Map<MediaType, Long> typeCounts = new EnumMap<>(MediaType.class);
+        for (Map.Entry<MediaType, LongAdder> entry : types.entrySet()) {
+            long count = entry.getValue().sum();
+            if (count > 0) {
+                typeCounts.put(entry.getKey(), count);
+            }
+        }
+        return new FacetCounts(positive(years), positive(publishers), typeCounts, available.sum(),
+                unavailable.sum());
+    }
+
+    private void count(Facets facets, int delta) {
+        years.computeIfAbsent(facets.year, key -> new LongAdder()).add(delta);
+        if (facets.publisher != null) {
+            publishers.computeIfAbsent(facets.publisher, key -> new LongAdder()).add(delta);
+        }
+        types.get(facets.type).add(delta);
+        availabilityCounter(facets.available).add(delta);
+    }
+
+    private LongAdder availabilityCounter(boolean isAvailable) {
+        return isAvailable ? available : unavailable;
+    }
+
+    private static <K> Map<K, Long> positive(Map<K, LongAdder> counters) {
+        Map<K, Long> counts = new HashMap<>();
+        for (Map.Entry<K, LongAdder> entry : counters.entrySet()) {
+            long count = entry.getValue().sum();
+            if (count > 0) {
+                counts.put(entry.getKey(), count);
+            }
+        }
+        return counts;
+    }
+
+    // Facet values of a media when it was counted
+    private static class Facets {
+        private final int year;
+        private final String publisher;
+        private final MediaType type;
+        private final boolean available;
+
+        Facets(Media media) {
+            this(media.getPublicationDate().getYear(), trim(MediaAttributes.publisherOf(media)),
+                    MediaType.of(media), media.isAvailable());
+        }
+
+        Facets(int year, String publisher, MediaType type, boolean available) {
+            this.year = year;
+            this.publisher = publisher;
+            this.type = type;
+            this.available = available;
+        }
+
+        Facets withAvailable(boolean isAvailable) {
+            return new Facets(year, publisher, type, isAvailable);
+        }
+
+        private static String trim(String publisher) {
+            return publisher == null ? null : publisher.trim();
+        }
+    }
+}
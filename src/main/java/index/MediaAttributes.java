@@ -0,0 +1,47 @@
+package index;
+
+import model.media.Book;
+import model.media.Magazine;
+import model.media.Media;
+import java.util.Locale;
+
+// Utility class to read the attributes that only some types of media have
+public final class MediaAttributes {
+
+    // Private constructor to avoid instantiation
+    private MediaAttributes() {
+    }
+
+    /**
+     * Get the author of a media
+     * 
+     * @param media : The media
+     * @return the author of a book, null for the other media
+     */
+    public static String authorOf(Media media) {
+        return media instanceof Book ? ((Book) media).getAuthor() : null;
+    }
+
+    /**
+     * Get the publisher of a media
+     * 
+     * @param media : The media
+     * @return the publisher of a book or magazine, null for the other media
+     */
+    public static String publisherOf(Media media) {
+        if (media instanceof Book) {
+            return ((Book) media).getPublisher();
+        }
+        return media instanceof Magazine ? ((Magazine) media).getPublisher() : null;
+    }
+
+    /**
+     * Normalize an attribute value for case-insensitive comparisons
+     * 
+     * @param value : The attribute value
+     * @return the trimmed lower case value
+     */
+    public static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
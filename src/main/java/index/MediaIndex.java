@@ -0,0 +1,26 @@
+package index;
+
+import model.media.Media;
+
+// Interface for the secondary indexes of the repository, kept up to date on
+// every save, update and delete
+public interface MediaIndex {
+    /**
+     * Add a media to the index
+     * 
+     * @param media : The media to add
+     */
+    void add(Media media);
+
+    /**
+     * Remove a media from the index
+     * 
+     * @param media : The media to remove, as it was added
+     */
+    void remove(Media media);
+
+    /**
+     * Remove all the media from the index
+     */
+    void clear();
+}
@@ -0,0 +1,74 @@
+package index;
+
+import model.media.Media;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Sorted index of the publication dates: epoch day -> IDs of the media published
+// that day. A range query walks only the days of the range, in O(log n + k).
+// Buckets are never removed once created, so that a concurrent add cannot be
+// lost on a bucket being removed; an empty bucket is simply skipped
+public class PublicationDateIndex implements MediaIndex {
+    private final ConcurrentSkipListMap<Long, Set<String>> days = new ConcurrentSkipListMap<>();
+
+    @Override
+    public void add(Media media) {
+        days.computeIfAbsent(media.getPublicationDate().toEpochDay(), key -> ConcurrentHashMap.newKeySet())
+                .add(media.getId());
+    }
+
+    @Override
+    public void remove(Media media) {
+        Set<String> ids = days.get(media.getPublicationDate().toEpochDay());
+        if (ids != null) {
+            ids.remove(media.getId());
+        }
+    }
+
+    @Override
+    public void clear() {
+        days.clear();
+    }
+
+    /**
+     * Find the media published between two dates, both included
+     * 
+     * @param from : The first date of the range
+     * @param to   : The last date of the range
+     * @return the IDs of the media, sorted by publication date
+     */
+    public List<String> findBetween(LocalDate from, LocalDate to) {
+        List<String> result = new ArrayList<>();
+        if (from.isAfter(to)) {
+            return result;
+        }
+        NavigableMap<Long, Set<String>> range = days.subMap(from.toEpochDay(), true, to.toEpochDay(), true);
+        for (Set<String> ids : range.values()) {
+            result.addAll(ids);
+        }
+        return result;
+    }
+
+    /**
+     * Count the media published between two dates, both included
+     * 
+     * @param from : The first date of the range
+     * @param to   : The last date of the range
+     * @return the number of media
+     */
+    public int count(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            return 0;
+        }
+        int count = 0;
+        for (Set<String> ids : days.subMap(from.toEpochDay(), true, to.toEpochDay(), true).values()) {
+            count += ids.size();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,189 @@
+package index;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Radix trie (compressed prefix tree) from string keys to sets of values. Each
+// edge holds a whole run of characters, so a lookup walks at most one node per
+// branching point. A prefix search descends to the prefix and walks the subtree
+// in key order, stopping as soon as enough values are collected, so its cost
+// depends on the prefix and the limit, not on the number of keys
+public class RadixTrie {
+    private final Node root = new Node("");
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Add a value under a key
+     *
+     * @param key   : The key
+     * @param value : The value
+     */
+    public void put(String key, String value) {
+        lock.writeLock().lock();
+        try {
+            Node node = root;
+            int position = 0;
+            while (position < key.length()) {
+                Node child = node.children.get(key.charAt(position));
+                if (child == null) {
+                    child = new Node(key.substring(position));
+                    node.children.put(key.charAt(position), child);
+                    node = child;
+                    break;
+                }
+                int common = commonPrefixLength(child.label, key, position);
+                if (common < child.label.length()) {
+                    // Split the edge where the key leaves it
+                    Node middle = new Node(child.label.substring(0, common));
+                    child.label = child.label.substring(common);
+                    middle.children.put(child.label.charAt(0), child);
+                    node.children.put(middle.label.charAt(0), middle);
+                    child = middle;
+                }
+                node = child;
+                position += common;
+            }
+            node.values.add(value);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a value from a key
+     *
+     * @param key   : The key
+     * @param value : The value
+     */
+    public void remove(String key, String value) {
+        lock.writeLock().lock();
+        try {
+            List<Node> path = new ArrayList<>();
+            Node node = root;
+            int position = 0;
+            while (position < key.length()) {
+                Node child = node.children.get(key.charAt(position));
+                if (child == null || !key.startsWith(child.label, position)) {
+                    return;
+                }
+                path.add(node);
+                node = child;
+                position += child.label.length();
+            }
+            if (!node.values.remove(value) || node == root) {
+                return;
+            }
+
+            // Prune the emptied node and keep every inner node branching
+            Node parent = path.get(path.size() - 1);
+            if (node.values.isEmpty() && node.children.isEmpty()) {
+                parent.children.remove(node.label.charAt(0));
+                if (parent != root && parent.values.isEmpty() && parent.children.size() == 1) {
+                    mergeWithChild(parent);
+                }
+            } else if (node.values.isEmpty() && node.children.size() == 1) {
+                mergeWithChild(node);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the values of the keys starting with a prefix, in key order
+     *
+     * @param prefix : The prefix of the keys
+     * @param limit  : The maximum number of values
+     * @return the distinct values, at most limit
+     */
+    public List<String> findByPrefix(String prefix, int limit) {
+        Set<String> result = new LinkedHashSet<>();
+        if (limit <= 0) {
+            return new ArrayList<>(result);
+        }
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            int position = 0;
+            while (position < prefix.length()) {
+                Node child = node.children.get(prefix.charAt(position));
+                if (child == null) {
+                    return new ArrayList<>(result);
+                }
+                int common = commonPrefixLength(child.label, prefix, position);
+                if (position + common < prefix.length() && common < child.label.length()) {
+                    // The prefix leaves the edge, no key starts with it
+                    return new ArrayList<>(result);
+                }
+                node = child;
+                position += common;
+            }
+            collect(node, result, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Remove all the keys
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            root.children.clear();
+            root.values.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Depth-first walk in key order: a node's values come before its children's
+    private static boolean collect(Node node, Set<String> result, int limit) {
+        for (String value : node.values) {
+            result.add(value);
+            if (result.size() >= limit) {
+                return true;
+            }
+        }
+        for (Node child : node.children.values()) {
+            if (collect(child, result, limit)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void mergeWithChild(Node node) {
+        Node child = node.children.values().iterator().next();
+        node.label = node.label + child.label;
+        node.children = child.children;
+        node.values = child.values;
+    }
+
+    private static int commonPrefixLength(String label, String key, int position) {
+        int length = Math.min(label.length(), key.length() - position);
+        int common = 0;
+        while (common < length && label.charAt(common) == key.charAt(position + common)) {
+            common++;
+        }
+        return common;
+    }
+
+    // Node of the trie, reached by the characters of its label
+    private static class Node {
+        private String label;
+        private Map<Character, Node> children = new TreeMap<>();
+        private Set<String> values = new LinkedHashSet<>();
+
+        Node(String label) {
+            this.label = label;
+        }
+    }
+}
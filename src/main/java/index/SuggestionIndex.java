@@ -0,0 +1,39 @@
+package index;
+
+import model.media.Media;
+import java.util.List;
+
+// Autocomplete index over the normalized titles and the IDs of the media,
+// backed by a radix trie
+public class SuggestionIndex implements MediaIndex {
+    private final RadixTrie trie = new RadixTrie();
+
+    @Override
+    public void add(Media media) {
+        trie.put(TitleTokenizer.normalize(media.getTitle()), media.getId());
+        trie.put(TitleTokenizer.normalize(media.getId()), media.getId());
+    }
+
+    @Override
+    public void remove(Media media) {
+        trie.remove(TitleTokenizer.normalize(media.getTitle()), media.getId());
+        trie.remove(TitleTokenizer.normalize(media.getId()), media.getId());
+    }
+
+    @Override
+    public void clear() {
+        trie.clear();
+    }
+
+    /**
+     * Find the media whose title or ID starts with a prefix, ignoring case and
+     * accents
+     * 
+     * @param prefix : The beginning of a title or ID
+     * @param limit  : The maximum number of suggestions
+     * @return the IDs of the media, in order of the completed title or ID
+     */
+    public List<String> suggest(String prefix, int limit) {
+        return trie.findByPrefix(TitleTokenizer.normalize(prefix), limit);
+    }
+}
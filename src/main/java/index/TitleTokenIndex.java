@@ -0,0 +1,291 @@
+package index;
+
+import model.media.Media;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Inverted index of the titles: normalized token -> posting list of media IDs.
+// A query is answered by intersecting the posting lists of its tokens, starting
+// from the shortest one, so its cost depends on the matches and not on the
+// size of the catalog. The dictionary of the tokens is also kept in a BK-tree
+// for typo-tolerant searches. The postings keep the frequency of the token in
+// each title and the index keeps the length of each title, for BM25 ranking
+public class TitleTokenIndex implements MediaIndex {
+    // Usual BM25 parameters: saturation of the term frequency, length normalization
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // Number of dead tokens in the dictionary always tolerated before a rebuild
+    private static final int MIN_DEAD_TOKENS = 1024;
+    // Best hits first, ties broken by ID for a stable order
+    private static final Comparator<Map.Entry<String, Double>> BY_SCORE = Comparator
+            .comparingDouble((Map.Entry<String, Double> hit) -> hit.getValue())
+            .thenComparing(Map.Entry::getKey, Comparator.reverseOrder());
+
+    // Token -> media ID -> number of occurrences of the token in the title
+    private final Map<String, Map<String, Integer>> postings = new ConcurrentHashMap<>();
+    // Media ID -> number of tokens in the title
+    private final Map<String, Integer> lengths = new ConcurrentHashMap<>();
+    private final AtomicLong totalLength = new AtomicLong();
+    // Tokens are not removed from the tree one by one: a token without postings
+    // is skipped, and the tree is rebuilt once these dead tokens outnumber the
+    // live ones
+    private final BkTree dictionary = new BkTree();
+
+    @Override
+    public void add(Media media) {
+        List<String> tokens = TitleTokenizer.tokenize(media.getTitle());
+        for (Map.Entry<String, Integer> frequency : frequencies(tokens).entrySet()) {
+            // The posting is added inside the atomic compute: a remove emptying
+            // the list cannot drop it between its lookup and the put
+            boolean[] created = new boolean[1];
+            postings.compute(frequency.getKey(), (key, ids) -> {
+                if (ids == null) {
+                    created[0] = true;
+                    ids = new ConcurrentHashMap<>();
+                }
+                ids.put(media.getId(), frequency.getValue());
+                return ids;
+            });
+            // Added to the tree once in the postings, so a concurrent rebuild
+            // either sees the token or runs before this add
+            if (created[0]) {
+                dictionary.add(frequency.getKey());
+            }
+        }
+        Integer previous = lengths.put(media.getId(), tokens.size());
+        totalLength.addAndGet(tokens.size() - (previous == null ? 0 : previous));
+    }
+
+    @Override
+    public void remove(Media media) {
+        for (String token : new HashSet<>(TitleTokenizer.tokenize(media.getTitle()))) {
+            postings.computeIfPresent(token, (key, ids) -> {
+                ids.remove(media.getId());
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+        Integer previous = lengths.remove(media.getId());
+        if (previous != null) {
+            totalLength.addAndGet(-previous);
+        }
+        compactDictionary();
+    }
+
+    @Override
+    public void clear() {
+        postings.clear();
+        lengths.clear();
+        totalLength.set(0);
+        dictionary.clear();
+    }
+
+    /**
+     * Find the media whose title contains all the tokens of a query
+     * 
+     * @param query : The query, tokenized as the titles
+     * @return the IDs of the matching media, empty if the query has no token
+     */
+    public Set<String> search(String query) {
+        Set<String> tokens = new HashSet<>(TitleTokenizer.tokenize(query));
+        List<Set<String>> lists = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            Map<String, Integer> ids = postings.get(token);
+            if (ids == null) {
+                return Collections.emptySet();
+            }
+            lists.add(ids.keySet());
+        }
+        if (lists.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        lists.sort(Comparator.comparingInt(Set::size));
+        Set<String> result = new HashSet<>(lists.get(0));
+        for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+            result.retainAll(lists.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Find the media whose title contains, for every token of a query, a token
+     * within a small edit distance of it. The allowed distance grows with the
+     * length of the token: none up to 2 characters, 1 up to 5, then 2
+     * 
+     * @param query : The query, tokenized as the titles
+     * @return the IDs of the matching media, empty if the query has no token
+     */
+    public Set<String> searchFuzzy(String query) {
+        Set<String> result = null;
+        for (String token : new HashSet<>(TitleTokenizer.tokenize(query))) {
+            Set<String> ids = new HashSet<>();
+            for (String similar : dictionary.search(token, maxDistance(token))) {
+                Map<String, Integer> similarIds = postings.get(similar);
+                if (similarIds != null) {
+                    ids.addAll(similarIds.keySet());
+                }
+            }
+            if (result == null) {
+                result = ids;
+            } else {
+                result.retainAll(ids);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result == null ? Collections.emptySet() : result;
+    }
+
+    /**
+     * Rank the media by the BM25 relevance of their title to a query and keep
+     * the best ones. A title matching any token of the query is scored; rare
+     * tokens weigh more than common ones, repeated tokens count with a
+     * saturation and long titles are penalized. Only the best hits are kept in
+     * a bounded min-heap, so a broad query is never sorted as a whole
+     * 
+     * @param query : The query, tokenized as the titles
+     * @param limit : The maximum number of hits
+     * @return the IDs of the best media with their score, best first
+     */
+    public Map<String, Double> searchRanked(String query, int limit) {
+        Map<String, Double> result = new LinkedHashMap<>();
+        int documents = lengths.size();
+        if (limit <= 0 || documents == 0) {
+            return result;
+        }
+        double averageLength = Math.max((double) totalLength.get() / documents, 1);
+
+        Set<String> tokens = new HashSet<>(TitleTokenizer.tokenize(query));
+        // A single token needs no accumulation, its hits go straight to the heap
+        Map<String, Double> scores = tokens.size() > 1 ? new HashMap<>() : null;
+        PriorityQueue<Map.Entry<String, Double>> heap = new PriorityQueue<>(limit, BY_SCORE);
+        for (String token : tokens) {
+            Map<String, Integer> frequencies = postings.get(token);
+            if (frequencies == null) {
+                continue;
+            }
+            double matches = frequencies.size();
+            double idf = Math.log(1 + (documents - matches + 0.5) / (matches + 0.5));
+            for (Map.Entry<String, Integer> posting : frequencies.entrySet()) {
+                Integer length = lengths.get(posting.getKey());
+                if (length == null) {
+                    // Removed meanwhile
+                    continue;
+                }
+                double frequency = posting.getValue();
+                double score = idf * frequency * (K1 + 1)
+                        / (frequency + K1 * (1 - B + B * length / averageLength));
+                if (scores == null) {
+                    offer(heap, new AbstractMap.SimpleImmutableEntry<>(posting.getKey(), score), limit);
+                } else {
+                    scores.merge(posting.getKey(), score, Double::sum);
+                }
+            }
+        }
+        if (scores != null) {
+            for (Map.Entry<String, Double> hit : scores.entrySet()) {
+                offer(heap, hit, limit);
+            }
+        }
+
+        List<Map.Entry<String, Double>> hits = new ArrayList<>(heap);
+        hits.sort(BY_SCORE.reversed());
+        for (Map.Entry<String, Double> hit : hits) {
+            result.put(hit.getKey(), hit.getValue());
+        }
+        return result;
+    }
+
+    // Keep a hit if the heap is not full or if it beats the weakest kept hit
+    private static void offer(PriorityQueue<Map.Entry<String, Double>> heap, Map.Entry<String, Double> hit,
+            int limit) {
+        if (heap.size() < limit) {
+            heap.add(hit);
+        } else if (BY_SCORE.compare(hit, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(hit);
+        }
+    }
+
+    // Rebuild the tree from the live tokens once the dead ones outnumber them,
+    // so the cost of a rebuild is spread over as many removals. Checked again
+    // under the lock, so concurrent removals rebuild it only once
+    private void compactDictionary() {
+        if (!isDictionaryStale()) {
+            return;
+        }
+        synchronized (dictionary) {
+            if (isDictionaryStale()) {
+                dictionary.rebuild(postings.keySet());
+            }
+        }
+    }
+
+    private boolean isDictionaryStale() {
+        int live = postings.size();
+        return dictionary.size() - live > Math.max(MIN_DEAD_TOKENS, live);
+    }
+
+    // Number of occurrences of each token
+    private static Map<String, Integer> frequencies(List<String> tokens) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        return frequencies;
+    }
+
+    // Edit distance tolerated for a token, short tokens must match exactly
+    private static int maxDistance(String token) {
+        if (token.length() <= 2) {
+            return 0;
+        }
+        return token.length() <= 5 ? 1 : 2;
+    }
+
+    /**
+     * Estimate the number of matches of a query, without intersecting
+     * 
+     * @param query : The query, tokenized as the titles
+     * @return the size of the shortest posting list of the query tokens
+     */
+    public int estimate(String query) {
+        int estimate = Integer.MAX_VALUE;
+        for (String token : TitleTokenizer.tokenize(query)) {
+            Map<String, Integer> ids = postings.get(token);
+            estimate = Math.min(estimate, ids == null ? 0 : ids.size());
+        }
+        return estimate;
+    }
+
+    /**
+     * Get the number of distinct tokens in the index
+     * 
+     * @return the number of tokens
+     */
+    public int getTokenCount() {
+        return postings.size();
+    }
+
+    /**
+     * Get the number of tokens in the typo-tolerant dictionary, dead ones
+     * included
+     * 
+     * @return the number of tokens in the BK-tree
+     */
+    int getDictionarySize() {
+        return dictionary.size();
+    }
+}
@@ -0,0 +1,48 @@
+package index;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// Utility class to split titles into normalized tokens: lower case, without
+// accents, split on every character that is not a letter or a digit
+public final class TitleTokenizer {
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // Private constructor to avoid instantiation
+    private TitleTokenizer() {
+    }
+
+    /**
+     * Normalize a text: lower case and without accents
+     * 
+     * @param text : The text to normalize
+     * @return the normalized text
+     */
+    public static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Split a text into normalized tokens
+     * 
+     * @param text : The text to split
+     * @return the tokens, in order and with repetitions
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : SEPARATORS.split(normalize(text))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
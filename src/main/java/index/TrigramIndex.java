@@ -0,0 +1,87 @@
+package index;
+
+import model.media.Media;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Trigram index of the lower case titles: every sequence of three characters ->
+// IDs of the media whose title contains it. A text can only be contained in
+// titles that have all its trigrams, so the index narrows the candidates and
+// the caller verifies them with contains
+public class TrigramIndex implements MediaIndex {
+    public static final int GRAM_LENGTH = 3;
+    private final Map<String, Set<String>> postings = new ConcurrentHashMap<>();
+
+    @Override
+    public void add(Media media) {
+        for (String trigram : trigrams(media.getTitle().toLowerCase())) {
+            // Added inside the compute, so that a remove emptying the set cannot
+            // drop it before the ID is in
+            postings.compute(trigram, (key, ids) -> {
+                if (ids == null) {
+                    ids = ConcurrentHashMap.newKeySet();
+                }
+                ids.add(media.getId());
+                return ids;
+            });
+        }
+    }
+
+    @Override
+    public void remove(Media media) {
+        for (String trigram : trigrams(media.getTitle().toLowerCase())) {
+            postings.computeIfPresent(trigram, (key, ids) -> {
+                ids.remove(media.getId());
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    @Override
+    public void clear() {
+        postings.clear();
+    }
+
+    /**
+     * Find the candidate media for a text to search in the titles
+     * 
+     * @param text : The lower case text
+     * @return the IDs of the media having all the trigrams of the text, or null if
+     *         the text is shorter than a trigram and cannot be narrowed
+     */
+    public Set<String> candidates(String text) {
+        if (text.length() < GRAM_LENGTH) {
+            return null;
+        }
+        List<Set<String>> lists = new ArrayList<>();
+        for (String trigram : trigrams(text)) {
+            Set<String> ids = postings.get(trigram);
+            if (ids == null) {
+                return Collections.emptySet();
+            }
+            lists.add(ids);
+        }
+
+        lists.sort(Comparator.comparingInt(Set::size));
+        Set<String> result = new HashSet<>(lists.get(0));
+        for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+            result.retainAll(lists.get(i));
+        }
+        return result;
+    }
+
+    // Distinct trigrams of a text
+    private static Set<String> trigrams(String text) {
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            trigrams.add(text.substring(i, i + GRAM_LENGTH));
+        }
+        return trigrams;
+    }
+}
@@ -3,6 +3,7 @@ package memento;
 import model.media.Media;
 import java.time.LocalDate;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 // Memento pattern implementation for saving and restoring Media object states
@@ -19,6 +20,7 @@ public class MediaMemento {
         this.id = media.getId();
         state.put("title", media.getTitle());
         state.put("publicationDate", media.getPublicationDate());
+        state.put("available", media.isAvailable());
 
         try {
             if (media.getClass().getSimpleName().equals("Book")) {
@@ -26,6 +28,8 @@ public class MediaMemento {
                 state.put("pages", media.getClass().getMethod("getPages").invoke(media));
             } else if (media.getClass().getSimpleName().equals("Magazine")) {
                 state.put("issue", media.getClass().getMethod("getIssue").invoke(media));
+            } else if (media.getClass().getSimpleName().equals("MediaCollection")) {
+                state.put("mediaIds", media.getClass().getMethod("getMediaIds").invoke(media));
             }
         } catch (Exception e) {
             System.err.println("Error capturing media state: " + e.getMessage());
@@ -69,6 +73,25 @@ public class MediaMemento {
         return (LocalDate) state.get("publicationDate");
     }
 
+    /**
+     * Get the availability
+     * 
+     * @return the availability
+     */
+    public boolean isAvailable() {
+        return (Boolean) state.get("available");
+    }
+
+    /**
+     * Get the IDs of the members (for collections)
+     * 
+     * @return the member IDs or null if not a collection
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> getMediaIds() {
+        return (List<String>) state.get("mediaIds");
+    }
+
     /**
      * Get the publisher
      * 
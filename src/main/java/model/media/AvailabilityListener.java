@@ -0,0 +1,13 @@
+package model.media;
+
+// Listener notified when the availability of a media changes, including the
+// changes cascaded by a MediaCollection to its members
+@FunctionalInterface
+public interface AvailabilityListener {
+    /**
+     * Called after the availability of a media changed
+     * 
+     * @param media : The media, with its new availability
+     */
+    void onAvailabilityChanged(Media media);
+}
@@ -2,6 +2,7 @@ package model.media;
 
 import java.time.LocalDate;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 // Book class implementing the Media interface as part of the Composite pattern
 public class Book implements Media {
@@ -12,7 +13,9 @@ public class Book implements Media {
     private final LocalDate publicationDate;
     private final String publisher;
     private final int pages;
-    private boolean available;
+    // Compared and set atomically, so that concurrent loans cannot both succeed
+    private final AtomicBoolean available = new AtomicBoolean(true);
+    private transient AvailabilityListener availabilityListener;
 
     /**
      * Book constructor
@@ -32,7 +35,6 @@ public class Book implements Media {
         this.publicationDate = publicationDate;
         this.publisher = publisher;
         this.pages = pages;
-        this.available = true;
     }
 
     @Override
@@ -103,7 +105,7 @@ public class Book implements Media {
      * @return true or false if the book is available
      */
     public boolean isAvailable() {
-        return available;
+        return available.get();
     }
 
     @Override
@@ -114,7 +116,41 @@ public class Book implements Media {
      * @param available : The availability status of the book to set
      */
     public void setAvailable(boolean available) {
-        this.available = available;
+        boolean changed = this.available.getAndSet(available) != available;
+        if (changed && availabilityListener != null) {
+            availabilityListener.onAvailabilityChanged(this);
+        }
+    }
+
+    @Override
+    /**
+     * Annotation: Override method of the Media interface
+     * Set the availability status of the book only if it is the expected one,
+     * as a single atomic operation
+     * 
+     * @param expectedAvailable : The expected availability status
+     * @param available         : The availability status to set
+     * @return true if the status was the expected one and is now set
+     */
+    public boolean compareAndSetAvailable(boolean expectedAvailable, boolean available) {
+        if (!this.available.compareAndSet(expectedAvailable, available)) {
+            return false;
+        }
+        if (expectedAvailable != available && availabilityListener != null) {
+            availabilityListener.onAvailabilityChanged(this);
+        }
+        return true;
+    }
+
+    @Override
+    /**
+     * Annotation: Override method of the Media interface
+     * Set the listener notified when the availability of the book changes
+     * 
+     * @param availabilityListener : The listener, or null to remove it
+     */
+    public void setAvailabilityListener(AvailabilityListener availabilityListener) {
+        this.availabilityListener = availabilityListener;
     }
 
     @Override
@@ -128,7 +164,7 @@ public class Book implements Media {
         return String.format(
                 "Book: %s, Author: %s, ID: %s, Publication date: %s, Publisher: %s, Pages: %d, Available: %s",
                 title, author, id, publicationDate.format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy")),
-                publisher, pages, available ? "Yes" : "No");
+                publisher, pages, available.get() ? "Yes" : "No");
     }
 
     @Override
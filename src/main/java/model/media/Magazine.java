@@ -2,6 +2,7 @@ package model.media;
 
 import java.time.LocalDate;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 // Magazine class implementing the Media interface as part of the Composite pattern
 public class Magazine implements Media {
@@ -11,7 +12,9 @@ public class Magazine implements Media {
     private final LocalDate publicationDate;
     private final String publisher;
     private final int issue;
-    private boolean available;
+    // Atomic for the compare-and-set of the loans
+    private final AtomicBoolean available = new AtomicBoolean(true);
+    private transient AvailabilityListener availabilityListener;
 
     /**
      * Magazine constructor
@@ -29,7 +32,6 @@ public class Magazine implements Media {
         this.publicationDate = publicationDate;
         this.publisher = publisher;
         this.issue = issue;
-        this.available = true;
     }
 
     @Override
@@ -91,7 +93,7 @@ public class Magazine implements Media {
      * @return true or false if the magazine is available
      */
     public boolean isAvailable() {
-        return available;
+        return available.get();
     }
 
     @Override
@@ -102,7 +104,41 @@ public class Magazine implements Media {
      * @param available : The availability status of the magazine to set
      */
     public void setAvailable(boolean available) {
-        this.available = available;
+        boolean changed = this.available.getAndSet(available) != available;
+        if (changed && availabilityListener != null) {
+            availabilityListener.onAvailabilityChanged(this);
+        }
+    }
+
+    @Override
+    /**
+     * Annotation: Override method of the Media interface
+     * Set the availability status of the magazine only if it is the expected one,
+     * as a single atomic operation
+     * 
+     * @param expectedAvailable : The expected availability status
+     * @param available         : The availability status to set
+     * @return true if the status was the expected one and is now set
+     */
+    public boolean compareAndSetAvailable(boolean expectedAvailable, boolean available) {
+        if (!this.available.compareAndSet(expectedAvailable, available)) {
+            return false;
+        }
+        if (expectedAvailable != available && availabilityListener != null) {
+            availabilityListener.onAvailabilityChanged(this);
+        }
+        return true;
+    }
+
+    @Override
+    /**
+     * Annotation: Override method of the Media interface
+     * Set the listener notified when the availability of the magazine changes
+     * 
+     * @param availabilityListener : The listener, or null to remove it
+     */
+    public void setAvailabilityListener(AvailabilityListener availabilityListener) {
+        this.availabilityListener = availabilityListener;
     }
 
     @Override
@@ -115,7 +151,7 @@ public class Magazine implements Media {
     public String getDetails() {
         return String.format("Magazine: %s, ID: %s, Publication date: %s, Publisher: %s, Number: %d, Available: %s",
                 title, id, publicationDate.format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy")),
-                publisher, issue, available ? "Yes" : "No");
+                publisher, issue, available.get() ? "Yes" : "No");
     }
 
     @Override
@@ -40,6 +40,24 @@ public interface Media extends Serializable {
      */
     void setAvailable(boolean available);
 
+    /**
+     * Set the availability status of the media only if it is the expected one,
+     * as a single atomic operation: of concurrent calls expecting the same
+     * status, only one succeeds
+     * 
+     * @param expectedAvailable : The expected availability status
+     * @param available         : The availability status to set
+     * @return true if the status was the expected one and is now set
+     */
+    boolean compareAndSetAvailable(boolean expectedAvailable, boolean available);
+
+    /**
+     * Set the listener notified when the availability of the media changes
+     * 
+     * @param availabilityListener : The listener, or null to remove it
+     */
+    void setAvailabilityListener(AvailabilityListener availabilityListener);
+
     /**
      * Get detailed information about the media
      * 
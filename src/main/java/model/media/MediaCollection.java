@@ -4,16 +4,31 @@ import iterator.MediaIterator;
 import iterator.MediaCollectionIterator;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-// Class for MediaCollection implementing the Media interface as Composite pattern
+// Class for MediaCollection implementing the Media interface as Composite pattern.
+// Members are held and persisted as IDs and resolved on access through the
+// MediaResolver (the repository), so a member is never serialized inside a
+// collection. The member set is guarded by the collection's monitor
 public class MediaCollection implements Media {
+    private static final long serialVersionUID = 3L;
     private final String id;
     private final String title;
     private final LocalDate creationDate;
-    private boolean available;
-    private final List<Media> mediaItems = new ArrayList<>();
+    private final AtomicBoolean available = new AtomicBoolean(true);
+    private final Set<String> mediaIds = new LinkedHashSet<>();
+    // Members added to a collection that is not attached to a resolver yet,
+    // dropped once the resolver is set
+    private transient Map<String, Media> detachedItems;
+    private transient MediaResolver mediaResolver;
+    private transient MembershipListener membershipListener;
+    private transient AvailabilityListener availabilityListener;
 
     /**
      * MediaCollection constructor
@@ -26,7 +41,6 @@ public class MediaCollection implements Media {
         this.id = id;
         this.title = title;
         this.creationDate = creationDate;
-        this.available = true;
     }
 
     @Override
@@ -70,7 +84,7 @@ public class MediaCollection implements Media {
      * @return true or false if the collection is available
      */
     public boolean isAvailable() {
-        return available;
+        return available.get();
     }
 
     @Override
@@ -81,12 +95,42 @@ public class MediaCollection implements Media {
      * @param available : The availability status of the collection to set
      */
     public void setAvailable(boolean available) {
-        this.available = available;
+        boolean changed = this.available.getAndSet(available) != available;
+        if (changed && availabilityListener != null) {
+            availabilityListener.onAvailabilityChanged(this);
+        }
+        // Every member notifies its own change
+        if (!available) {
+            for (Media media : getMediaItems()) {
+                media.setAvailable(false);
+            }
+        }
+    }
+
+    @Override
+    /**
+     * Annotation: Override method of the Media interface
+     * Set the availability status of the collection only if it is the expected
+     * one, as a single atomic operation; made unavailable, the collection makes
+     * all its items unavailable
+     * 
+     * @param expectedAvailable : The expected availability status
+     * @param available         : The availability status to set
+     * @return true if the status was the expected one and is now set
+     */
+    public boolean compareAndSetAvailable(boolean expectedAvailable, boolean available) {
+        if (!this.available.compareAndSet(expectedAvailable, available)) {
+            return false;
+        }
+        if (expectedAvailable != available && availabilityListener != null) {
+            availabilityListener.onAvailabilityChanged(this);
+        }
         if (!available) {
-            for (Media media : mediaItems) {
+            for (Media media : getMediaItems()) {
                 media.setAvailable(false);
             }
         }
+        return true;
     }
 
     @Override
@@ -96,10 +140,43 @@ public class MediaCollection implements Media {
      * 
      * @return a string with detailed information about the collection
      */
-    public String getDetails() {
+    public synchronized String getDetails() {
         return String.format("Collection: %s, ID: %s, Created: %s, Elements: %d, Available: %s",
                 title, id, creationDate.format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy")),
-                mediaItems.size(), available ? "Yes" : "No");
+                mediaIds.size(), available.get() ? "Yes" : "No");
+    }
+
+    @Override
+    /**
+     * Annotation: Override method of the Media interface
+     * Set the listener notified when the availability of the collection changes
+     * 
+     * @param availabilityListener : The listener, or null to remove it
+     */
+    public void setAvailabilityListener(AvailabilityListener availabilityListener) {
+        this.availabilityListener = availabilityListener;
+    }
+
+    /**
+     * Set the resolver used to turn the member IDs into media, in place of the
+     * members added before
+     * 
+     * @param mediaResolver : The resolver of the member IDs
+     */
+    public synchronized void setMediaResolver(MediaResolver mediaResolver) {
+        this.mediaResolver = mediaResolver;
+        if (mediaResolver != null) {
+            detachedItems = null;
+        }
+    }
+
+    /**
+     * Set the listener notified when a member is added or removed
+     * 
+     * @param membershipListener : The listener, or null to remove it
+     */
+    public void setMembershipListener(MembershipListener membershipListener) {
+        this.membershipListener = membershipListener;
     }
 
     /**
@@ -107,10 +184,25 @@ public class MediaCollection implements Media {
      * 
      * @param media : The media item to add
      */
-    public void addMedia(Media media) {
+    public synchronized void addMedia(Media media) {
         // Verify if the media is not already in the collection
-        if (!mediaItems.contains(media)) {
-            mediaItems.add(media);
+        if (mediaIds.add(media.getId())) {
+            if (mediaResolver == null) {
+                getDetachedItems().put(media.getId(), media);
+            }
+            notifyMemberAdded(media.getId());
+        }
+    }
+
+    /**
+     * Add a media item to the collection by its ID, the media is resolved on
+     * access
+     * 
+     * @param mediaId : The ID of the media item to add
+     */
+    public synchronized void addMediaId(String mediaId) {
+        if (mediaIds.add(mediaId)) {
+            notifyMemberAdded(mediaId);
         }
     }
 
@@ -119,17 +211,47 @@ public class MediaCollection implements Media {
      * 
      * @param media : The media item to remove
      */
-    public void removeMedia(Media media) {
-        mediaItems.remove(media);
+    public synchronized void removeMedia(Media media) {
+        removeMediaId(media.getId());
+    }
+
+    /**
+     * Remove a media item from the collection by its ID
+     * 
+     * @param mediaId : The ID of the media item to remove
+     */
+    public synchronized void removeMediaId(String mediaId) {
+        if (detachedItems != null) {
+            detachedItems.remove(mediaId);
+        }
+        if (mediaIds.remove(mediaId) && membershipListener != null) {
+            membershipListener.onMemberRemoved(id, mediaId);
+        }
     }
 
     /**
-     * Get all media items in the collection
+     * Get all media items in the collection, resolved from their IDs
      * 
      * @return a list of all media items in the collection
      */
-    public List<Media> getMediaItems() {
-        return new ArrayList<>(mediaItems);
+    public synchronized List<Media> getMediaItems() {
+        List<Media> mediaItems = new ArrayList<>(mediaIds.size());
+        for (String mediaId : mediaIds) {
+            Media media = mediaResolver != null ? mediaResolver.resolve(mediaId) : getDetachedItems().get(mediaId);
+            if (media != null) {
+                mediaItems.add(media);
+            }
+        }
+        return mediaItems;
+    }
+
+    /**
+     * Get the IDs of the media items in the collection
+     * 
+     * @return a list of the IDs of the media items in the collection
+     */
+    public synchronized List<String> getMediaIds() {
+        return new ArrayList<>(mediaIds);
     }
 
     /**
@@ -147,13 +269,22 @@ public class MediaCollection implements Media {
      * @param mediaId : The ID of the media item to check
      * @return true or false if the collection contains the media item
      */
-    public boolean containsMedia(String mediaId) {
-        for (Media media : mediaItems) {
-            if (media.getId().equals(mediaId)) {
-                return true;
-            }
+    public synchronized boolean containsMedia(String mediaId) {
+        return mediaIds.contains(mediaId);
+    }
+
+    private void notifyMemberAdded(String mediaId) {
+        if (membershipListener != null) {
+            membershipListener.onMemberAdded(id, mediaId);
+        }
+    }
+
+    // The transient map is null after deserialization
+    private Map<String, Media> getDetachedItems() {
+        if (detachedItems == null) {
+            detachedItems = new HashMap<>();
         }
-        return false;
+        return detachedItems;
     }
 
     @Override
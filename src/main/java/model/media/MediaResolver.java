@@ -0,0 +1,14 @@
+package model.media;
+
+// Functional interface used by a MediaCollection to resolve the IDs of its
+// members into media instances (usually backed by the repository)
+@FunctionalInterface
+public interface MediaResolver {
+    /**
+     * Resolve a media ID
+     * 
+     * @param mediaId : The ID of the media
+     * @return the media with the given ID or null if it does not exist
+     */
+    Media resolve(String mediaId);
+}
@@ -0,0 +1,27 @@
+package model.media;
+
+// Enum for the concrete types of media
+public enum MediaType {
+    BOOK,
+    MAGAZINE,
+    COLLECTION;
+
+    /**
+     * Get the type of a media
+     * 
+     * @param media : The media
+     * @return the type of the media
+     */
+    public static MediaType of(Media media) {
+        if (media instanceof Book) {
+            return BOOK;
+        }
+        if (media instanceof Magazine) {
+            return MAGAZINE;
+        }
+        if (media instanceof MediaCollection) {
+            return COLLECTION;
+        }
+        throw new IllegalArgumentException("Unsupported media type: " + media.getClass().getName());
+    }
+}
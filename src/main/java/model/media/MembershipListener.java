@@ -0,0 +1,21 @@
+package model.media;
+
+// Listener notified by a MediaCollection when a member is added or removed,
+// used by the repository to keep its membership index up to date
+public interface MembershipListener {
+    /**
+     * Called when a media is added to a collection
+     * 
+     * @param collectionId : The ID of the collection
+     * @param mediaId      : The ID of the added media
+     */
+    void onMemberAdded(String collectionId, String mediaId);
+
+    /**
+     * Called when a media is removed from a collection
+     * 
+     * @param collectionId : The ID of the collection
+     * @param mediaId      : The ID of the removed media
+     */
+    void onMemberRemoved(String collectionId, String mediaId);
+}
@@ -23,4 +23,10 @@ public class LoggingMediaObserver implements MediaChangeObserver {
         LOGGER.info("Media updated: " + oldMedia.getTitle() + " -> " + newMedia.getTitle() + " (ID: "
                 + newMedia.getId() + ")");
     }
+
+    @Override
+    public void onMediaBatchChanged(MediaChangeBatch batch) {
+        LOGGER.info("Media batch changed: " + batch.getAddedMedia().size() + " added, " + batch.getUpdates().size()
+                + " updated, " + batch.getRemovedMedia().size() + " removed");
+    }
 }
\ No newline at end of file
@@ -0,0 +1,105 @@
+package observer;
+
+import model.media.Media;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Class for a batch of media changes, notified to the observers at once instead
+// of one notification per media
+public class MediaChangeBatch {
+    private final List<Media> addedMedia;
+    private final List<Update> updates;
+    private final List<Media> removedMedia;
+
+    /**
+     * MediaChangeBatch constructor
+     * 
+     * @param addedMedia   : The added media
+     * @param updates      : The updated media, with their old state
+     * @param removedMedia : The removed media
+     */
+    public MediaChangeBatch(List<Media> addedMedia, List<Update> updates, List<Media> removedMedia) {
+        this.addedMedia = Collections.unmodifiableList(new ArrayList<>(addedMedia));
+        this.updates = Collections.unmodifiableList(new ArrayList<>(updates));
+        this.removedMedia = Collections.unmodifiableList(new ArrayList<>(removedMedia));
+    }
+
+    /**
+     * Create a batch of added media
+     * 
+     * @param addedMedia : The added media
+     * @return the batch
+     */
+    public static MediaChangeBatch added(List<Media> addedMedia) {
+        return new MediaChangeBatch(addedMedia, Collections.emptyList(), Collections.emptyList());
+    }
+
+    /**
+     * Create a batch of updated media
+     * 
+     * @param oldMedia : The old states of the media
+     * @param newMedia : The new states of the media, in the same order
+     * @return the batch
+     */
+    public static MediaChangeBatch updated(List<Media> oldMedia, List<Media> newMedia) {
+        if (oldMedia.size() != newMedia.size()) {
+            throw new IllegalArgumentException("Every updated media needs its old state");
+        }
+        List<Update> updates = new ArrayList<>(newMedia.size());
+        for (int i = 0; i < newMedia.size(); i++) {
+            updates.add(new Update(oldMedia.get(i), newMedia.get(i)));
+        }
+        return new MediaChangeBatch(Collections.emptyList(), updates, Collections.emptyList());
+    }
+
+    /**
+     * Create a batch of removed media
+     * 
+     * @param removedMedia : The removed media
+     * @return the batch
+     */
+    public static MediaChangeBatch removed(List<Media> removedMedia) {
+        return new MediaChangeBatch(Collections.emptyList(), Collections.emptyList(), removedMedia);
+    }
+
+    public List<Media> getAddedMedia() {
+        return addedMedia;
+    }
+
+    public List<Update> getUpdates() {
+        return updates;
+    }
+
+    public List<Media> getRemovedMedia() {
+        return removedMedia;
+    }
+
+    /**
+     * Get the number of changes in the batch
+     * 
+     * @return the number of added, updated and removed media
+     */
+    public int size() {
+        return addedMedia.size() + updates.size() + removedMedia.size();
+    }
+
+    // Old and new state of an updated media
+    public static class Update {
+        private final Media oldMedia;
+        private final Media newMedia;
+
+        public Update(Media oldMedia, Media newMedia) {
+            this.oldMedia = oldMedia;
+            this.newMedia = newMedia;
+        }
+
+        public Media getOldMedia() {
+            return oldMedia;
+        }
+
+        public Media getNewMedia() {
+            return newMedia;
+        }
+    }
+}
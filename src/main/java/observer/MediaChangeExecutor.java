@@ -3,14 +3,17 @@ package observer;
 import model.media.Media;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 // Executor class for the Observer pattern.
 // Notifies media changes and use multithreading by
-// using an ExecutorService to notify observers asynchronously
+// using an ExecutorService to notify observers asynchronously.
+// Synchronous observers are notified first, in the thread of the change
 public class MediaChangeExecutor {
     private final List<MediaChangeObserver> observers = new ArrayList<>();
+    private final List<MediaChangeObserver> synchronousObservers = new CopyOnWriteArrayList<>();
     private final ExecutorService notificationExecutor = Executors.newFixedThreadPool(2);
 
     /**
@@ -22,6 +25,17 @@ public class MediaChangeExecutor {
         observers.add(observer);
     }
 
+    /**
+     * Add an observer notified in the thread of the change, before the change
+     * returns to its caller. For observers that must see a change before the
+     * next read, as caches; they must be quick and not block
+     * 
+     * @param observer : The observer to add
+     */
+    public void addSynchronousObserver(MediaChangeObserver observer) {
+        synchronousObservers.add(observer);
+    }
+
     /**
      * Remove an observer
      * 
@@ -29,6 +43,7 @@ public class MediaChangeExecutor {
      */
     public void removeObserver(MediaChangeObserver observer) {
         observers.remove(observer);
+        synchronousObservers.remove(observer);
     }
 
     /**
@@ -38,6 +53,9 @@ public class MediaChangeExecutor {
      * @param media : The media that was added
      */
     public void notifyMediaAdded(final Media media) {
+        for (MediaChangeObserver observer : synchronousObservers) {
+            observer.onMediaAdded(media);
+        }
         for (final MediaChangeObserver observer : observers) {
             notificationExecutor.submit(() -> observer.onMediaAdded(media));
         }
@@ -50,6 +68,9 @@ public class MediaChangeExecutor {
      * @param media : The media that was removed
      */
     public void notifyMediaRemoved(final Media media) {
+        for (MediaChangeObserver observer : synchronousObservers) {
+            observer.onMediaRemoved(media);
+        }
         for (final MediaChangeObserver observer : observers) {
             notificationExecutor.submit(() -> observer.onMediaRemoved(media));
         }
@@ -63,11 +84,32 @@ public class MediaChangeExecutor {
      * @param newMedia : The new state of the media
      */
     public void notifyMediaUpdated(final Media oldMedia, final Media newMedia) {
+        for (MediaChangeObserver observer : synchronousObservers) {
+            observer.onMediaUpdated(oldMedia, newMedia);
+        }
         for (final MediaChangeObserver observer : observers) {
             notificationExecutor.submit(() -> observer.onMediaUpdated(oldMedia, newMedia));
         }
     }
 
+    /**
+     * Notify all observers of a batch of changes, with a single notification
+     * Uses multithreading to notify observers asynchronously
+     * 
+     * @param batch : The changes of the batch
+     */
+    public void notifyMediaBatchChanged(final MediaChangeBatch batch) {
+        if (batch.size() == 0) {
+            return;
+        }
+        for (MediaChangeObserver observer : synchronousObservers) {
+            observer.onMediaBatchChanged(batch);
+        }
+        for (final MediaChangeObserver observer : observers) {
+            notificationExecutor.submit(() -> observer.onMediaBatchChanged(batch));
+        }
+    }
+
     // Shutdown the executor service, called when the application is shutting down
     public void shutdown() {
         notificationExecutor.shutdown();
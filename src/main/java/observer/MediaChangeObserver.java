@@ -25,4 +25,23 @@ public interface MediaChangeObserver {
      * @param newMedia : The new state of the media
      */
     void onMediaUpdated(Media oldMedia, Media newMedia);
+
+    /**
+     * Called once for a batch of added, updated and removed media. By default,
+     * each change is passed to the method of its kind; an observer overrides it
+     * to handle the batch as a whole
+     * 
+     * @param batch : The changes of the batch
+     */
+    default void onMediaBatchChanged(MediaChangeBatch batch) {
+        for (Media media : batch.getAddedMedia()) {
+            onMediaAdded(media);
+        }
+        for (MediaChangeBatch.Update update : batch.getUpdates()) {
+            onMediaUpdated(update.getOldMedia(), update.getNewMedia());
+        }
+        for (Media media : batch.getRemovedMedia()) {
+            onMediaRemoved(media);
+        }
+    }
 }
\ No newline at end of file
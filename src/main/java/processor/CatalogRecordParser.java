@@ -0,0 +1,238 @@
+package processor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Utility class to split the records of an imported catalog into fields: a CSV
+// line, with optionally quoted fields, or an NDJSON line holding a flat JSON
+// object. Field names are lower case, so that both formats share the same names
+public final class CatalogRecordParser {
+
+    // Private constructor to avoid instantiation
+    private CatalogRecordParser() {
+    }
+
+    /**
+     * Split a CSV line into its fields. A field may be quoted to hold commas,
+     * with a doubled quote for a quote; a quoted field cannot span lines
+     *
+     * @param line : The CSV line
+     * @return the fields of the line
+     * @throws IllegalArgumentException : If a quoted field is not closed
+     */
+    public static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        while (true) {
+            field.setLength(0);
+            if (i < line.length() && line.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i >= line.length()) {
+                        throw new IllegalArgumentException("Unclosed quoted field");
+                    }
+                    char c = line.charAt(i++);
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i < line.length() && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                // Anything between the closing quote and the separator is kept
+                while (i < line.length() && line.charAt(i) != ',') {
+                    field.append(line.charAt(i++));
+                }
+            } else {
+                int end = line.indexOf(',', i);
+                end = end < 0 ? line.length() : end;
+                field.append(line, i, end);
+                i = end;
+            }
+            fields.add(field.toString());
+            if (i >= line.length()) {
+                return fields;
+            }
+            // Skip the separator
+            i++;
+        }
+    }
+
+    /**
+     * Map the fields of a CSV line to the column names of the header
+     *
+     * @param header : The lower case column names
+     * @param line   : The CSV line
+     * @return the fields by column name
+     * @throws IllegalArgumentException : If the line is malformed or does not
+     *                                  have a field per column
+     */
+    public static Map<String, String> parseCsvRecord(List<String> header, String line) {
+        List<String> fields = parseCsvLine(line);
+        if (fields.size() != header.size()) {
+            throw new IllegalArgumentException(
+                    "Expected " + header.size() + " fields, found " + fields.size());
+        }
+        Map<String, String> record = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            record.put(header.get(i), fields.get(i));
+        }
+        return record;
+    }
+
+    /**
+     * Parse an NDJSON line holding a flat JSON object. Strings, numbers and
+     * booleans are returned as text, null values are left out
+     *
+     * @param line : The NDJSON line
+     * @return the values by lower case field name
+     * @throws IllegalArgumentException : If the line is not a flat JSON object
+     */
+    public static Map<String, String> parseJsonRecord(String line) {
+        JsonScanner scanner = new JsonScanner(line);
+        Map<String, String> record = new HashMap<>();
+        scanner.expect('{');
+        if (!scanner.consume('}')) {
+            do {
+                String name = scanner.readString();
+                scanner.expect(':');
+                String value = scanner.readValue();
+                if (value != null) {
+                    record.put(normalizeName(name), value);
+                }
+            } while (scanner.consume(','));
+            scanner.expect('}');
+        }
+        scanner.expectEnd();
+        return record;
+    }
+
+    /**
+     * Normalize a column or field name
+     *
+     * @param name : The name
+     * @return the trimmed lower case name
+     */
+    public static String normalizeName(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Reads the tokens of a flat JSON object, skipping the whitespace before them
+    private static class JsonScanner {
+        private final String text;
+        private int position;
+
+        JsonScanner(String text) {
+            this.text = text;
+        }
+
+        void expect(char expected) {
+            if (!consume(expected)) {
+                throw error("Expected '" + expected + "'");
+            }
+        }
+
+        boolean consume(char expected) {
+            skipWhitespace();
+            if (position < text.length() && text.charAt(position) == expected) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        void expectEnd() {
+            skipWhitespace();
+            if (position < text.length()) {
+                throw error("Unexpected content after the object");
+            }
+        }
+
+        String readString() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (position < text.length()) {
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                } else if (position < text.length()) {
+                    value.append(unescape(text.charAt(position++)));
+                }
+            }
+            throw error("Unclosed string");
+        }
+
+        // A string, number or literal value, null for a null value
+        String readValue() {
+            skipWhitespace();
+            if (position >= text.length()) {
+                throw error("Missing value");
+            }
+            char first = text.charAt(position);
+            if (first == '"') {
+                return readString();
+            }
+            if (first == '{' || first == '[') {
+                throw error("Nested values are not supported");
+            }
+            int start = position;
+            while (position < text.length() && ",}".indexOf(text.charAt(position)) < 0
+                    && !Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+            String value = text.substring(start, position);
+            if (value.isEmpty()) {
+                throw error("Missing value");
+            }
+            return "null".equals(value) ? null : value;
+        }
+
+        private char unescape(char escaped) {
+            switch (escaped) {
+                case 'b':
+                    return '\b';
+                case 'f':
+                    return '\f';
+                case 'n':
+                    return '\n';
+                case 'r':
+                    return '\r';
+                case 't':
+                    return '\t';
+                case 'u':
+                    if (position + 4 > text.length()) {
+                        throw error("Invalid unicode escape");
+                    }
+                    try {
+                        char c = (char) Integer.parseInt(text.substring(position, position + 4), 16);
+                        position += 4;
+                        return c;
+                    } catch (NumberFormatException e) {
+                        throw error("Invalid unicode escape");
+                    }
+                default:
+                    // \" \\ \/
+                    return escaped;
+            }
+        }
+
+        private void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at column " + (position + 1));
+        }
+    }
+}
@@ -0,0 +1,529 @@
+package processor;
+
+import exception.LibraryException;
+import factory.MediaFactory;
+import index.MediaAttributes;
+import model.media.Book;
+import model.media.Magazine;
+import model.media.Media;
+import service.MediaService;
+import util.InputValidator;
+import util.LoggerManager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+// Class for the bulk import of a catalog of books and magazines, in CSV or
+// NDJSON, as a pipeline of stages linked by bounded queues: a reader streams
+// the lines of the file, parser threads turn them into media with the
+// InputValidator rules and the MediaFactory, a deduplicator drops the media
+// already in the catalog or earlier in the file, and the calling thread saves
+// the rest with batched repository inserts. A full queue blocks the stage
+// feeding it, so the slowest stage sets the pace and the memory used does not
+// depend on the size of the file. The media are inserted in no specific order
+public class ImportProcessor {
+    private static final Logger LOGGER = LoggerManager.getLogger(ImportProcessor.class.getName());
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final int DEFAULT_QUEUE_CAPACITY = 32;
+    // Lines handed over at once from the reader to a parser
+    private static final int CHUNK_SIZE = 256;
+    // Batches ready while the previous one is being saved
+    private static final int BATCH_QUEUE_CAPACITY = 2;
+    private static final int MAX_ERRORS = 20;
+    private static final List<String> REQUIRED_COLUMNS = Arrays.asList("type", "title", "publicationdate",
+            "publisher");
+    private static final char KEY_SEPARATOR = '\u001F';
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    // Ends of the streams between the stages, compared by identity
+    private static final Chunk END_OF_LINES = new Chunk(0, Collections.<String>emptyList());
+    private static final List<Media> END_OF_MEDIA = new ArrayList<>();
+
+    private final MediaService mediaService;
+    private final int parserThreads;
+    private final int batchSize;
+    private final int queueCapacity;
+
+    // Formats of the imported files
+    public enum Format {
+        CSV,
+        NDJSON;
+
+        /**
+         * Get the format of a file from its extension
+         *
+         * @param path : The path of the file
+         * @return CSV for .csv, NDJSON for .ndjson or .jsonl, null otherwise
+         */
+        public static Format of(String path) {
+            String name = path.trim().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".csv")) {
+                return CSV;
+            }
+            return name.endsWith(".ndjson") || name.endsWith(".jsonl") ? NDJSON : null;
+        }
+    }
+
+    /**
+     * ImportProcessor constructor, with a parser thread per available processor
+     * but one and the default batch size and queue capacity
+     *
+     * @param mediaService : The service saving the imported media
+     */
+    public ImportProcessor(MediaService mediaService) {
+        this(mediaService, Math.max(1, Runtime.getRuntime().availableProcessors() - 1), DEFAULT_BATCH_SIZE,
+                DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * ImportProcessor constructor
+     *
+     * @param mediaService  : The service saving the imported media
+     * @param parserThreads : The number of threads parsing and validating the
+     *                      records
+     * @param batchSize     : The number of media saved at once
+     * @param queueCapacity : The number of chunks of records each queue between
+     *                      the reader, the parsers and the deduplicator holds
+     */
+    public ImportProcessor(MediaService mediaService, int parserThreads, int batchSize, int queueCapacity) {
+        if (parserThreads <= 0 || batchSize <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("The threads, batch size and queue capacity must be positive");
+        }
+        this.mediaService = mediaService;
+        this.parserThreads = parserThreads;
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Import a catalog file, its format given by its extension. A CSV file
+     * starts with a header naming its columns among type, title, author,
+     * publicationDate, publisher, pages and issue; an NDJSON file has an object
+     * with these fields on each line. The type is Book or Magazine and the
+     * publication date is in the format dd/MM/yyyy
+     *
+     * @param path : The path of the file
+     * @return the report of the import
+     * @throws LibraryException : If the format is not supported or the file
+     *                          cannot be opened
+     */
+    public ImportReport importFile(String path) throws LibraryException {
+        Format format = Format.of(path);
+        if (format == null) {
+            throw new LibraryException("Unsupported import file, use a .csv, .ndjson or .jsonl file: " + path);
+        }
+        return importFile(path, format);
+    }
+
+    /**
+     * Import a catalog file in the given format. Invalid records and batches
+     * that cannot be saved are counted in the report and do not stop the import
+     *
+     * @param path   : The path of the file
+     * @param format : The format of the file
+     * @return the report of the import
+     * @throws LibraryException : If the file cannot be opened, has no valid CSV
+     *                          header, or the import is interrupted
+     */
+    public ImportReport importFile(String path, Format format) throws LibraryException {
+        BufferedReader reader;
+        try {
+            reader = Files.newBufferedReader(Paths.get(path.trim()), StandardCharsets.UTF_8);
+        } catch (IOException | InvalidPathException e) {
+            throw new LibraryException("Impossible to open the import file " + path + ": " + e.getMessage());
+        }
+        try {
+            LOGGER.info("Importing " + path + " as " + format);
+            ImportReport report = new ImportRun(path, format, reader).execute();
+            LOGGER.info(String.format("Import of %s done: %d lines, %d inserted, %d rejected, %d duplicates, "
+                    + "%d failed", path, report.getLinesRead(), report.getInserted(), report.getRejected(),
+                    report.getDuplicates(), report.getFailed()));
+            return report;
+        } finally {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                LOGGER.warning("Error while closing the import file: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Get the key identifying a media for the de-duplication: the type, title
+     * and publication date, with the author of a book or the issue of a
+     * magazine
+     *
+     * @param media : The media
+     * @return the key of a book or magazine, null for the other media
+     */
+    static String keyOf(Media media) {
+        String common = MediaAttributes.normalize(media.getTitle()) + KEY_SEPARATOR + media.getPublicationDate()
+                + KEY_SEPARATOR;
+        if (media instanceof Book) {
+            return "BOOK" + KEY_SEPARATOR + common + MediaAttributes.normalize(((Book) media).getAuthor());
+        }
+        if (media instanceof Magazine) {
+            return "MAGAZINE" + KEY_SEPARATOR + common + ((Magazine) media).getIssue();
+        }
+        return null;
+    }
+
+    // State of an import, shared by the stages of its pipeline
+    private class ImportRun {
+        private final String path;
+        private final Format format;
+        private final BufferedReader reader;
+        private final BlockingQueue<Chunk> lines = new ArrayBlockingQueue<>(queueCapacity);
+        private final BlockingQueue<List<Media>> parsedMedia = new ArrayBlockingQueue<>(queueCapacity);
+        private final BlockingQueue<List<Media>> batches = new ArrayBlockingQueue<>(BATCH_QUEUE_CAPACITY);
+        private final StageMeter readMeter = new StageMeter("read", 1);
+        private final StageMeter parseMeter = new StageMeter("parse", parserThreads);
+        private final StageMeter deduplicateMeter = new StageMeter("deduplicate", 1);
+        private final StageMeter insertMeter = new StageMeter("insert", 1);
+        private final LongAdder parsed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        private List<String> header;
+        // Written by a single stage, read by the caller once the stage is done
+        private volatile long linesRead;
+        private volatile long duplicates;
+        private volatile boolean complete = true;
+
+        ImportRun(String path, Format format, BufferedReader reader) {
+            this.path = path;
+            this.format = format;
+            this.reader = reader;
+        }
+
+        ImportReport execute() throws LibraryException {
+            long start = System.nanoTime();
+            long firstLine = 1;
+            if (format == Format.CSV) {
+                header = readHeader();
+                firstLine = 2;
+            }
+
+            long inserted = 0;
+            long failed = 0;
+            long batchCount = 0;
+            ExecutorService executor = Executors.newFixedThreadPool(parserThreads + 2);
+            try {
+                long firstRecordLine = firstLine;
+                executor.execute(() -> read(firstRecordLine));
+                for (int i = 0; i < parserThreads; i++) {
+                    executor.execute(this::parse);
+                }
+                executor.execute(this::deduplicate);
+
+                // Insert stage, in the calling thread
+                long insertStart = System.nanoTime();
+                List<Media> batch;
+                while ((batch = take(batches, insertMeter)) != END_OF_MEDIA) {
+                    try {
+                        mediaService.saveAllMedia(batch);
+                        inserted += batch.size();
+                        batchCount++;
+                    } catch (LibraryException e) {
+                        failed += batch.size();
+                        error("Batch of " + batch.size() + " media not saved: " + e.getMessage());
+                    }
+                    insertMeter.records.add(batch.size());
+                }
+                insertMeter.active(insertStart);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new LibraryException("Import of " + path + " interrupted after " + inserted + " media inserted");
+            } finally {
+                // Stops the stages still running if the import is interrupted
+                executor.shutdownNow();
+            }
+
+            List<ImportReport.Stage> stages = Arrays.asList(readMeter.toStage(), parseMeter.toStage(),
+                    deduplicateMeter.toStage(), insertMeter.toStage());
+            return new ImportReport(path, format, linesRead, parsed.sum(), rejected.sum(), duplicates, inserted,
+                    failed, batchCount, System.nanoTime() - start, complete, stages, new ArrayList<>(errors));
+        }
+
+        private List<String> readHeader() throws LibraryException {
+            String line;
+            try {
+                line = reader.readLine();
+            } catch (IOException e) {
+                throw new LibraryException("Impossible to read the import file " + path + ": " + e.getMessage());
+            }
+            if (line == null) {
+                throw new LibraryException("The import file " + path + " is empty");
+            }
+
+            List<String> columns = new ArrayList<>();
+            try {
+                for (String column : CatalogRecordParser.parseCsvLine(stripByteOrderMark(line))) {
+                    columns.add(CatalogRecordParser.normalizeName(column));
+                }
+            } catch (IllegalArgumentException e) {
+                throw new LibraryException("Invalid header in the import file " + path + ": " + e.getMessage());
+            }
+            for (String column : REQUIRED_COLUMNS) {
+                if (!columns.contains(column)) {
+                    throw new LibraryException("Missing column " + column + " in the header of " + path);
+                }
+            }
+            return columns;
+        }
+
+        // Read stage: streams the lines of the file to the parsers by chunks
+        private void read(long firstLine) {
+            long start = System.nanoTime();
+            long nextLine = firstLine;
+            try {
+                List<String> chunk = new ArrayList<>(CHUNK_SIZE);
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    chunk.add(nextLine == 1 && chunk.isEmpty() ? stripByteOrderMark(line) : line);
+                    if (chunk.size() == CHUNK_SIZE) {
+                        put(lines, new Chunk(nextLine, chunk), readMeter);
+                        readMeter.records.add(chunk.size());
+                        nextLine += chunk.size();
+                        chunk = new ArrayList<>(CHUNK_SIZE);
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    put(lines, new Chunk(nextLine, chunk), readMeter);
+                    readMeter.records.add(chunk.size());
+                    nextLine += chunk.size();
+                }
+            } catch (IOException e) {
+                complete = false;
+                error("Read failed after line " + (nextLine - 1) + ": " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                linesRead = nextLine - firstLine;
+                readMeter.active(start);
+                end(lines, END_OF_LINES, parserThreads);
+            }
+        }
+
+        // Parse stage: turns the lines into valid media, rejecting the others
+        private void parse() {
+            long start = System.nanoTime();
+            try {
+                Chunk chunk;
+                while ((chunk = take(lines, parseMeter)) != END_OF_LINES) {
+                    List<Media> media = new ArrayList<>(chunk.lines.size());
+                    for (int i = 0; i < chunk.lines.size(); i++) {
+                        String line = chunk.lines.get(i);
+                        if (line.trim().isEmpty()) {
+                            continue;
+                        }
+                        try {
+                            media.add(toMedia(format == Format.CSV
+                                    ? CatalogRecordParser.parseCsvRecord(header, line)
+                                    : CatalogRecordParser.parseJsonRecord(line)));
+                        } catch (RuntimeException e) {
+                            rejected.increment();
+                            error("Line " + (chunk.firstLine + i) + " rejected: " + e.getMessage());
+                        }
+                    }
+                    parseMeter.records.add(chunk.lines.size());
+                    parsed.add(media.size());
+                    put(parsedMedia, media, parseMeter);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                parseMeter.active(start);
+                end(parsedMedia, END_OF_MEDIA, 1);
+            }
+        }
+
+        // Deduplicate stage: drops the known media and groups the others in batches
+        private void deduplicate() {
+            long start = System.nanoTime();
+            long duplicateCount = 0;
+            try {
+                Set<String> keys = existingKeys();
+                List<Media> batch = new ArrayList<>(batchSize);
+                int endedParsers = 0;
+                while (endedParsers < parserThreads) {
+                    List<Media> media = take(parsedMedia, deduplicateMeter);
+                    if (media == END_OF_MEDIA) {
+                        endedParsers++;
+                        continue;
+                    }
+                    for (Media item : media) {
+                        if (!keys.add(keyOf(item))) {
+                            duplicateCount++;
+                            continue;
+                        }
+                        batch.add(item);
+                        if (batch.size() == batchSize) {
+                            put(batches, batch, deduplicateMeter);
+                            batch = new ArrayList<>(batchSize);
+                        }
+                    }
+                    deduplicateMeter.records.add(media.size());
+                }
+                if (!batch.isEmpty()) {
+                    put(batches, batch, deduplicateMeter);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                duplicates = duplicateCount;
+                deduplicateMeter.active(start);
+                end(batches, END_OF_MEDIA, 1);
+            }
+        }
+
+        private Set<String> existingKeys() {
+            Set<String> keys = new HashSet<>();
+            try {
+                for (Media media : mediaService.findAllMedia()) {
+                    String key = keyOf(media);
+                    if (key != null) {
+                        keys.add(key);
+                    }
+                }
+            } catch (LibraryException e) {
+                error("Existing media not loaded, only the duplicates within the file are dropped: "
+                        + e.getMessage());
+            }
+            return keys;
+        }
+
+        private Media toMedia(Map<String, String> record) {
+            String type = requiredString(record, "type");
+            String title = requiredString(record, "title");
+            LocalDate publicationDate = requiredDate(record, "publicationdate");
+            String publisher = requiredString(record, "publisher");
+            if (type.equalsIgnoreCase("Book")) {
+                return MediaFactory.createBook(title, requiredString(record, "author"), publicationDate, publisher,
+                        requiredPositiveInteger(record, "pages"));
+            }
+            if (type.equalsIgnoreCase("Magazine")) {
+                return MediaFactory.createMagazine(title, publicationDate, publisher,
+                        requiredPositiveInteger(record, "issue"));
+            }
+            throw new IllegalArgumentException("Unsupported media type " + type + ", use Book or Magazine");
+        }
+
+        private void error(String message) {
+            // Only the first errors are kept, they are all counted
+            synchronized (errors) {
+                if (errors.size() < MAX_ERRORS) {
+                    errors.add(message);
+                }
+            }
+        }
+    }
+
+    private static String requiredString(Map<String, String> record, String field) {
+        String value = InputValidator.sanitizeString(record.get(field));
+        if (!InputValidator.isValidString(value)) {
+            throw new IllegalArgumentException("Missing " + field);
+        }
+        return value;
+    }
+
+    private static LocalDate requiredDate(Map<String, String> record, String field) {
+        String value = requiredString(record, field);
+        if (!InputValidator.isValidDate(value)) {
+            throw new IllegalArgumentException("Invalid " + field + " " + value + ", use the format dd/MM/yyyy");
+        }
+        return InputValidator.parseDate(value);
+    }
+
+    private static int requiredPositiveInteger(Map<String, String> record, String field) {
+        String value = requiredString(record, field);
+        if (!InputValidator.isValidInteger(value) || Integer.parseInt(value) <= 0) {
+            throw new IllegalArgumentException("Invalid " + field + " " + value + ", use a positive integer");
+        }
+        return Integer.parseInt(value);
+    }
+
+    private static String stripByteOrderMark(String line) {
+        return !line.isEmpty() && line.charAt(0) == BYTE_ORDER_MARK ? line.substring(1) : line;
+    }
+
+    private static <T> T take(BlockingQueue<T> queue, StageMeter meter) throws InterruptedException {
+        long start = System.nanoTime();
+        T item = queue.take();
+        meter.starvedNanos.add(System.nanoTime() - start);
+        return item;
+    }
+
+    private static <T> void put(BlockingQueue<T> queue, T item, StageMeter meter) throws InterruptedException {
+        long start = System.nanoTime();
+        queue.put(item);
+        meter.blockedNanos.add(System.nanoTime() - start);
+    }
+
+    // Signals the end of a stage to the threads of the next one
+    private static <T> void end(BlockingQueue<T> queue, T end, int consumers) {
+        try {
+            for (int i = 0; i < consumers; i++) {
+                queue.put(end);
+            }
+        } catch (InterruptedException e) {
+            // The import is interrupted, the next stage is stopped as well
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Consecutive lines of the file, from the line with the given number
+    private static class Chunk {
+        private final long firstLine;
+        private final List<String> lines;
+
+        Chunk(long firstLine, List<String> lines) {
+            this.firstLine = firstLine;
+            this.lines = lines;
+        }
+    }
+
+    // Times and records of a stage, summed over its threads
+    private static class StageMeter {
+        private final String name;
+        private final int threads;
+        private final LongAdder records = new LongAdder();
+        private final LongAdder activeNanos = new LongAdder();
+        private final LongAdder starvedNanos = new LongAdder();
+        private final LongAdder blockedNanos = new LongAdder();
+
+        StageMeter(String name, int threads) {
+            this.name = name;
+            this.threads = threads;
+        }
+
+        void active(long start) {
+            activeNanos.add(System.nanoTime() - start);
+        }
+
+        ImportReport.Stage toStage() {
+            long starved = starvedNanos.sum();
+            long blocked = blockedNanos.sum();
+            return new ImportReport.Stage(name, threads, records.sum(),
+                    Math.max(0, activeNanos.sum() - starved - blocked), starved, blocked);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package processor;
+
+import java.util.Collections;
+import java.util.List;
+
+// Class for the outcome of a bulk import: the records counted at each step, the
+// first errors met and, for each stage of the pipeline, its throughput and the
+// time its threads spent waiting for the previous stage (starved) or for the
+// next one (blocked by the backpressure of a full queue). The slowest stage is
+// the one busy most of the time while the stages before it are blocked
+public class ImportReport {
+    private final String path;
+    private final ImportProcessor.Format format;
+    private final long linesRead;
+    private final long parsed;
+    private final long rejected;
+    private final long duplicates;
+    private final long inserted;
+    private final long failed;
+    private final long batches;
+    private final long elapsedNanos;
+    private final boolean complete;
+    private final List<Stage> stages;
+    private final List<String> errors;
+
+    /**
+     * ImportReport constructor
+     *
+     * @param path         : The imported file
+     * @param format       : The format of the file
+     * @param linesRead    : The number of record lines read
+     * @param parsed       : The number of records turned into valid media
+     * @param rejected     : The number of malformed or invalid records
+     * @param duplicates   : The number of media already in the catalog or
+     *                     earlier in the file
+     * @param inserted     : The number of media saved
+     * @param failed       : The number of media in batches that could not be
+     *                     saved
+     * @param batches      : The number of batches saved
+     * @param elapsedNanos : The duration of the import
+     * @param complete     : false if the file could not be read to the end
+     * @param stages       : The stages of the pipeline, in order
+     * @param errors       : The first errors met
+     */
+    public ImportReport(String path, ImportProcessor.Format format, long linesRead, long parsed, long rejected,
+            long duplicates, long inserted, long failed, long batches, long elapsedNanos, boolean complete,
+            List<Stage> stages, List<String> errors) {
+        this.path = path;
+        this.format = format;
+        this.linesRead = linesRead;
+        this.parsed = parsed;
+        this.rejected = rejected;
+        this.duplicates = duplicates;
+        this.inserted = inserted;
+        this.failed = failed;
+        this.batches = batches;
+        this.elapsedNanos = elapsedNanos;
+        this.complete = complete;
+        this.stages = Collections.unmodifiableList(stages);
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public ImportProcessor.Format getFormat() {
+        return format;
+    }
+
+    public long getLinesRead() {
+        return linesRead;
+    }
+
+    public long getParsed() {
+        return parsed;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public List<Stage> getStages() {
+        return stages;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Import of %s (%s)%s: %d lines read, %d parsed, %d rejected, %d duplicates, "
+                + "%d inserted in %d batches, %d failed, %.2f s (%.0f lines/s)%n", path, format,
+                complete ? "" : " INCOMPLETE", linesRead, parsed, rejected, duplicates, inserted, batches, failed,
+                elapsedNanos / 1e9, rate(linesRead, elapsedNanos)));
+        report.append(String.format("%-12s %7s %10s %10s %10s %10s %12s%n", "Stage", "Threads", "Records", "Busy ms",
+                "Starved ms", "Blocked ms", "Records/s"));
+        for (Stage stage : stages) {
+            report.append(stage).append(String.format("%n"));
+        }
+        for (String error : errors) {
+            report.append(error).append(String.format("%n"));
+        }
+        return report.toString();
+    }
+
+    private static double rate(long records, long nanos) {
+        return nanos == 0 ? 0 : records * 1e9 / nanos;
+    }
+
+    // Class for the activity of a stage of the pipeline, its times summed over
+    // the threads of the stage
+    public static class Stage {
+        private final String name;
+        private final int threads;
+        private final long records;
+        private final long busyNanos;
+        private final long starvedNanos;
+        private final long blockedNanos;
+
+        /**
+         * Stage constructor
+         *
+         * @param name         : The name of the stage
+         * @param threads      : The number of threads running the stage
+         * @param records      : The number of records the stage processed
+         * @param busyNanos    : The time spent processing records
+         * @param starvedNanos : The time spent waiting for the previous stage
+         * @param blockedNanos : The time spent waiting for room in the queue of
+         *                     the next stage
+         */
+        public Stage(String name, int threads, long records, long busyNanos, long starvedNanos, long blockedNanos) {
+            this.name = name;
+            this.threads = threads;
+            this.records = records;
+            this.busyNanos = busyNanos;
+            this.starvedNanos = starvedNanos;
+            this.blockedNanos = blockedNanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public long getRecords() {
+            return records;
+        }
+
+        public long getBusyNanos() {
+            return busyNanos;
+        }
+
+        public long getStarvedNanos() {
+            return starvedNanos;
+        }
+
+        public long getBlockedNanos() {
+            return blockedNanos;
+        }
+
+        /**
+         * Get the throughput of the stage when busy, all its threads together
+         *
+         * @return the records processed per second of busy time of a thread,
+         *         times the number of threads
+         */
+        public double getThroughput() {
+            return rate(records * threads, busyNanos);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-12s %7d %10d %10d %10d %10d %12.0f", name, threads, records,
+                    busyNanos / 1000000, starvedNanos / 1000000, blockedNanos / 1000000, getThroughput());
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package query;
+
+import model.media.MediaType;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+// Class for the facet counts of a set of media: the number of media by
+// publication year, publisher, type and availability. Media without a publisher
+// (collections) are not counted in the publisher facet. Immutable snapshot
+public class FacetCounts {
+    private final long total;
+    private final SortedMap<Integer, Long> byYear;
+    private final SortedMap<String, Long> byPublisher;
+    private final Map<MediaType, Long> byType;
+    private final long available;
+    private final long unavailable;
+
+    /**
+     * FacetCounts constructor
+     * 
+     * @param byYear      : The number of media by publication year
+     * @param byPublisher : The number of media by publisher
+     * @param byType      : The number of media by type
+     * @param available   : The number of available media
+     * @param unavailable : The number of unavailable media
+     */
+    public FacetCounts(Map<Integer, Long> byYear, Map<String, Long> byPublisher, Map<MediaType, Long> byType,
+            long available, long unavailable) {
+        this.byYear = Collections.unmodifiableSortedMap(new TreeMap<>(byYear));
+        this.byPublisher = Collections.unmodifiableSortedMap(new TreeMap<>(byPublisher));
+        Map<MediaType, Long> types = new EnumMap<>(MediaType.class);
+        types.putAll(byType);
+        this.byType = Collections.unmodifiableMap(types);
+        this.available = available;
+        this.unavailable = unavailable;
+        this.total = available + unavailable;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public SortedMap<Integer, Long> getByYear() {
+        return byYear;
+    }
+
+    public SortedMap<String, Long> getByPublisher() {
+        return byPublisher;
+    }
+
+    public Map<MediaType, Long> getByType() {
+        return byType;
+    }
+
+    public long getAvailable() {
+        return available;
+    }
+
+    public long getUnavailable() {
+        return unavailable;
+    }
+
+    @Override
+    public String toString() {
+        return "FacetCounts [total=" + total + ", byYear=" + byYear + ", byPublisher=" + byPublisher + ", byType="
+                + byType + ", available=" + available + ", unavailable=" + unavailable + "]";
+    }
+}
@@ -0,0 +1,139 @@
+package query;
+
+import index.MediaAttributes;
+import index.TitleTokenizer;
+import model.media.Media;
+import model.media.MediaType;
+import java.util.HashSet;
+import java.util.Set;
+
+// Class for a query on the media, combining optional criteria: title terms,
+// publication year range, availability, type, author and publisher. A null
+// criterion does not filter. Created with the MediaQueryBuilder
+public class MediaQuery {
+    private final String titleTerms;
+    private final Integer fromYear;
+    private final Integer toYear;
+    private final Boolean available;
+    private final MediaType type;
+    private final String author;
+    private final String publisher;
+
+    /**
+     * MediaQuery constructor
+     * 
+     * @param titleTerms : The words the title must contain, or null
+     * @param fromYear   : The first publication year, or null
+     * @param toYear     : The last publication year, or null
+     * @param available  : The availability, or null
+     * @param type       : The type of media, or null
+     * @param author     : The author, ignoring case, or null
+     * @param publisher  : The publisher, ignoring case, or null
+     */
+    public MediaQuery(String titleTerms, Integer fromYear, Integer toYear, Boolean available, MediaType type,
+            String author, String publisher) {
+        this.titleTerms = titleTerms;
+        this.fromYear = fromYear;
+        this.toYear = toYear;
+        this.available = available;
+        this.type = type;
+        this.author = author;
+        this.publisher = publisher;
+    }
+
+    public String getTitleTerms() {
+        return titleTerms;
+    }
+
+    public Integer getFromYear() {
+        return fromYear;
+    }
+
+    public Integer getToYear() {
+        return toYear;
+    }
+
+    public Boolean getAvailable() {
+        return available;
+    }
+
+    public MediaType getType() {
+        return type;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public String getPublisher() {
+        return publisher;
+    }
+
+    /**
+     * Check if the query filters on the title
+     * 
+     * @return true if the title terms have at least one word
+     */
+    public boolean hasTitleTerms() {
+        return titleTerms != null && !TitleTokenizer.tokenize(titleTerms).isEmpty();
+    }
+
+    /**
+     * Check if the query filters on the publication year
+     * 
+     * @return true if the query has a first or last year
+     */
+    public boolean hasYearRange() {
+        return fromYear != null || toYear != null;
+    }
+
+    /**
+     * Check if the query has no criterion, so that it matches every media
+     * 
+     * @return true if no criterion filters
+     */
+    public boolean isEmpty() {
+        return !hasTitleTerms() && !hasYearRange() && available == null && type == null && author == null
+                && publisher == null;
+    }
+
+    /**
+     * Check if a media matches every criterion of the query
+     * 
+     * @param media : The media to check
+     * @return true or false if the media matches the query
+     */
+    public boolean matches(Media media) {
+        if (available != null && media.isAvailable() != available) {
+            return false;
+        }
+        if (type != null && MediaType.of(media) != type) {
+            return false;
+        }
+        int year = media.getPublicationDate().getYear();
+        if ((fromYear != null && year < fromYear) || (toYear != null && year > toYear)) {
+            return false;
+        }
+        if (author != null && !matchesAttribute(MediaAttributes.authorOf(media), author)) {
+            return false;
+        }
+        if (publisher != null && !matchesAttribute(MediaAttributes.publisherOf(media), publisher)) {
+            return false;
+        }
+        if (titleTerms != null) {
+            Set<String> titleTokens = new HashSet<>(TitleTokenizer.tokenize(media.getTitle()));
+            return titleTokens.containsAll(TitleTokenizer.tokenize(titleTerms));
+        }
+        return true;
+    }
+
+    private static boolean matchesAttribute(String attribute, String value) {
+        return attribute != null && MediaAttributes.normalize(attribute).equals(MediaAttributes.normalize(value));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MediaQuery[title=%s, years=%s-%s, available=%s, type=%s, author=%s, publisher=%s]",
+                titleTerms, fromYear, toYear, available, type, author, publisher);
+    }
+}
@@ -0,0 +1,34 @@
+package query;
+
+import model.media.Media;
+
+// Class for a media found by a ranked search, with its relevance score. A higher
+// score is a better match; scores are only comparable within the same search
+public class ScoredMedia {
+    private final Media media;
+    private final double score;
+
+    /**
+     * ScoredMedia constructor
+     * 
+     * @param media : The found media
+     * @param score : The relevance score of the media
+     */
+    public ScoredMedia(Media media, double score) {
+        this.media = media;
+        this.score = score;
+    }
+
+    public Media getMedia() {
+        return media;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.2f %s", score, media.getDetails());
+    }
+}
@@ -0,0 +1,184 @@
+package repository;
+
+import exception.LibraryException;
+import model.media.Media;
+import util.LoggerManager;
+import util.StripedLock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+// Group commit of the availability changes of the repository. The callers win
+// their change by compare-and-set on the media, then submit it to the commit
+// group of the media, chosen by ID: the first caller to get the lock of the
+// group writes every change submitted to it so far in a single storage pass,
+// and the changes submitted during that pass are written together by the next
+// one. A change is acknowledged once written. The groups commit independently,
+// so there is no lock common to all the loans; only the storage engine may
+// serialize its own writes, such as the appends to a single journal
+class AvailabilityCommitter {
+    private static final Logger LOGGER = LoggerManager.getLogger(AvailabilityCommitter.class.getName());
+    private final StorageEngine storageEngine;
+    private final StripedLock stripedLock;
+    // The media is still the one of the repository
+    private final Predicate<Media> current;
+    private final CommitGroup[] groups;
+
+    /**
+     * Create a new AvailabilityCommitter
+     *
+     * @param storageEngine : The engine persisting the changes
+     * @param stripedLock   : The locks of the media of the repository
+     * @param current       : The test of a media still held by the repository
+     * @param groupCount    : The number of commit groups
+     */
+    AvailabilityCommitter(StorageEngine storageEngine, StripedLock stripedLock, Predicate<Media> current,
+            int groupCount) {
+        this.storageEngine = storageEngine;
+        this.stripedLock = stripedLock;
+        this.current = current;
+        this.groups = new CommitGroup[groupCount];
+        for (int i = 0; i < groupCount; i++) {
+            groups[i] = new CommitGroup();
+        }
+    }
+
+    /**
+     * Write media whose availability was just changed by compare-and-set, with
+     * the changes submitted by the concurrent callers. The media are written
+     * under their locks and only if they are all still held by the repository;
+     * otherwise, or if the storage pass fails, their change is set back
+     *
+     * @param mediaList         : The changed media
+     * @param expectedAvailable : The availability before the change
+     * @param available         : The availability set
+     * @return true if the change is written, false if a media was replaced or
+     *         deleted meanwhile
+     * @throws LibraryException : If the storage pass fails
+     */
+    boolean commit(List<Media> mediaList, boolean expectedAvailable, boolean available) throws LibraryException {
+        Change change = new Change(mediaList, expectedAvailable, available);
+        CommitGroup group = groupOf(mediaList.get(0).getId());
+        group.submitted.add(change);
+        group.commitLock.lock();
+        try {
+            // Already written by the pass of another caller otherwise
+            if (!change.done) {
+                writeSubmitted(group);
+            }
+        } finally {
+            group.commitLock.unlock();
+        }
+        if (change.failure != null) {
+            throw new LibraryException("Unable to persist the availability of the media: "
+                    + change.failure.getMessage());
+        }
+        return change.written;
+    }
+
+    // Group of a media, spread as the lock stripes are
+    private CommitGroup groupOf(String id) {
+        int hash = id.hashCode();
+        return groups[Math.floorMod(hash ^ (hash >>> 16), groups.length)];
+    }
+
+    // Write the changes submitted to a group in a single storage pass, under the
+    // commit lock of the group. A media changed in two groups, by a bulk change,
+    // is written by their passes one after the other, under its stripe lock
+    private void writeSubmitted(CommitGroup group) {
+        List<Change> changes = new ArrayList<>();
+        for (Change change = group.submitted.poll(); change != null; change = group.submitted.poll()) {
+            changes.add(change);
+        }
+        Set<String> ids = new LinkedHashSet<>();
+        for (Change change : changes) {
+            for (Media media : change.mediaList) {
+                ids.add(media.getId());
+            }
+        }
+
+        List<Lock> locks = stripedLock.lockAll(ids);
+        try {
+            List<Change> accepted = new ArrayList<>(changes.size());
+            Map<String, Media> mediaToWrite = new LinkedHashMap<>();
+            for (Change change : changes) {
+                if (change.mediaList.stream().allMatch(current)) {
+                    accepted.add(change);
+                    for (Media media : change.mediaList) {
+                        mediaToWrite.put(media.getId(), media);
+                    }
+                } else {
+                    // Replaced or deleted meanwhile, the caller makes its change again
+                    change.setBack();
+                    change.done = true;
+                }
+            }
+            if (mediaToWrite.isEmpty()) {
+                return;
+            }
+
+            LibraryException failure = null;
+            try {
+                // The availability is read when the media are written, the last one set
+                storageEngine.applyChanges(mediaToWrite.values(), Collections.emptyList());
+            } catch (LibraryException e) {
+                LOGGER.warning("Unable to persist the availability of the media: " + e.getMessage());
+                failure = e;
+            }
+            // Set back in the reverse order, so a media changed twice gets its first availability
+            for (int i = accepted.size() - 1; i >= 0; i--) {
+                Change change = accepted.get(i);
+                if (failure != null) {
+                    change.setBack();
+                }
+                change.failure = failure;
+                change.written = failure == null;
+                change.done = true;
+            }
+            LOGGER.fine("Availability of " + mediaToWrite.size() + " media written for " + accepted.size()
+                    + " changes");
+        } finally {
+            StripedLock.unlockAll(locks);
+        }
+    }
+
+    // Changes waiting for a pass, with the lock of the caller writing them
+    private static class CommitGroup {
+        private final Queue<Change> submitted = new ConcurrentLinkedQueue<>();
+        private final ReentrantLock commitLock = new ReentrantLock();
+    }
+
+    // Availability change of one caller, its outcome is set under the commit lock
+    // of its group
+    private static class Change {
+        private final List<Media> mediaList;
+        private final boolean expectedAvailable;
+        private final boolean available;
+        private boolean done;
+        private boolean written;
+        private LibraryException failure;
+
+        Change(List<Media> mediaList, boolean expectedAvailable, boolean available) {
+            this.mediaList = mediaList;
+            this.expectedAvailable = expectedAvailable;
+            this.available = available;
+        }
+
+        // Undo the change, unless the media changed again since
+        void setBack() {
+            for (Media media : mediaList) {
+                media.compareAndSetAvailable(available, expectedAvailable);
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package repository;
+
+import exception.LibraryException;
+import model.media.Media;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Storage engine with the binary format of MediaCodec: every change is appended
+// to the journal and the journal is merged into the snapshot (streamed or
+// memory-mapped) by checkpoints
+public class BinaryFileStorageEngine implements StorageEngine {
+    private final FileStorageManager storageManager;
+    private final FileStorageManager.SnapshotMode snapshotMode;
+    // Current state of the catalog, written by checkpoints
+    private final Map<String, Media> mediaMap = new LinkedHashMap<>();
+
+    /**
+     * Create a new BinaryFileStorageEngine
+     * 
+     * @param snapshotMode : The format of the snapshot file
+     */
+    public BinaryFileStorageEngine(FileStorageManager.SnapshotMode snapshotMode) {
+        this(FileStorageManager.getInstance(), snapshotMode);
+    }
+
+    /**
+     * Create a new BinaryFileStorageEngine on the files of a storage manager
+     * 
+     * @param storageManager : The manager of the data files
+     * @param snapshotMode   : The format of the snapshot file
+     */
+    BinaryFileStorageEngine(FileStorageManager storageManager, FileStorageManager.SnapshotMode snapshotMode) {
+        this.storageManager = storageManager;
+        this.snapshotMode = snapshotMode;
+    }
+
+    @Override
+    public synchronized List<Media> load() throws LibraryException {
+        storageManager.setSnapshotMode(snapshotMode);
+        List<Media> mediaList = storageManager.loadMedia();
+        mediaMap.clear();
+        for (Media media : mediaList) {
+            mediaMap.put(media.getId(), media);
+        }
+        return mediaList;
+    }
+
+    @Override
+    public synchronized void persist(Media media) throws LibraryException {
+        // The state changes only once the change is in the journal
+        storageManager.appendPut(media);
+        mediaMap.put(media.getId(), media);
+        checkpointIfNeeded();
+    }
+
+    @Override
+    public synchronized void persistAll(Collection<Media> mediaList) throws LibraryException {
+        applyChanges(mediaList, Collections.emptyList());
+    }
+
+    @Override
+    public synchronized void applyChanges(Collection<Media> mediaList, Collection<String> deletedIds)
+            throws LibraryException {
+        // One journal record for the whole batch, written before the state changes
+        storageManager.appendBatch(mediaList, deletedIds);
+        for (Media media : mediaList) {
+            mediaMap.put(media.getId(), media);
+        }
+        for (String id : deletedIds) {
+            mediaMap.remove(id);
+        }
+        checkpointIfNeeded();
+    }
+
+    @Override
+    public synchronized void delete(String id) throws LibraryException {
+        storageManager.appendDelete(id);
+        mediaMap.remove(id);
+        checkpointIfNeeded();
+    }
+
+    @Override
+    public synchronized void flush() throws LibraryException {
+        storageManager.checkpoint(mediaMap);
+    }
+
+    @Override
+    public synchronized void close() throws LibraryException {
+        // Merge the journal so that the next start does not replay it
+        flush();
+    }
+
+    @Override
+    public String getName() {
+        return snapshotMode == FileStorageManager.SnapshotMode.MAPPED ? "mapped" : "binary";
+    }
+
+    // Merge the journal into the snapshot once it grows past the threshold
+    private void checkpointIfNeeded() throws LibraryException {
+        if (storageManager.needsCheckpoint()) {
+            storageManager.checkpoint(mediaMap);
+        }
+    }
+}
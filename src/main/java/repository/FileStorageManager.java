@@ -1,24 +1,68 @@
 package repository;
 
 import exception.LibraryException;
+import model.media.Book;
+import model.media.Magazine;
 import model.media.Media;
+import model.media.MediaCollection;
 import util.LoggerManager;
 import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Logger;
 
 // Class for storage of media data management.
+// The snapshot file holds the whole catalog, while every mutation is appended to
+// the journal file as a single record; a batch of changes is a single record
+// too, so that it is replayed whole or not at all. A checkpoint merges the journal into the
+// snapshot and truncates the journal. The snapshot is either a binary stream
+// (media.dat) or a memory-mapped file (media.map).
 public class FileStorageManager {
     private static final Logger LOGGER = LoggerManager.getLogger(FileStorageManager.class.getName());
     private static final String DATA_DIRECTORY = "data";
-    private static final String MEDIA_FILE = DATA_DIRECTORY + File.separator + "media.dat";
+    private static final byte JOURNAL_SERIALIZED_PUT = 1;
+    private static final byte JOURNAL_DELETE = 2;
+    private static final byte JOURNAL_PUT = 3;
+    private static final byte JOURNAL_BATCH = 4;
+    private static final int CHECKPOINT_THRESHOLD = 1000;
     private static FileStorageManager instance;
+    private final String mediaPath;
+    private final String mappedPath;
+    private final String segmentDirectory;
+    private final String journalPath;
+    private SnapshotMode snapshotMode = SnapshotMode.STREAM;
+    private int journalEntries;
+
+    // Format of the snapshot file
+    public enum SnapshotMode {
+        STREAM, MAPPED
+    }
 
     private FileStorageManager() {
+        this(new File(DATA_DIRECTORY));
+    }
+
+    /**
+     * FileStorageManager constructor on another data directory than the one of
+     * the application, for tests
+     *
+     * @param dataDir : The directory of the data files
+     */
+    FileStorageManager(File dataDir) {
+        this.mediaPath = new File(dataDir, "media.dat").getPath();
+        this.mappedPath = new File(dataDir, "media.map").getPath();
+        this.segmentDirectory = new File(dataDir, "segments").getPath();
+        this.journalPath = new File(dataDir, "media.journal").getPath();
         // Create the data directory if it doesn't exist
-        File dataDir = new File(DATA_DIRECTORY);
         if (!dataDir.exists()) {
             if (dataDir.mkdir()) {
                 LOGGER.info("Data directory created successfully: " + dataDir.getAbsolutePath());
@@ -36,34 +80,534 @@ public class FileStorageManager {
         return instance;
     }
 
-    // Save media to file
-    public void saveMedia(Map<String, Media> mediaMap) throws LibraryException {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(MEDIA_FILE))) {
-            oos.writeObject(new ArrayList<>(mediaMap.values()));
-            LOGGER.info("Media saved to file: " + MEDIA_FILE);
+    /**
+     * Set the format of the snapshot file, to be called before the media are
+     * loaded
+     * 
+     * @param snapshotMode : The snapshot format
+     */
+    public synchronized void setSnapshotMode(SnapshotMode snapshotMode) {
+        this.snapshotMode = snapshotMode;
+        LOGGER.info("Snapshot mode set to: " + snapshotMode);
+    }
+
+    /**
+     * Get the format of the snapshot file
+     * 
+     * @return the snapshot format
+     */
+    public synchronized SnapshotMode getSnapshotMode() {
+        return snapshotMode;
+    }
+
+    // Save media to file in the format of the snapshot mode. The snapshot is
+    // written to a temporary file, synced and moved over the previous one, so
+    // that a crash leaves either the old or the new snapshot. The file of the
+    // other format is removed so that it can't be loaded with a stale content
+    public synchronized void saveMedia(Map<String, Media> mediaMap) throws LibraryException {
+        File mappedFile = new File(mappedPath);
+        File streamFile = new File(mediaPath);
+        try {
+            if (snapshotMode == SnapshotMode.MAPPED) {
+                MappedMediaStore.write(mappedFile, mediaMap.values());
+                Files.deleteIfExists(streamFile.toPath());
+                LOGGER.info("Media saved to file: " + mappedPath);
+            } else {
+                File tempFile = new File(mediaPath + ".tmp");
+                try (FileOutputStream fos = new FileOutputStream(tempFile)) {
+                    DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(fos));
+                    MediaCodec.writeCatalog(dos, mediaMap.values());
+                    dos.flush();
+                    fos.getFD().sync();
+                }
+                replaceFile(tempFile, streamFile);
+                Files.deleteIfExists(mappedFile.toPath());
+                LOGGER.info("Media saved to file: " + mediaPath);
+            }
         } catch (IOException e) {
             LOGGER.severe("Error saving media to file: " + e.getMessage());
             throw new LibraryException("Error saving media to file: " + e.getMessage());
         }
     }
 
-    // Load media from file
+    // Load media from file, replaying the journal on top of the snapshot
+    public synchronized List<Media> loadMedia() throws LibraryException {
+        Map<String, Media> mediaMap = new LinkedHashMap<>();
+        File mappedFile = new File(mappedPath);
+        File streamFile = new File(mediaPath);
+        boolean mapped = mappedFile.exists() && (snapshotMode == SnapshotMode.MAPPED || !streamFile.exists());
+
+        if (mapped) {
+            try {
+                MappedMediaStore.read(mappedFile, mediaMap);
+                LOGGER.info("Media mapped from file: " + mappedPath + ", number of media: " + mediaMap.size());
+            } catch (IOException e) {
+                LOGGER.severe("Error loading media from file: " + e.getMessage());
+                throw new LibraryException("Error loading media from file: " + e.getMessage());
+            }
+        } else if (!streamFile.exists()) {
+            LOGGER.info("Media file not found, a new file will be created on first save.");
+        } else {
+            try (DataInputStream dis = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(streamFile)))) {
+                dis.mark(4);
+                int magic = dis.readInt();
+                dis.reset();
+                if (magic == MediaCodec.MAGIC) {
+                    MediaCodec.readCatalog(dis, mediaMap);
+                } else {
+                    readSerializedMedia(dis, mediaMap);
+                }
+                LOGGER.info("Media uploaded from files: " + mediaPath + ", number of media: " + mediaMap.size());
+            } catch (IOException | ClassNotFoundException e) {
+                LOGGER.severe("Error loading media from file: " + e.getMessage());
+                throw new LibraryException("Error loading media from file: " + e.getMessage());
+            }
+        }
+
+        replayJournal(mediaMap);
+        return new ArrayList<>(mediaMap.values());
+    }
+
+    // Read a list of media written with Java serialization. A media.dat written
+    // this way, by previous versions or by the serialization engine, is
+    // rewritten in the binary format at the next checkpoint of a binary engine
     @SuppressWarnings("unchecked")
     // Annotation: SuppressWarnings
-    public List<Media> loadMedia() throws LibraryException {
-        File file = new File(MEDIA_FILE);
-        if (!file.exists()) {
-            LOGGER.info("Media file not found, a new file will be created on first save.");
-            return new ArrayList<>();
+    private void readSerializedMedia(InputStream in, Map<String, Media> mediaMap)
+            throws IOException, ClassNotFoundException {
+        ObjectInputStream ois = new LegacyObjectInputStream(in);
+        List<Media> mediaList = (List<Media>) ois.readObject();
+        for (Media media : mediaList) {
+            mediaMap.put(media.getId(), media);
+        }
+    }
+
+    /**
+     * Save media to the snapshot file with Java serialization, rewriting the
+     * whole file. The file is read back by loadMedia, which recognizes both
+     * formats; the journal is truncated since the snapshot holds its changes
+     * 
+     * @param mediaList : The media to save
+     * @throws LibraryException : If the file cannot be written
+     */
+    public synchronized void saveSerializedMedia(Collection<Media> mediaList) throws LibraryException {
+        File streamFile = new File(mediaPath);
+        File tempFile = new File(mediaPath + ".tmp");
+        try {
+            try (FileOutputStream fos = new FileOutputStream(tempFile)) {
+                ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(fos));
+                oos.writeObject(new ArrayList<>(mediaList));
+                oos.flush();
+                fos.getFD().sync();
+            }
+            replaceFile(tempFile, streamFile);
+            Files.deleteIfExists(new File(mappedPath).toPath());
+            LOGGER.info("Media saved to file: " + mediaPath);
+        } catch (IOException e) {
+            LOGGER.severe("Error saving media to file: " + e.getMessage());
+            throw new LibraryException("Error saving media to file: " + e.getMessage());
+        }
+        if (new File(journalPath).length() > 0) {
+            truncateJournal();
+        }
+    }
+
+    /**
+     * Write a segment file of the segmented storage, replacing its content
+     * 
+     * @param segment   : The segment number
+     * @param mediaList : The media of the segment
+     * @throws LibraryException : If the segment cannot be written
+     */
+    public void saveSegment(int segment, Collection<Media> mediaList) throws LibraryException {
+        File segmentFile = getSegmentFile(segment);
+        File tempFile = new File(segmentFile.getPath() + ".tmp");
+        try {
+            Files.createDirectories(segmentFile.getParentFile().toPath());
+            try (FileOutputStream fos = new FileOutputStream(tempFile)) {
+                DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(fos));
+                MediaCodec.writeCatalog(dos, mediaList);
+                dos.flush();
+                fos.getFD().sync();
+            }
+            replaceFile(tempFile, segmentFile);
+            LOGGER.fine("Media saved to segment file: " + segmentFile.getPath());
+        } catch (IOException e) {
+            LOGGER.severe("Error saving media to segment file: " + e.getMessage());
+            throw new LibraryException("Error saving media to segment file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Read a segment file of the segmented storage
+     * 
+     * @param segment : The segment number
+     * @param catalog : The map to fill with the media, by ID
+     * @throws LibraryException : If the segment cannot be read
+     */
+    public void loadSegment(int segment, Map<String, Media> catalog) throws LibraryException {
+        File segmentFile = getSegmentFile(segment);
+        if (!segmentFile.exists()) {
+            return;
+        }
+        try (DataInputStream dis = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(segmentFile)))) {
+            MediaCodec.readCatalog(dis, catalog);
+        } catch (IOException e) {
+            LOGGER.severe("Error loading media from segment file: " + e.getMessage());
+            throw new LibraryException("Error loading media from segment file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get the numbers of the existing segment files
+     * 
+     * @return the sorted segment numbers
+     */
+    public List<Integer> listSegments() {
+        List<Integer> segments = new ArrayList<>();
+        File[] files = new File(segmentDirectory).listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.startsWith("segment-") && name.endsWith(".dat")) {
+                    try {
+                        segments.add(Integer.parseInt(name.substring(8, name.length() - 4)));
+                    } catch (NumberFormatException e) {
+                        LOGGER.warning("Ignoring unexpected segment file: " + name);
+                    }
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    /**
+     * Delete a segment file of the segmented storage
+     * 
+     * @param segment : The segment number
+     * @throws LibraryException : If the segment cannot be deleted
+     */
+    public void deleteSegment(int segment) throws LibraryException {
+        try {
+            Files.deleteIfExists(getSegmentFile(segment).toPath());
+        } catch (IOException e) {
+            throw new LibraryException("Error deleting segment file: " + e.getMessage());
+        }
+    }
+
+    private File getSegmentFile(int segment) {
+        return new File(segmentDirectory, String.format("segment-%03d.dat", segment));
+    }
+
+    /**
+     * Append a saved or updated media to the journal
+     *
+     * @param media : The media to append
+     * @throws LibraryException : If the journal cannot be written
+     */
+    public synchronized void appendPut(Media media) throws LibraryException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        try (DataOutputStream dos = new DataOutputStream(payload)) {
+            MediaCodec.encode(dos, media);
+        } catch (IOException e) {
+            LOGGER.severe("Error encoding media for the journal: " + e.getMessage());
+            throw new LibraryException("Error encoding media for the journal: " + e.getMessage());
         }
+        appendRecord(JOURNAL_PUT, payload.toByteArray(), 1);
+    }
 
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
-            List<Media> mediaList = (List<Media>) ois.readObject();
-            LOGGER.info("Media uploaded from files: " + MEDIA_FILE + ", number of media: " + mediaList.size());
-            return mediaList;
+    /**
+     * Append a batch of saved, updated and deleted media to the journal, as one
+     * record
+     *
+     * @param mediaList  : The saved or updated media
+     * @param deletedIds : The IDs of the deleted media
+     * @throws LibraryException : If the journal cannot be written
+     */
+    public synchronized void appendBatch(Collection<Media> mediaList, Collection<String> deletedIds)
+            throws LibraryException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        try (DataOutputStream dos = new DataOutputStream(payload)) {
+            dos.writeInt(mediaList.size());
+            for (Media media : mediaList) {
+                MediaCodec.encode(dos, media);
+            }
+            dos.writeInt(deletedIds.size());
+            for (String mediaId : deletedIds) {
+                dos.writeUTF(mediaId);
+            }
+        } catch (IOException e) {
+            LOGGER.severe("Error encoding media batch for the journal: " + e.getMessage());
+            throw new LibraryException("Error encoding media batch for the journal: " + e.getMessage());
+        }
+        appendRecord(JOURNAL_BATCH, payload.toByteArray(), mediaList.size() + deletedIds.size());
+    }
+
+    /**
+     * Append a deleted media to the journal
+     *
+     * @param mediaId : The ID of the deleted media
+     * @throws LibraryException : If the journal cannot be written
+     */
+    public synchronized void appendDelete(String mediaId) throws LibraryException {
+        try {
+            appendRecord(JOURNAL_DELETE, mediaId.getBytes("UTF-8"), 1);
+        } catch (UnsupportedEncodingException e) {
+            throw new LibraryException("Error encoding media id for the journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Verify if the journal is long enough to be merged into the snapshot
+     *
+     * @return true or false if a checkpoint should be taken
+     */
+    public synchronized boolean needsCheckpoint() {
+        return journalEntries >= CHECKPOINT_THRESHOLD;
+    }
+
+    /**
+     * Merge the journal into the snapshot: write the full snapshot and truncate
+     * the journal. The journal is truncated only once the new snapshot is on
+     * disk; a crash in between replays the journal on the new snapshot again,
+     * which gives the same catalog
+     *
+     * @param mediaMap : The current state of the catalog
+     * @throws LibraryException : If the snapshot or the journal cannot be written
+     */
+    public synchronized void checkpoint(Map<String, Media> mediaMap) throws LibraryException {
+        saveMedia(mediaMap);
+        truncateJournal();
+        LOGGER.info("Checkpoint completed, journal truncated: " + journalPath);
+    }
+
+    // Empty the journal, once its changes are in the snapshot
+    private void truncateJournal() throws LibraryException {
+        try (RandomAccessFile raf = new RandomAccessFile(journalPath, "rw")) {
+            raf.setLength(0);
+            raf.getFD().sync();
+            journalEntries = 0;
+        } catch (IOException e) {
+            LOGGER.severe("Error truncating the journal: " + e.getMessage());
+            throw new LibraryException("Error truncating the journal: " + e.getMessage());
+        }
+    }
+
+    // Append a single record (operation, length, payload) to the journal, holding
+    // the given number of changes. The record is synced to the disk before the
+    // change is acknowledged
+    private void appendRecord(byte operation, byte[] payload, int changes) throws LibraryException {
+        try (FileOutputStream fos = new FileOutputStream(journalPath, true)) {
+            DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(fos));
+            dos.writeByte(operation);
+            dos.writeInt(payload.length);
+            dos.write(payload);
+            dos.flush();
+            fos.getFD().sync();
+            journalEntries += changes;
+        } catch (IOException e) {
+            LOGGER.severe("Error appending to the journal: " + e.getMessage());
+            throw new LibraryException("Error appending to the journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replace a file by a complete temporary file, atomically where the file
+     * system allows it
+     *
+     * @param tempFile : The new content, already synced
+     * @param target   : The file to replace
+     * @throws IOException : If the file cannot be moved
+     */
+    static void replaceFile(File tempFile, File target) throws IOException {
+        try {
+            Files.move(tempFile.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Apply the journal records to the snapshot content, dropping a torn last
+    // record left by an interrupted write
+    private void replayJournal(Map<String, Media> mediaMap) throws LibraryException {
+        File journal = new File(journalPath);
+        journalEntries = 0;
+        if (!journal.exists()) {
+            return;
+        }
+
+        long validLength = 0;
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(journal)))) {
+            while (true) {
+                byte operation;
+                byte[] payload;
+                try {
+                    operation = dis.readByte();
+                    payload = new byte[dis.readInt()];
+                    dis.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+
+                int changes = 1;
+                if (operation == JOURNAL_PUT) {
+                    Media media = MediaCodec.decode(new DataInputStream(new ByteArrayInputStream(payload)));
+                    mediaMap.put(media.getId(), media);
+                } else if (operation == JOURNAL_SERIALIZED_PUT) {
+                    // Record written with Java serialization by previous versions
+                    try (ObjectInputStream ois = new LegacyObjectInputStream(new ByteArrayInputStream(payload))) {
+                        Media media = (Media) ois.readObject();
+                        mediaMap.put(media.getId(), media);
+                    }
+                } else if (operation == JOURNAL_DELETE) {
+                    mediaMap.remove(new String(payload, "UTF-8"));
+                } else if (operation == JOURNAL_BATCH) {
+                    DataInputStream batch = new DataInputStream(new ByteArrayInputStream(payload));
+                    int puts = batch.readInt();
+                    for (int i = 0; i < puts; i++) {
+                        Media media = MediaCodec.decode(batch);
+                        mediaMap.put(media.getId(), media);
+                    }
+                    int deletions = batch.readInt();
+                    for (int i = 0; i < deletions; i++) {
+                        mediaMap.remove(batch.readUTF());
+                    }
+                    changes = puts + deletions;
+                } else {
+                    LOGGER.warning("Unknown journal operation: " + operation + ", replay stopped");
+                    break;
+                }
+                validLength += 5 + payload.length;
+                journalEntries += changes;
+            }
         } catch (IOException | ClassNotFoundException e) {
-            LOGGER.severe("Error loading media from file: " + e.getMessage());
-            throw new LibraryException("Error loading media from file: " + e.getMessage());
+            LOGGER.severe("Error replaying the journal: " + e.getMessage());
+            throw new LibraryException("Error replaying the journal: " + e.getMessage());
+        }
+
+        if (validLength < journal.length()) {
+            LOGGER.warning("Truncating incomplete journal record at offset " + validLength);
+            try (RandomAccessFile raf = new RandomAccessFile(journal, "rw")) {
+                raf.setLength(validLength);
+            } catch (IOException e) {
+                throw new LibraryException("Error truncating the journal: " + e.getMessage());
+            }
+        }
+        LOGGER.info("Journal replayed: " + journalPath + ", number of records: " + journalEntries);
+    }
+
+    // Object stream that reads the media serialized by previous versions: the
+    // availability was a boolean before the compare-and-set of the loans, and
+    // the members of a collection were written inside it before the member IDs.
+    // Such a stream keeps the serialVersionUID of the class, so its descriptor
+    // is replaced by the one of a class with the same fields, resolved to the
+    // current media once read
+    private static class LegacyObjectInputStream extends ObjectInputStream {
+
+        LegacyObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+            ObjectStreamClass descriptor = super.readClassDescriptor();
+            if (descriptor.getName().equals(MediaCollection.class.getName())
+                    && descriptor.getField("mediaItems") != null) {
+                return ObjectStreamClass.lookup(LegacyMediaCollection.class);
+            }
+            ObjectStreamField available = descriptor.getField("available");
+            if (available == null || available.getType() != boolean.class) {
+                return descriptor;
+            }
+            if (descriptor.getName().equals(Book.class.getName())) {
+                return ObjectStreamClass.lookup(LegacyBook.class);
+            } else if (descriptor.getName().equals(Magazine.class.getName())) {
+                return ObjectStreamClass.lookup(LegacyMagazine.class);
+            } else if (descriptor.getName().equals(MediaCollection.class.getName())) {
+                return ObjectStreamClass.lookup(LegacyMediaIdCollection.class);
+            }
+            return descriptor;
+        }
+    }
+
+    // Serialized form of Book in previous versions
+    private static class LegacyBook implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private String id;
+        private String title;
+        private String author;
+        private LocalDate publicationDate;
+        private String publisher;
+        private int pages;
+        private boolean available;
+
+        private Object readResolve() {
+            Book book = new Book(id, title, author, publicationDate, publisher, pages);
+            book.setAvailable(available);
+            return book;
+        }
+    }
+
+    // Serialized form of Magazine in previous versions
+    private static class LegacyMagazine implements Serializable {
+        private static final long serialVersionUID = 2L;
+        private String id;
+        private String title;
+        private LocalDate publicationDate;
+        private String publisher;
+        private int issue;
+        private boolean available;
+
+        private Object readResolve() {
+            Magazine magazine = new Magazine(id, title, publicationDate, publisher, issue);
+            magazine.setAvailable(available);
+            return magazine;
+        }
+    }
+
+    // Serialized form of MediaCollection in previous versions, replaced by a
+    // MediaCollection holding the member IDs once read
+    private static class LegacyMediaCollection implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private String id;
+        private String title;
+        private LocalDate creationDate;
+        private boolean available;
+        private List<Media> mediaItems;
+
+        private Object readResolve() {
+            MediaCollection collection = new MediaCollection(id, title, creationDate);
+            if (!available) {
+                collection.setAvailable(false);
+            }
+            for (Media media : mediaItems) {
+                collection.addMedia(media);
+            }
+            return collection;
+        }
+    }
+
+    // Serialized form of MediaCollection with the member IDs, before the
+    // compare-and-set of the loans
+    private static class LegacyMediaIdCollection implements Serializable {
+        private static final long serialVersionUID = 3L;
+        private String id;
+        private String title;
+        private LocalDate creationDate;
+        private boolean available;
+        private Set<String> mediaIds;
+
+        private Object readResolve() {
+            MediaCollection collection = new MediaCollection(id, title, creationDate);
+            // Availability set before the members, so it does not cascade to them
+            collection.setAvailable(available);
+            for (String mediaId : mediaIds) {
+                collection.addMediaId(mediaId);
+            }
+            return collection;
         }
     }
-}
\ No newline at end of file
+}
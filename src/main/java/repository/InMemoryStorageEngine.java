@@ -0,0 +1,55 @@
+package repository;
+
+import model.media.Media;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Storage engine without persistence, the media live only in the repository
+// memory (useful for tests and benchmarks)
+public class InMemoryStorageEngine implements StorageEngine {
+
+    @Override
+    public List<Media> load() {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public void persist(Media media) {
+        // Nothing to persist
+    }
+
+    @Override
+    public void persistAll(Collection<Media> mediaList) {
+        // Nothing to persist
+    }
+
+    @Override
+    public void applyChanges(Collection<Media> mediaList, Collection<String> deletedIds) {
+        // Through the single operations, which subclasses may observe
+        persistAll(mediaList);
+        for (String id : deletedIds) {
+            delete(id);
+        }
+    }
+
+    @Override
+    public void delete(String id) {
+        // Nothing to delete
+    }
+
+    @Override
+    public void flush() {
+        // Nothing to flush
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+
+    @Override
+    public String getName() {
+        return "memory";
+    }
+}
@@ -0,0 +1,245 @@
+package repository;
+
+import model.media.Book;
+import model.media.Magazine;
+import model.media.Media;
+import model.media.MediaCollection;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Memory-mapped snapshot of the catalog.
+// Layout: a header, one fixed-width slot per media and a string heap. A slot
+// holds the type, the availability flag, the epoch day, the pages, issue or
+// member count, and heap offsets of the id, title, author, publisher and member
+// list. Equal strings (publishers, authors, member ids) are stored once in the heap.
+public final class MappedMediaStore {
+    private static final int MAGIC = 0x4C4D534D;
+    private static final byte FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int SLOT_SIZE = 32;
+    private static final int NO_REFERENCE = -1;
+    private static final byte TYPE_BOOK = 1;
+    private static final byte TYPE_MAGAZINE = 2;
+    private static final byte TYPE_COLLECTION = 3;
+
+    // Private constructor to avoid instantiation
+    private MappedMediaStore() {
+    }
+
+    /**
+     * Write the catalog to a mapped file. The file is written next to the target
+     * and moved over it once complete
+     *
+     * @param file      : The target file
+     * @param mediaList : The media to write
+     * @throws IOException : If the file cannot be written
+     */
+    public static void write(File file, Collection<Media> mediaList) throws IOException {
+        HeapWriter heap = new HeapWriter();
+        ByteBuffer slots = ByteBuffer.allocate(mediaList.size() * SLOT_SIZE);
+
+        for (Media media : mediaList) {
+            int authorRef = NO_REFERENCE;
+            int publisherRef = NO_REFERENCE;
+            int membersRef = NO_REFERENCE;
+            int number;
+            byte type;
+            if (media instanceof Book) {
+                Book book = (Book) media;
+                type = TYPE_BOOK;
+                authorRef = heap.putString(book.getAuthor());
+                publisherRef = heap.putString(book.getPublisher());
+                number = book.getPages();
+            } else if (media instanceof Magazine) {
+                Magazine magazine = (Magazine) media;
+                type = TYPE_MAGAZINE;
+                publisherRef = heap.putString(magazine.getPublisher());
+                number = magazine.getIssue();
+            } else if (media instanceof MediaCollection) {
+                List<String> mediaIds = ((MediaCollection) media).getMediaIds();
+                type = TYPE_COLLECTION;
+                number = mediaIds.size();
+                int[] memberRefs = new int[mediaIds.size()];
+                for (int i = 0; i < memberRefs.length; i++) {
+                    memberRefs[i] = heap.putString(mediaIds.get(i));
+                }
+                membersRef = heap.putReferences(memberRefs);
+            } else {
+                throw new IOException("Unsupported media type: " + media.getClass().getName());
+            }
+
+            slots.put(type);
+            slots.put((byte) (media.isAvailable() ? 1 : 0));
+            slots.putShort((short) 0);
+            slots.putInt((int) media.getPublicationDate().toEpochDay());
+            slots.putInt(number);
+            slots.putInt(heap.putString(media.getId()));
+            slots.putInt(heap.putString(media.getTitle()));
+            slots.putInt(authorRef);
+            slots.putInt(publisherRef);
+            slots.putInt(membersRef);
+        }
+
+        long size = HEADER_SIZE + (long) slots.capacity() + heap.size();
+        File tempFile = new File(file.getPath() + ".tmp");
+        try (RandomAccessFile raf = new RandomAccessFile(tempFile, "rw");
+                FileChannel channel = raf.getChannel()) {
+            raf.setLength(size);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC);
+            buffer.put(FORMAT_VERSION);
+            buffer.put(new byte[3]);
+            buffer.putInt(mediaList.size());
+            buffer.putInt(slots.capacity());
+            buffer.put(slots.array());
+            buffer.put(heap.array(), 0, heap.size());
+            buffer.force();
+        }
+        FileStorageManager.replaceFile(tempFile, file);
+    }
+
+    /**
+     * Map the file and build a media from each slot. Every slot is decoded at
+     * load, since the repository indexes the title, author, publisher and date
+     * of every media anyway: the mapping saves the stream parsing, and a string
+     * shared by several slots is decoded once
+     *
+     * @param file    : The file to read
+     * @param catalog : The map to fill with the media, by ID
+     * @throws IOException : If the file cannot be mapped or is malformed
+     */
+    public static void read(File file, Map<String, Media> catalog) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                FileChannel channel = raf.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a mapped media file: " + file.getPath());
+            }
+            if (buffer.get(4) != FORMAT_VERSION) {
+                throw new IOException("Unsupported mapped media format version: " + buffer.get(4));
+            }
+            int slotCount = buffer.getInt(8);
+            int heapStart = HEADER_SIZE + buffer.getInt(12);
+            Map<Integer, String> strings = new HashMap<>();
+
+            for (int i = 0; i < slotCount; i++) {
+                int slot = HEADER_SIZE + i * SLOT_SIZE;
+                byte type = buffer.get(slot);
+                boolean available = buffer.get(slot + 1) == 1;
+                LocalDate publicationDate = LocalDate.ofEpochDay(buffer.getInt(slot + 4));
+                int number = buffer.getInt(slot + 8);
+                String id = readString(buffer, heapStart, buffer.getInt(slot + 12), strings);
+                String title = readString(buffer, heapStart, buffer.getInt(slot + 16), strings);
+
+                Media media;
+                switch (type) {
+                    case TYPE_BOOK:
+                        media = new Book(id, title, readString(buffer, heapStart, buffer.getInt(slot + 20), strings),
+                                publicationDate, readString(buffer, heapStart, buffer.getInt(slot + 24), strings),
+                                number);
+                        media.setAvailable(available);
+                        break;
+                    case TYPE_MAGAZINE:
+                        media = new Magazine(id, title, publicationDate,
+                                readString(buffer, heapStart, buffer.getInt(slot + 24), strings), number);
+                        media.setAvailable(available);
+                        break;
+                    case TYPE_COLLECTION:
+                        MediaCollection collection = new MediaCollection(id, title, publicationDate);
+                        if (!available) {
+                            collection.setAvailable(false);
+                        }
+                        int membersRef = heapStart + buffer.getInt(slot + 28);
+                        for (int m = 0; m < number; m++) {
+                            collection.addMediaId(
+                                    readString(buffer, heapStart, buffer.getInt(membersRef + 4 + m * 4), strings));
+                        }
+                        media = collection;
+                        break;
+                    default:
+                        throw new IOException("Unknown media slot type: " + type + " at slot " + i);
+                }
+                catalog.put(id, media);
+            }
+        }
+    }
+
+    // Decode a string of the heap, shared strings are decoded once
+    private static String readString(ByteBuffer buffer, int heapStart, int reference, Map<Integer, String> strings) {
+        if (reference == NO_REFERENCE) {
+            return null;
+        }
+        String value = strings.get(reference);
+        if (value == null) {
+            int position = heapStart + reference;
+            int length = buffer.getInt(position);
+            byte[] bytes = new byte[length];
+            ByteBuffer view = buffer.duplicate();
+            view.position(position + 4);
+            view.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+            strings.put(reference, value);
+        }
+        return value;
+    }
+
+    // Growable string heap with de-duplication of equal strings
+    private static class HeapWriter {
+        private final Map<String, Integer> offsets = new HashMap<>();
+        private ByteBuffer heap = ByteBuffer.allocate(4096);
+
+        int putString(String value) {
+            if (value == null) {
+                return NO_REFERENCE;
+            }
+            Integer offset = offsets.get(value);
+            if (offset != null) {
+                return offset;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            ensureCapacity(4 + bytes.length);
+            int position = heap.position();
+            heap.putInt(bytes.length);
+            heap.put(bytes);
+            offsets.put(value, position);
+            return position;
+        }
+
+        int putReferences(int[] references) {
+            ensureCapacity(4 + references.length * 4);
+            int position = heap.position();
+            heap.putInt(references.length);
+            for (int reference : references) {
+                heap.putInt(reference);
+            }
+            return position;
+        }
+
+        int size() {
+            return heap.position();
+        }
+
+        byte[] array() {
+            return heap.array();
+        }
+
+        private void ensureCapacity(int needed) {
+            if (heap.remaining() < needed) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(heap.capacity() * 2, heap.position() + needed));
+                heap.flip();
+                larger.put(heap);
+                heap = larger;
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package repository;
+
+import model.media.Book;
+import model.media.Magazine;
+import model.media.Media;
+import model.media.MediaCollection;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Hand-written binary codec for media records, replacing Java serialization.
+// Layout of a record: type tag, then the fields of the concrete type in a fixed
+// order. Strings are length-prefixed UTF-8 (length -1 for null) and dates are
+// stored as epoch days. Collection members are written as ids.
+public final class MediaCodec {
+    public static final int MAGIC = 0x4C4D5331;
+    public static final byte FORMAT_VERSION = 1;
+    private static final byte TYPE_BOOK = 1;
+    private static final byte TYPE_MAGAZINE = 2;
+    private static final byte TYPE_COLLECTION = 3;
+
+    // Private constructor to avoid instantiation
+    private MediaCodec() {
+    }
+
+    /**
+     * Write the file header (magic number and format version)
+     *
+     * @param out : The output to write to
+     * @throws IOException : If the header cannot be written
+     */
+    public static void writeHeader(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(FORMAT_VERSION);
+    }
+
+    /**
+     * Read and verify the file header
+     *
+     * @param in : The input to read from
+     * @throws IOException : If the header is missing or the version is not
+     *                     supported
+     */
+    public static void readHeader(DataInput in) throws IOException {
+        int magic = in.readInt();
+        if (magic != MAGIC) {
+            throw new IOException("Not a media binary file, magic number: " + Integer.toHexString(magic));
+        }
+        byte version = in.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported media format version: " + version);
+        }
+    }
+
+    /**
+     * Write a whole catalog: header, number of records and records
+     *
+     * @param out       : The output to write to
+     * @param mediaList : The media to write
+     * @throws IOException : If the catalog cannot be written
+     */
+    public static void writeCatalog(DataOutput out, Collection<Media> mediaList) throws IOException {
+        writeHeader(out);
+        out.writeInt(mediaList.size());
+        for (Media media : mediaList) {
+            encode(out, media);
+        }
+    }
+
+    /**
+     * Read a whole catalog written by writeCatalog
+     *
+     * @param in      : The input to read from
+     * @param catalog : The map to fill with the decoded media, by ID
+     * @throws IOException : If the catalog cannot be read
+     */
+    public static void readCatalog(DataInput in, Map<String, Media> catalog) throws IOException {
+        readHeader(in);
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            Media media = decode(in);
+            catalog.put(media.getId(), media);
+        }
+    }
+
+    /**
+     * Encode a single media record
+     *
+     * @param out   : The output to write to
+     * @param media : The media to encode
+     * @throws IOException : If the media type is not supported or the record
+     *                     cannot be written
+     */
+    public static void encode(DataOutput out, Media media) throws IOException {
+        if (media instanceof Book) {
+            Book book = (Book) media;
+            out.writeByte(TYPE_BOOK);
+            writeString(out, book.getId());
+            writeString(out, book.getTitle());
+            writeString(out, book.getAuthor());
+            writeDate(out, book.getPublicationDate());
+            writeString(out, book.getPublisher());
+            out.writeInt(book.getPages());
+            out.writeBoolean(book.isAvailable());
+        } else if (media instanceof Magazine) {
+            Magazine magazine = (Magazine) media;
+            out.writeByte(TYPE_MAGAZINE);
+            writeString(out, magazine.getId());
+            writeString(out, magazine.getTitle());
+            writeDate(out, magazine.getPublicationDate());
+            writeString(out, magazine.getPublisher());
+            out.writeInt(magazine.getIssue());
+            out.writeBoolean(magazine.isAvailable());
+        } else if (media instanceof MediaCollection) {
+            MediaCollection collection = (MediaCollection) media;
+            out.writeByte(TYPE_COLLECTION);
+            writeString(out, collection.getId());
+            writeString(out, collection.getTitle());
+            writeDate(out, collection.getPublicationDate());
+            out.writeBoolean(collection.isAvailable());
+            List<String> mediaIds = collection.getMediaIds();
+            out.writeInt(mediaIds.size());
+            for (String mediaId : mediaIds) {
+                writeString(out, mediaId);
+            }
+        } else {
+            throw new IOException("Unsupported media type: " + media.getClass().getName());
+        }
+    }
+
+    /**
+     * Decode a single media record
+     *
+     * @param in : The input to read from
+     * @return the decoded media
+     * @throws IOException : If the record is malformed or truncated
+     */
+    public static Media decode(DataInput in) throws IOException {
+        byte type = in.readByte();
+        Media media;
+        switch (type) {
+            case TYPE_BOOK:
+                media = new Book(readString(in), readString(in), readString(in), readDate(in), readString(in),
+                        in.readInt());
+                media.setAvailable(in.readBoolean());
+                break;
+            case TYPE_MAGAZINE:
+                media = new Magazine(readString(in), readString(in), readDate(in), readString(in), in.readInt());
+                media.setAvailable(in.readBoolean());
+                break;
+            case TYPE_COLLECTION:
+                MediaCollection collection = new MediaCollection(readString(in), readString(in), readDate(in));
+                boolean available = in.readBoolean();
+                // The flag is restored before the members, so that it does not cascade
+                if (!available) {
+                    collection.setAvailable(false);
+                }
+                int memberCount = in.readInt();
+                for (int i = 0; i < memberCount; i++) {
+                    collection.addMediaId(readString(in));
+                }
+                media = collection;
+                break;
+            default:
+                throw new IOException("Unknown media record type: " + type);
+        }
+        return media;
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDate(DataOutput out, LocalDate date) throws IOException {
+        out.writeInt((int) date.toEpochDay());
+    }
+
+    private static LocalDate readDate(DataInput in) throws IOException {
+        return LocalDate.ofEpochDay(in.readInt());
+    }
+}
@@ -1,56 +1,261 @@
 package repository;
 
 import exception.LibraryException;
+import exception.MediaAvailabilityException;
 import exception.MediaNotFoundException;
+import index.AttributeIndex;
+import index.BitmapIndex;
+import index.FacetIndex;
+import index.MediaAttributes;
+import index.MediaIndex;
+import index.PublicationDateIndex;
+import index.SuggestionIndex;
+import index.TitleTokenIndex;
+import index.TrigramIndex;
+import model.media.AvailabilityListener;
 import model.media.Media;
 import model.media.MediaCollection;
+import model.media.MembershipListener;
+import query.FacetCounts;
+import query.MediaQuery;
+import query.ScoredMedia;
 import util.LoggerManager;
+import util.StripedLock;
+import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
-// Repository class for Media, using memory location for storage
+// Repository class for Media, using memory location for storage.
+// Thread-safe: the media are held in a ConcurrentHashMap, so reads never lock,
+// while save, update and delete hold the striped lock of the IDs they change
+// until the change is persisted
 public class MediaRepository implements Repository<Media, String> {
+    private static final int LOCK_STRIPES = 64;
+    // Availability changes are written by groups of media committing apart
+    private static final int COMMIT_GROUPS = 16;
+    // A query plan stops intersecting at an index this many times larger than
+    // the current candidates
+    private static final int INTERSECTION_RATIO = 8;
     private static final Logger LOGGER = LoggerManager.getLogger(MediaRepository.class.getName());
     private static MediaRepository instance;
+    private static StorageEngine configuredStorageEngine;
     private final Map<String, Media> mediaMap;
+    // Reverse membership index: media ID -> IDs of the collections containing it
+    private final Map<String, Set<String>> membershipIndex = new ConcurrentHashMap<>();
+    private final MembershipListener membershipListener = new MembershipIndexListener();
+    private final AvailabilityListener availabilityListener = this::onAvailabilityChanged;
+    private final StripedLock stripedLock = new StripedLock(LOCK_STRIPES);
+    // Secondary indexes, updated with the map under the lock of the media
+    private final TitleTokenIndex titleIndex = new TitleTokenIndex();
+    private final TrigramIndex trigramIndex = new TrigramIndex();
+    private final PublicationDateIndex publicationDateIndex = new PublicationDateIndex();
+    private final AttributeIndex authorIndex = new AttributeIndex(MediaAttributes::authorOf);
+    private final AttributeIndex publisherIndex = new AttributeIndex(MediaAttributes::publisherOf);
+    private final BitmapIndex bitmapIndex = new BitmapIndex();
+    private final SuggestionIndex suggestionIndex = new SuggestionIndex();
+    private final FacetIndex facetIndex = new FacetIndex();
+    private final List<MediaIndex> indexes = new ArrayList<>();
+    private final StorageEngine storageEngine;
+    private final AvailabilityCommitter availabilityCommitter;
 
     private MediaRepository() {
-        this.mediaMap = new HashMap<>();
-        LOGGER.info("Starting the repository for media");
+        this(configuredStorageEngine != null ? configuredStorageEngine
+                : new BinaryFileStorageEngine(FileStorageManager.SnapshotMode.STREAM));
+    }
+
+    // Constructor with an explicit storage engine, used by tests
+    MediaRepository(StorageEngine storageEngine) {
+        this.mediaMap = new ConcurrentHashMap<>();
+        this.storageEngine = storageEngine;
+        this.availabilityCommitter = new AvailabilityCommitter(storageEngine, stripedLock,
+                media -> mediaMap.get(media.getId()) == media, COMMIT_GROUPS);
+        indexes.add(titleIndex);
+        indexes.add(trigramIndex);
+        indexes.add(publicationDateIndex);
+        indexes.add(authorIndex);
+        indexes.add(publisherIndex);
+        indexes.add(bitmapIndex);
+        indexes.add(suggestionIndex);
+        indexes.add(facetIndex);
+        LOGGER.info("Starting the repository for media with storage engine: " + storageEngine.getName());
         loadMediaFromStorage();
     }
 
-    // Load media from file system
+    // Load media from the storage engine. A storage that cannot be read stops
+    // the repository: started empty, its next write or checkpoint would replace
+    // the stored catalog
     private void loadMediaFromStorage() {
         try {
-            FileStorageManager storageManager = FileStorageManager.getInstance();
-            List<Media> mediaList = storageManager.loadMedia();
+            List<Media> mediaList = storageEngine.load();
 
             for (Media media : mediaList) {
-                mediaMap.put(media.getId(), media);
+                store(media);
             }
 
-            LOGGER.info("Media loaded from file system: " + mediaList.size());
+            LOGGER.info("Media loaded from storage: " + mediaList.size());
         } catch (LibraryException e) {
-            LOGGER.warning("Impossible to load Media from file system: " + e.getMessage());
+            LOGGER.severe("Impossible to load Media from storage: " + e.getMessage());
+            throw new IllegalStateException("Impossible to load Media from storage: " + e.getMessage(), e);
+        }
+    }
+
+    // Put a media in the map and the indexes, the caller holds its lock.
+    // The previous version is removed from the indexes before the new one is
+    // visible, so a concurrent search never returns an outdated match
+    private void store(Media media) {
+        Media previous = mediaMap.get(media.getId());
+        attach(previous, media);
+        if (previous != null) {
+            for (MediaIndex index : indexes) {
+                index.remove(previous);
+            }
+        }
+        mediaMap.put(media.getId(), media);
+        for (MediaIndex index : indexes) {
+            index.add(media);
         }
     }
 
-    // Save media in file system
-    private void saveMediaToStorage() {
+    // Keep the bitmap and facet indexes in line with availability changes made on
+    // the media, such as the cascade of a collection to its members
+    private void onAvailabilityChanged(Media media) {
+        if (mediaMap.get(media.getId()) == media) {
+            bitmapIndex.updateAvailability(media);
+            facetIndex.updateAvailability(media);
+        }
+    }
+
+    // Get the media of a set of IDs, skipping the IDs deleted in the meantime
+    private List<Media> resolve(Collection<String> ids) {
+        return ids.stream().map(mediaMap::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    // Follow the availability of a media and let a collection resolve its member
+    // IDs through the repository and index its members, in place of the previous
+    // version of the media
+    private void attach(Media previous, Media media) {
+        if (previous == media) {
+            return;
+        }
+        if (previous != null) {
+            previous.setAvailabilityListener(null);
+        }
+        media.setAvailabilityListener(availabilityListener);
+        if (previous instanceof MediaCollection) {
+            detach((MediaCollection) previous);
+        }
+        if (media instanceof MediaCollection) {
+            MediaCollection collection = (MediaCollection) media;
+            // Under the monitor of the collection, no member change is missed
+            synchronized (collection) {
+                collection.setMediaResolver(mediaMap::get);
+                for (String mediaId : collection.getMediaIds()) {
+                    indexMember(collection.getId(), mediaId);
+                }
+                collection.setMembershipListener(membershipListener);
+            }
+        }
+    }
+
+    // Stop tracking a collection replaced or removed from the repository
+    private void detach(MediaCollection collection) {
+        synchronized (collection) {
+            collection.setMembershipListener(null);
+            for (String mediaId : collection.getMediaIds()) {
+                unindexMember(collection.getId(), mediaId);
+            }
+        }
+    }
+
+    // The index entries are changed with compute, atomically for each media ID
+    private void indexMember(String collectionId, String mediaId) {
+        membershipIndex.compute(mediaId, (key, collectionIds) -> {
+            Set<String> updated = collectionIds != null ? collectionIds : ConcurrentHashMap.newKeySet();
+            updated.add(collectionId);
+            return updated;
+        });
+    }
+
+    private void unindexMember(String collectionId, String mediaId) {
+        membershipIndex.computeIfPresent(mediaId, (key, collectionIds) -> {
+            collectionIds.remove(collectionId);
+            return collectionIds.isEmpty() ? null : collectionIds;
+        });
+    }
+
+    // Persist a saved or updated media with the storage engine, with the members
+    // of an unavailable collection in the same pass. The caller holds the locks
+    // of the media and its members
+    private void saveMediaToStorage(Media media, Set<String> lockedIds) {
         try {
-            FileStorageManager storageManager = FileStorageManager.getInstance();
-            storageManager.saveMedia(mediaMap);
-            LOGGER.info("Media saved in file system");
+            List<Media> mediaList = withCascadedMembers(Collections.singletonList(media), lockedIds);
+            if (mediaList.size() == 1) {
+                storageEngine.persist(media);
+            } else {
+                storageEngine.applyChanges(mediaList, Collections.emptyList());
+            }
         } catch (LibraryException e) {
-            LOGGER.warning("Unable to save media to file system: " + e.getMessage());
+            LOGGER.warning("Unable to save media to storage: " + e.getMessage());
+        }
+    }
+
+    // Remove a deleted media with the storage engine
+    private void deleteMediaFromStorage(String id) {
+        try {
+            storageEngine.delete(id);
+        } catch (LibraryException e) {
+            LOGGER.warning("Unable to delete media from storage: " + e.getMessage());
         }
     }
 
+    /**
+     * Set the storage engine used by the repository, to be called before the
+     * first call to getInstance
+     * 
+     * @param storageEngine : The storage engine to use
+     */
+    public static synchronized void setStorageEngine(StorageEngine storageEngine) {
+        if (instance != null) {
+            throw new IllegalStateException("The repository is already initialized");
+        }
+        configuredStorageEngine = storageEngine;
+    }
+
+    /**
+     * Write the pending changes of the storage engine to the durable storage
+     * 
+     * @throws LibraryException : If there is an error writing the changes
+     */
+    public void flush() throws LibraryException {
+        storageEngine.flush();
+        LOGGER.info("Media flushed to storage");
+    }
+
+    /**
+     * Write the pending changes and close the storage engine
+     * 
+     * @throws LibraryException : If there is an error writing the changes
+     */
+    public void close() throws LibraryException {
+        storageEngine.close();
+        LOGGER.info("Repository storage closed");
+    }
+
     /**
      * Get instance of repository
      * 
@@ -79,8 +284,14 @@ public class MediaRepository implements Repository<Media, String> {
             throw new LibraryException("Impossible to save a null media");
         }
 
-        mediaMap.put(media.getId(), media);
-        saveMediaToStorage();
+        Set<String> lockedIds = idsWithMembers(Collections.singletonList(media));
+        List<Lock> locks = stripedLock.lockAll(lockedIds);
+        try {
+            store(media);
+            saveMediaToStorage(media, lockedIds);
+        } finally {
+            StripedLock.unlockAll(locks);
+        }
         LOGGER.info("Media saved with ID: " + media.getId());
         return media;
     }
@@ -96,12 +307,14 @@ public class MediaRepository implements Repository<Media, String> {
      *                                found
      */
     public Media findById(String id) throws MediaNotFoundException {
-        if (!mediaMap.containsKey(id)) {
+        // Single lookup, a concurrent delete cannot happen between check and get
+        Media media = mediaMap.get(id);
+        if (media == null) {
             LOGGER.warning("Media not found with ID: " + id);
             throw new MediaNotFoundException("Media not found with ID: " + id);
         }
 
-        return mediaMap.get(id);
+        return media;
     }
 
     @Override
@@ -126,30 +339,280 @@ public class MediaRepository implements Repository<Media, String> {
      *                                found
      */
     public void delete(String id) throws MediaNotFoundException {
-        if (!mediaMap.containsKey(id)) {
-            LOGGER.warning("Impossible to delete: Media not found with ID: " + id);
-            throw new MediaNotFoundException("Media not found with ID: " + id);
+        List<Lock> locks = lockWithCollections(Collections.singletonList(id));
+        try {
+            Media mediaToDelete = mediaMap.get(id);
+            if (mediaToDelete == null) {
+                LOGGER.warning("Impossible to delete: Media not found with ID: " + id);
+                throw new MediaNotFoundException("Media not found with ID: " + id);
+            }
+
+            // Remove the media from the collections containing it, found by the index
+            Set<String> collectionIds = membershipIndex.remove(id);
+            if (collectionIds != null) {
+                for (String collectionId : collectionIds) {
+                    Media media = mediaMap.get(collectionId);
+                    if (media instanceof MediaCollection) {
+                        ((MediaCollection) media).removeMedia(mediaToDelete);
+                        saveMediaToStorage(media, Collections.singleton(collectionId));
+                    }
+                }
+            }
+            unstore(mediaToDelete);
+            deleteMediaFromStorage(id);
+        } finally {
+            StripedLock.unlockAll(locks);
+        }
+        LOGGER.info("Media deleted with ID: " + id);
+    }
+
+    // Remove a media from the map and the indexes, once it left its collections.
+    // Called with the lock of the media held
+    private void unstore(Media media) {
+        membershipIndex.remove(media.getId());
+        media.setAvailabilityListener(null);
+        if (media instanceof MediaCollection) {
+            detach((MediaCollection) media);
         }
 
-        // Remove the media from all collections
-        Media mediaToDelete = mediaMap.get(id);
-        for (Media media : mediaMap.values()) {
+        for (MediaIndex index : indexes) {
+            index.remove(media);
+        }
+        mediaMap.remove(media.getId());
+    }
+
+    @Override
+    /**
+     * Annotation: Override method of the Repository interface
+     * Save several media at once. The batch is validated, then persisted in a
+     * single storage pass and applied to memory only once persisted, so either
+     * all the media are saved or none is
+     * 
+     * @param mediaList : The media to save
+     * @return The saved media
+     * @throws LibraryException : If a media is null, an ID is repeated or the
+     *                          batch cannot be persisted
+     */
+    public List<Media> saveAll(Collection<Media> mediaList) throws LibraryException {
+        List<Media> batch = validateBatch(mediaList);
+        Set<String> lockedIds = idsWithMembers(batch);
+        List<Lock> locks = stripedLock.lockAll(lockedIds);
+        try {
+            persistBatch(withCascadedMembers(batch, lockedIds), Collections.emptyList());
+            for (Media media : batch) {
+                store(media);
+            }
+        } finally {
+            StripedLock.unlockAll(locks);
+        }
+        LOGGER.info("Media batch saved: " + batch.size() + " media");
+        return batch;
+    }
+
+    @Override
+    /**
+     * Annotation: Override method of the Repository interface
+     * Update several media at once. Every media must exist; the batch is
+     * persisted in a single storage pass and applied to memory only once
+     * persisted, so either all the media are updated or none is
+     * 
+     * @param mediaList : The media to update
+     * @return The updated media
+     * @throws LibraryException : If a media is null or not found, an ID is
+     *                          repeated or the batch cannot be persisted
+     */
+    public List<Media> updateAll(Collection<Media> mediaList) throws LibraryException {
+        return updateAllIfUnchanged(mediaList, media -> true);
+    }
+
+    /**
+     * Update several media at once as updateAll, only if every media is still in
+     * the state it was read in. The check and the update are made under the
+     * locks of the media, so a change made since the read is never overwritten
+     * 
+     * @param mediaList : The new versions of the media
+     * @param unchanged : The check of the current version of a media, false if
+     *                  it changed since it was read
+     * @return The updated media
+     * @throws LibraryException : If a media is null, not found or changed, an ID
+     *                          is repeated or the batch cannot be persisted
+     */
+    public List<Media> updateAllIfUnchanged(Collection<Media> mediaList, Predicate<Media> unchanged)
+            throws LibraryException {
+        List<Media> batch = validateBatch(mediaList);
+        Set<String> lockedIds = idsWithMembers(batch);
+        List<Lock> locks = stripedLock.lockAll(lockedIds);
+        try {
+            for (Media media : batch) {
+                Media current = mediaMap.get(media.getId());
+                if (current == null) {
+                    LOGGER.warning("Impossible to update the batch: Media not found with ID: " + media.getId());
+                    throw new MediaNotFoundException(media.getId());
+                }
+                if (!unchanged.test(current)) {
+                    LOGGER.warning("Impossible to update the batch: Media changed meanwhile, ID: " + media.getId());
+                    throw new LibraryException("Media changed by another operation, ID: " + media.getId());
+                }
+            }
+            persistBatch(withCascadedMembers(batch, lockedIds), Collections.emptyList());
+            for (Media media : batch) {
+                store(media);
+            }
+        } finally {
+            StripedLock.unlockAll(locks);
+        }
+        LOGGER.info("Media batch updated: " + batch.size() + " media");
+        return batch;
+    }
+
+    @Override
+    /**
+     * Annotation: Override method of the Repository interface
+     * Delete several media at once. Every media must exist. The media are
+     * removed from the collections containing them, and the collections and the
+     * deletions are persisted in a single storage pass; if it fails, the
+     * collections get their members back and nothing is deleted
+     * 
+     * @param ids : The IDs of the media to delete
+     * @throws LibraryException : If a media is not found or the batch cannot be
+     *                          persisted
+     */
+    public void deleteAll(Collection<String> ids) throws LibraryException {
+        if (ids == null || ids.contains(null)) {
+            throw new LibraryException("Impossible to delete a null media ID");
+        }
+        Set<String> batch = new LinkedHashSet<>(ids);
+        List<Lock> locks = lockWithCollections(batch);
+        try {
+            List<Media> mediaToDelete = new ArrayList<>(batch.size());
+            for (String id : batch) {
+                Media media = mediaMap.get(id);
+                if (media == null) {
+                    LOGGER.warning("Impossible to delete the batch: Media not found with ID: " + id);
+                    throw new MediaNotFoundException(id);
+                }
+                mediaToDelete.add(media);
+            }
+
+            // Remove the media from the collections that are kept
+            Map<MediaCollection, List<Media>> removedMembers = new LinkedHashMap<>();
+            for (Media media : mediaToDelete) {
+                for (String collectionId : findCollectionIdsContaining(media.getId())) {
+                    Media collection = mediaMap.get(collectionId);
+                    if (!batch.contains(collectionId) && collection instanceof MediaCollection) {
+                        ((MediaCollection) collection).removeMedia(media);
+                        removedMembers.computeIfAbsent((MediaCollection) collection, key -> new ArrayList<>())
+                                .add(media);
+                    }
+                }
+            }
+
+            try {
+                persistBatch(new ArrayList<>(removedMembers.keySet()), batch);
+            } catch (LibraryException e) {
+                for (Map.Entry<MediaCollection, List<Media>> entry : removedMembers.entrySet()) {
+                    for (Media media : entry.getValue()) {
+                        entry.getKey().addMedia(media);
+                    }
+                }
+                throw e;
+            }
+            for (Media media : mediaToDelete) {
+                unstore(media);
+            }
+        } finally {
+            StripedLock.unlockAll(locks);
+        }
+        LOGGER.info("Media batch deleted: " + batch.size() + " media");
+    }
+
+    // Check that a batch has no null media and no repeated ID
+    private static List<Media> validateBatch(Collection<Media> mediaList) throws LibraryException {
+        if (mediaList == null) {
+            throw new LibraryException("Impossible to store a null batch of media");
+        }
+        List<Media> batch = new ArrayList<>(mediaList.size());
+        Set<String> ids = new HashSet<>();
+        for (Media media : mediaList) {
+            if (media == null) {
+                throw new LibraryException("Impossible to store a null media");
+            }
+            if (!ids.add(media.getId())) {
+                throw new LibraryException("Media ID repeated in the batch: " + media.getId());
+            }
+            batch.add(media);
+        }
+        return batch;
+    }
+
+    // IDs of media with the members of the collections among them: made
+    // unavailable, a collection makes its members unavailable, so they are locked
+    // and written with it
+    private static Set<String> idsWithMembers(Collection<Media> mediaList) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (Media media : mediaList) {
+            ids.add(media.getId());
             if (media instanceof MediaCollection) {
-                MediaCollection collection = (MediaCollection) media;
-                List<Media> mediaItems = collection.getMediaItems();
-                for (Media item : mediaItems) {
-                    // Check if the media is in the collection using the equals method
-                    if (item.equals(mediaToDelete)) {
-                        collection.removeMedia(mediaToDelete);
-                        break;
+                ids.addAll(((MediaCollection) media).getMediaIds());
+            }
+        }
+        return ids;
+    }
+
+    // Media to write with the current members of the unavailable collections
+    // among them, whose availability changed with the collection. Only the
+    // locked members are added, read from the map and not through the
+    // collection, which may be a copy resolving its own members
+    private List<Media> withCascadedMembers(Collection<Media> mediaList, Set<String> lockedIds) {
+        Map<String, Media> mediaToWrite = new LinkedHashMap<>();
+        for (Media media : mediaList) {
+            mediaToWrite.put(media.getId(), media);
+        }
+        for (Media media : mediaList) {
+            if (media instanceof MediaCollection && !media.isAvailable()) {
+                for (String mediaId : ((MediaCollection) media).getMediaIds()) {
+                    Media member = mediaMap.get(mediaId);
+                    if (member != null && lockedIds.contains(mediaId)) {
+                        mediaToWrite.putIfAbsent(mediaId, member);
                     }
                 }
             }
         }
+        return new ArrayList<>(mediaToWrite.values());
+    }
 
-        mediaMap.remove(id);
-        saveMediaToStorage();
-        LOGGER.info("Media deleted with ID: " + id);
+    // Write a batch in a single pass of the storage engine, failing the batch if
+    // it cannot be written
+    private void persistBatch(Collection<Media> mediaList, Collection<String> deletedIds) throws LibraryException {
+        try {
+            storageEngine.applyChanges(mediaList, deletedIds);
+        } catch (LibraryException e) {
+            LOGGER.warning("Unable to persist the media batch: " + e.getMessage());
+            throw new LibraryException("Unable to persist the media batch: " + e.getMessage());
+        }
+    }
+
+    // Lock media and the collections containing them. The collections are read
+    // from the index before locking, so the locks are taken again if they changed
+    private List<Lock> lockWithCollections(Collection<String> ids) {
+        while (true) {
+            Set<String> collectionIds = findCollectionIdsContaining(ids);
+            List<String> keys = new ArrayList<>(collectionIds);
+            keys.addAll(ids);
+            List<Lock> locks = stripedLock.lockAll(keys);
+            if (collectionIds.equals(findCollectionIdsContaining(ids))) {
+                return locks;
+            }
+            StripedLock.unlockAll(locks);
+        }
+    }
+
+    private Set<String> findCollectionIdsContaining(Collection<String> ids) {
+        Set<String> collectionIds = new HashSet<>();
+        for (String id : ids) {
+            collectionIds.addAll(findCollectionIdsContaining(id));
+        }
+        return collectionIds;
     }
 
     @Override
@@ -163,36 +626,439 @@ public class MediaRepository implements Repository<Media, String> {
      *                                repository
      */
     public Media update(Media media) throws MediaNotFoundException {
-        if (media == null || !mediaMap.containsKey(media.getId())) {
+        if (media == null) {
             LOGGER.warning("Impossible to update: Media not found");
             throw new MediaNotFoundException("Media not found");
         }
 
-        mediaMap.put(media.getId(), media);
-        saveMediaToStorage();
+        Set<String> lockedIds = idsWithMembers(Collections.singletonList(media));
+        List<Lock> locks = stripedLock.lockAll(lockedIds);
+        try {
+            if (!mediaMap.containsKey(media.getId())) {
+                LOGGER.warning("Impossible to update: Media not found");
+                throw new MediaNotFoundException("Media not found");
+            }
+            store(media);
+            saveMediaToStorage(media, lockedIds);
+        } finally {
+            StripedLock.unlockAll(locks);
+        }
         LOGGER.info("Media updated with ID: " + media.getId());
         return media;
     }
 
     /**
-     * Find media by title
+     * Set the availability of a book or magazine only if it is the expected one,
+     * with a compare-and-set on the media: of concurrent calls expecting the same
+     * availability, exactly one succeeds, without waiting for a lock. The change
+     * is then written with the concurrent changes of its commit group in a
+     * single storage pass (group commit), under the lock of the media; the
+     * groups commit apart, with no lock common to all the calls. The
+     * availability is read when it is written, so the storage always ends with
+     * the last one set
+     * 
+     * @param id                : The ID of the media
+     * @param expectedAvailable : The expected availability
+     * @param available         : The availability to set
+     * @return The changed media
+     * @throws MediaNotFoundException     : If the media is not found
+     * @throws MediaAvailabilityException : If the availability is not the
+     *                                    expected one
+     * @throws LibraryException           : If the media is a collection or the
+     *                                    change cannot be persisted
+     */
+    public Media compareAndSetAvailable(String id, boolean expectedAvailable, boolean available)
+            throws LibraryException {
+        while (true) {
+            Media media = findAvailabilityTarget(id);
+            if (!media.compareAndSetAvailable(expectedAvailable, available)) {
+                throw new MediaAvailabilityException(Collections.singletonList(id), expectedAvailable);
+            }
+            if (availabilityCommitter.commit(Collections.singletonList(media), expectedAvailable, available)) {
+                LOGGER.fine("Availability of media with ID " + id + " set to " + available);
+                return media;
+            }
+            // Replaced or deleted meanwhile, the change is made on the current media
+        }
+    }
+
+    /**
+     * Set the availability of several books and magazines only if they all have
+     * the expected one, with a compare-and-set on each media: either all the
+     * media are changed or none is. The media changed before a media with
+     * another availability is met are set back, a concurrent call may see them
+     * changed for that short time. The changes are written in a single
+     * storage pass, shared with the concurrent calls
+     * 
+     * @param ids               : The IDs of the media
+     * @param expectedAvailable : The expected availability
+     * @param available         : The availability to set
+     * @return The changed media
+     * @throws MediaNotFoundException     : If a media is not found
+     * @throws MediaAvailabilityException : If some media do not have the expected
+     *                                    availability
+     * @throws LibraryException           : If a media is a collection or the
+     *                                    changes cannot be persisted
+     */
+    public List<Media> compareAndSetAllAvailable(Collection<String> ids, boolean expectedAvailable,
+            boolean available) throws LibraryException {
+        if (ids == null || ids.contains(null)) {
+            throw new LibraryException("Impossible to change the availability of a null media ID");
+        }
+        Set<String> batch = new LinkedHashSet<>(ids);
+        while (true) {
+            List<Media> mediaList = new ArrayList<>(batch.size());
+            for (String id : batch) {
+                mediaList.add(findAvailabilityTarget(id));
+            }
+
+            List<Media> changed = new ArrayList<>(mediaList.size());
+            List<String> conflicts = new ArrayList<>();
+            for (Media media : mediaList) {
+                if (!conflicts.isEmpty()) {
+                    // Nothing changes any more, the other conflicts are only reported
+                    if (media.isAvailable() != expectedAvailable) {
+                        conflicts.add(media.getId());
+                    }
+                } else if (media.compareAndSetAvailable(expectedAvailable, available)) {
+                    changed.add(media);
+                } else {
+                    conflicts.add(media.getId());
+                }
+            }
+            if (!conflicts.isEmpty()) {
+                setBackAvailability(changed, expectedAvailable, available);
+                throw new MediaAvailabilityException(conflicts, expectedAvailable);
+            }
+
+            if (availabilityCommitter.commit(changed, expectedAvailable, available)) {
+                LOGGER.fine("Availability of " + changed.size() + " media set to " + available);
+                return changed;
+            }
+            // Some media were replaced or deleted meanwhile, all the changes are made again
+        }
+    }
+
+    // Get a media whose availability changes alone, unlike a collection whose
+    // members change with it
+    private Media findAvailabilityTarget(String id) throws LibraryException {
+        Media media = mediaMap.get(id);
+        if (media == null) {
+            throw new MediaNotFoundException(id);
+        }
+        if (media instanceof MediaCollection) {
+            throw new LibraryException("Impossible to change the availability of the collection " + id
+                    + " on its own, its members change with it");
+        }
+        return media;
+    }
+
+    // Undo availability changes, unless the media changed again since
+    private static void setBackAvailability(List<Media> mediaList, boolean expectedAvailable, boolean available) {
+        for (Media media : mediaList) {
+            media.compareAndSetAvailable(available, expectedAvailable);
+        }
+    }
+
+    /**
+     * Find the IDs of the collections containing a media
      * 
+     * @param mediaId : The ID of the media
+     * @return The IDs of the collections containing the media
+     */
+    public Set<String> findCollectionIdsContaining(String mediaId) {
+        Set<String> collectionIds = membershipIndex.get(mediaId);
+        return collectionIds == null ? Collections.emptySet()
+                : Collections.unmodifiableSet(new LinkedHashSet<>(collectionIds));
+    }
+
+    /**
+     * Find media by title, using the inverted index of the title tokens. A media
+     * matches when its title contains every word of the searched title, in any
+     * order, ignoring case and accents
+     * 
+     * @param title : The title to search
      * @return The found media
      */
     public List<Media> findByTitle(String title) {
-        return mediaMap.values().stream()
-                .filter(media -> media.getTitle().toLowerCase().contains(title.toLowerCase()))
+        return resolve(titleIndex.search(title));
+    }
+
+    /**
+     * Find the media whose title is the most relevant to the searched title,
+     * ranked by BM25 over the title tokens. A title matching any word is a
+     * candidate; only the best hits are kept, so a broad search as "the" does
+     * not load every match
+     * 
+     * @param title : The title to search
+     * @param limit : The maximum number of results
+     * @return The found media with their score, best first
+     */
+    public List<ScoredMedia> findByTitleRanked(String title, int limit) {
+        List<ScoredMedia> result = new ArrayList<>();
+        for (Map.Entry<String, Double> hit : titleIndex.searchRanked(title, limit).entrySet()) {
+            Media media = mediaMap.get(hit.getKey());
+            if (media != null) {
+                result.add(new ScoredMedia(media, hit.getValue()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find media by title tolerating typos: every word of the searched title
+     * must be in the title within a small edit distance, as "Harry Poter" for
+     * "Harry Potter". The words are looked up in a BK-tree of the title tokens
+     * 
+     * @param title : The title to search
+     * @return The found media
+     */
+    public List<Media> findByTitleFuzzy(String title) {
+        return resolve(titleIndex.searchFuzzy(title));
+    }
+
+    /**
+     * Find media whose title contains the given text anywhere, ignoring case.
+     * The trigram index narrows the candidates, which are then verified on the
+     * current version of each media. Texts shorter than a trigram scan every
+     * title
+     * 
+     * @param text : The text to search in the titles
+     * @return The found media
+     */
+    public List<Media> findByTitleContaining(String text) {
+        String searched = text.toLowerCase();
+        Set<String> candidates = trigramIndex.candidates(searched);
+        Collection<Media> mediaToCheck = candidates != null ? resolve(candidates) : mediaMap.values();
+        return mediaToCheck.stream()
+                .filter(media -> media.getTitle().toLowerCase().contains(searched))
                 .collect(Collectors.toList());
     }
 
     /**
      * Find media by publication year
      * 
-     * @return The found media
+     * @param year : The publication year
+     * @return The found media, sorted by publication date
      */
     public List<Media> findByPublicationYear(int year) {
-        return mediaMap.values().stream()
-                .filter(media -> media.getPublicationDate().getYear() == year)
+        return findByPublicationYearRange(year, year);
+    }
+
+    /**
+     * Find media published between two years, both included
+     * 
+     * @param fromYear : The first year of the range
+     * @param toYear   : The last year of the range
+     * @return The found media, sorted by publication date
+     */
+    public List<Media> findByPublicationYearRange(int fromYear, int toYear) {
+        return findByPublicationDateBetween(LocalDate.of(fromYear, 1, 1), LocalDate.of(toYear, 12, 31));
+    }
+
+    /**
+     * Find media published between two dates, both included, using the sorted
+     * index of the publication dates
+     * 
+     * @param from : The first date of the range
+     * @param to   : The last date of the range
+     * @return The found media, sorted by publication date
+     */
+    public List<Media> findByPublicationDateBetween(LocalDate from, LocalDate to) {
+        // The dates are verified on the current version of each media
+        return resolve(publicationDateIndex.findBetween(from, to)).stream()
+                .filter(media -> !media.getPublicationDate().isBefore(from) && !media.getPublicationDate().isAfter(to))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Suggest media whose title or ID starts with a prefix, ignoring case and
+     * accents
+     * 
+     * @param prefix : The beginning of a title or ID
+     * @param limit  : The maximum number of suggestions
+     * @return The suggested media, in order of the completed title or ID
+     */
+    public List<Media> suggest(String prefix, int limit) {
+        return resolve(suggestionIndex.suggest(prefix, limit));
+    }
+
+    /**
+     * Find books by author, ignoring case
+     * 
+     * @param author : The author
+     * @return The found books
+     */
+    public List<Media> findByAuthor(String author) {
+        return resolve(authorIndex.find(author)).stream()
+                .filter(media -> authorIndex.matches(media, author))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Find books whose author starts with a prefix, ignoring case
+     * 
+     * @param prefix : The prefix of the author
+     * @return The found books, sorted by author
+     */
+    public List<Media> findByAuthorPrefix(String prefix) {
+        return resolve(authorIndex.findByPrefix(prefix)).stream()
+                .filter(media -> authorIndex.matchesPrefix(media, prefix))
                 .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+
+    /**
+     * Find books and magazines by publisher, ignoring case
+     * 
+     * @param publisher : The publisher
+     * @return The found media
+     */
+    public List<Media> findByPublisher(String publisher) {
+        return resolve(publisherIndex.find(publisher)).stream()
+                .filter(media -> publisherIndex.matches(media, publisher))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Find books and magazines whose publisher starts with a prefix, ignoring case
+     * 
+     * @param prefix : The prefix of the publisher
+     * @return The found media, sorted by publisher
+     */
+    public List<Media> findByPublisherPrefix(String prefix) {
+        return resolve(publisherIndex.findByPrefix(prefix)).stream()
+                .filter(media -> publisherIndex.matchesPrefix(media, prefix))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Find the media matching a query. The planner estimates the matches of
+     * every index that applies to the query, starts from the most selective
+     * one and intersects the next ones while they are not much larger. The
+     * candidates are then verified against the whole query. Every criterion has
+     * an index, only an empty query scans every media
+     * 
+     * @param query : The query
+     * @return The found media
+     */
+    public List<Media> findByQuery(MediaQuery query) {
+        List<IndexScan> scans = planQuery(query);
+        Collection<Media> candidates;
+        if (scans.isEmpty()) {
+            LOGGER.fine("Query plan: full scan for " + query);
+            candidates = mediaMap.values();
+        } else {
+            scans.sort(Comparator.comparingInt(scan -> scan.estimate));
+            Set<String> ids = new HashSet<>(scans.get(0).ids.get());
+            StringBuilder plan = new StringBuilder(scans.get(0).toString());
+            for (int i = 1; i < scans.size() && !ids.isEmpty(); i++) {
+                IndexScan scan = scans.get(i);
+                if (scan.estimate > (long) ids.size() * INTERSECTION_RATIO) {
+                    // Cheaper to verify the few candidates than to read this index
+                    break;
+                }
+                ids.retainAll(new HashSet<>(scan.ids.get()));
+                plan.append(" AND ").append(scan);
+            }
+            LOGGER.fine("Query plan: " + plan + " -> " + ids.size() + " candidates for " + query);
+            candidates = resolve(ids);
+        }
+        return candidates.stream().filter(query::matches).collect(Collectors.toList());
+    }
+
+    // Collect the index scans that apply to a query, with their estimated size
+    private List<IndexScan> planQuery(MediaQuery query) {
+        List<IndexScan> scans = new ArrayList<>();
+        if (query.hasTitleTerms()) {
+            scans.add(new IndexScan("title", titleIndex.estimate(query.getTitleTerms()),
+                    () -> titleIndex.search(query.getTitleTerms())));
+        }
+        if (query.hasYearRange()) {
+            LocalDate from = query.getFromYear() != null ? LocalDate.of(query.getFromYear(), 1, 1) : LocalDate.MIN;
+            LocalDate to = query.getToYear() != null ? LocalDate.of(query.getToYear(), 12, 31) : LocalDate.MAX;
+            scans.add(new IndexScan("publication date", publicationDateIndex.count(from, to),
+                    () -> publicationDateIndex.findBetween(from, to)));
+        }
+        if (query.getAuthor() != null) {
+            scans.add(new IndexScan("author", authorIndex.count(query.getAuthor()),
+                    () -> authorIndex.find(query.getAuthor())));
+        }
+        if (query.getPublisher() != null) {
+            scans.add(new IndexScan("publisher", publisherIndex.count(query.getPublisher()),
+                    () -> publisherIndex.find(query.getPublisher())));
+        }
+        if (query.getAvailable() != null || query.getType() != null) {
+            scans.add(new IndexScan("availability and type bitmap",
+                    bitmapIndex.count(query.getAvailable(), query.getType()),
+                    () -> bitmapIndex.find(query.getAvailable(), query.getType())));
+        }
+        return scans;
+    }
+
+    /**
+     * Count the media matching a query. A query on availability and type only is
+     * answered by the bitmap index, without reading any media
+     * 
+     * @param query : The query
+     * @return The number of matching media
+     */
+    public int countByQuery(MediaQuery query) {
+        if (!query.hasTitleTerms() && !query.hasYearRange() && query.getAuthor() == null
+                && query.getPublisher() == null) {
+            return bitmapIndex.count(query.getAvailable(), query.getType());
+        }
+        return findByQuery(query).size();
+    }
+
+    /**
+     * Get the facet counts of the media matching a query: the number of media by
+     * publication year, publisher, type and availability. The counts of all the
+     * media are kept up to date on every change and returned without reading
+     * any media; a filtered query counts its matches only
+     * 
+     * @param query : The query, or an empty query for all the media
+     * @return The facet counts
+     */
+    public FacetCounts getFacets(MediaQuery query) {
+        if (query.isEmpty()) {
+            return facetIndex.snapshot();
+        }
+        FacetIndex matches = new FacetIndex();
+        for (Media media : findByQuery(query)) {
+            matches.add(media);
+        }
+        return matches.snapshot();
+    }
+
+    // Keeps the membership index up to date when a collection changes
+    private class MembershipIndexListener implements MembershipListener {
+
+        @Override
+        public void onMemberAdded(String collectionId, String mediaId) {
+            indexMember(collectionId, mediaId);
+        }
+
+        @Override
+        public void onMemberRemoved(String collectionId, String mediaId) {
+            unindexMember(collectionId, mediaId);
+        }
+    }
+
+    // Step of a query plan: the IDs given by an index and their estimated number
+    private static class IndexScan {
+        private final String name;
+        private final int estimate;
+        private final Supplier<Collection<String>> ids;
+
+        IndexScan(String name, int estimate, Supplier<Collection<String>> ids) {
+            this.name = name;
+            this.estimate = estimate;
+            this.ids = ids;
+        }
+
+        @Override
+        public String toString() {
+            return name + " index (" + estimate + ")";
+        }
+    }
+}
@@ -2,6 +2,7 @@ package repository;
 
 import exception.LibraryException;
 import exception.MediaNotFoundException;
+import java.util.Collection;
 import java.util.List;
 
 // Interface for repositories implementing Generics <T = repository type, ID = repository ID type>
@@ -51,4 +52,33 @@ public interface Repository<T, ID> {
      * @throws MediaNotFoundException : If the entity to update is not found
      */
     T update(T entity) throws MediaNotFoundException;
+
+    /**
+     * Save several entities at once: either all are saved or none is
+     * 
+     * @param entities : The entities to save
+     * @return The saved entities
+     * @throws LibraryException : If an entity is invalid or the batch cannot be
+     *                          saved
+     */
+    List<T> saveAll(Collection<T> entities) throws LibraryException;
+
+    /**
+     * Update several entities at once: either all are updated or none is
+     * 
+     * @param entities : The entities to update
+     * @return The updated entities
+     * @throws LibraryException : If an entity is not found or the batch cannot be
+     *                          updated
+     */
+    List<T> updateAll(Collection<T> entities) throws LibraryException;
+
+    /**
+     * Delete several entities by ID at once: either all are deleted or none is
+     * 
+     * @param ids : The IDs of the entities to delete
+     * @throws LibraryException : If an entity is not found or the batch cannot be
+     *                          deleted
+     */
+    void deleteAll(Collection<ID> ids) throws LibraryException;
 }
\ No newline at end of file
@@ -0,0 +1,214 @@
+package repository;
+
+import exception.LibraryException;
+import model.media.Media;
+import util.LoggerManager;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
+// Storage engine that partitions the catalog into segment files by a hash of the
+// media id. A change only marks its segment as dirty and only the dirty segments
+// are rewritten, so the cost of a write follows the size of a segment instead of
+// the size of the catalog. Segments are loaded in parallel at startup, which is
+// possible because collections only reference their members by ID.
+public class SegmentedStorageEngine implements StorageEngine {
+    private static final Logger LOGGER = LoggerManager.getLogger(SegmentedStorageEngine.class.getName());
+    private final FileStorageManager storageManager;
+    private final int segmentCount;
+    private final List<Map<String, Media>> segments;
+    private final BitSet dirtySegments = new BitSet();
+    // Segment files left by a previous run with more segments
+    private final List<Integer> obsoleteSegments = new ArrayList<>();
+
+    /**
+     * Create a new SegmentedStorageEngine
+     *
+     * @param segmentCount : The number of segment files
+     */
+    public SegmentedStorageEngine(int segmentCount) {
+        this(FileStorageManager.getInstance(), segmentCount);
+    }
+
+    /**
+     * Create a new SegmentedStorageEngine on the files of a storage manager
+     *
+     * @param storageManager : The manager of the data files
+     * @param segmentCount   : The number of segment files
+     */
+    SegmentedStorageEngine(FileStorageManager storageManager, int segmentCount) {
+        if (segmentCount <= 0) {
+            throw new IllegalArgumentException("The number of segments must be positive");
+        }
+        this.storageManager = storageManager;
+        this.segmentCount = segmentCount;
+        this.segments = new ArrayList<>(segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            segments.add(new LinkedHashMap<>());
+        }
+    }
+
+    @Override
+    public synchronized List<Media> load() throws LibraryException {
+        List<Integer> segmentFiles = storageManager.listSegments();
+        int threadCount = Math.max(1, Math.min(segmentFiles.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+
+        List<CompletableFuture<SegmentContent>> futures = new ArrayList<>();
+        try {
+            for (Integer segment : segmentFiles) {
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    SegmentContent content = new SegmentContent(segment);
+                    try {
+                        storageManager.loadSegment(segment, content.catalog);
+                    } catch (LibraryException e) {
+                        throw new CompletionException(e);
+                    }
+                    return content;
+                }, executorService));
+            }
+
+            Map<String, Media> catalog = new HashMap<>();
+            for (CompletableFuture<SegmentContent> future : futures) {
+                SegmentContent content = future.join();
+                for (Media media : content.catalog.values()) {
+                    int segment = segmentOf(media.getId());
+                    segments.get(segment).put(media.getId(), media);
+                    catalog.put(media.getId(), media);
+                    if (segment != content.segment) {
+                        // Written with another number of segments, move it
+                        dirtySegments.set(segment);
+                        if (content.segment < segmentCount) {
+                            dirtySegments.set(content.segment);
+                        }
+                    }
+                }
+                if (content.segment >= segmentCount) {
+                    obsoleteSegments.add(content.segment);
+                }
+            }
+
+            LOGGER.info("Media loaded from " + segmentFiles.size() + " segment files with " + threadCount
+                    + " threads: " + catalog.size());
+            return new ArrayList<>(catalog.values());
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof LibraryException) {
+                throw (LibraryException) cause;
+            }
+            throw new LibraryException("Error loading segment files: " + cause.getMessage());
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Override
+    public synchronized void persist(Media media) throws LibraryException {
+        put(media);
+        flush();
+    }
+
+    @Override
+    public synchronized void persistAll(Collection<Media> mediaList) throws LibraryException {
+        for (Media media : mediaList) {
+            put(media);
+        }
+        flush();
+    }
+
+    @Override
+    public synchronized void applyChanges(Collection<Media> mediaList, Collection<String> deletedIds)
+            throws LibraryException {
+        for (Media media : mediaList) {
+            put(media);
+        }
+        for (String id : deletedIds) {
+            remove(id);
+        }
+        // Each touched segment is written once
+        flush();
+    }
+
+    @Override
+    public synchronized void delete(String id) throws LibraryException {
+        remove(id);
+        flush();
+    }
+
+    @Override
+    public synchronized void flush() throws LibraryException {
+        for (int segment = dirtySegments.nextSetBit(0); segment >= 0; segment = dirtySegments
+                .nextSetBit(segment + 1)) {
+            storageManager.saveSegment(segment, segments.get(segment).values());
+            dirtySegments.clear(segment);
+        }
+        for (Integer segment : obsoleteSegments) {
+            storageManager.deleteSegment(segment);
+        }
+        obsoleteSegments.clear();
+    }
+
+    @Override
+    public synchronized void close() throws LibraryException {
+        flush();
+    }
+
+    @Override
+    public String getName() {
+        return "segmented";
+    }
+
+    /**
+     * Get the segment of a media ID
+     *
+     * @param id : The media ID
+     * @return the segment number
+     */
+    public int segmentOf(String id) {
+        return Math.floorMod(id.hashCode(), segmentCount);
+    }
+
+    /**
+     * Get the segments changed since the last flush
+     *
+     * @return the numbers of the dirty segments
+     */
+    public synchronized List<Integer> getDirtySegments() {
+        List<Integer> dirty = new ArrayList<>();
+        dirtySegments.stream().forEach(dirty::add);
+        return Collections.unmodifiableList(dirty);
+    }
+
+    private void put(Media media) {
+        int segment = segmentOf(media.getId());
+        segments.get(segment).put(media.getId(), media);
+        dirtySegments.set(segment);
+    }
+
+    private void remove(String id) {
+        int segment = segmentOf(id);
+        if (segments.get(segment).remove(id) != null) {
+            dirtySegments.set(segment);
+        }
+    }
+
+    // Content of a segment file read by a loader thread
+    private static class SegmentContent {
+        private final int segment;
+        private final Map<String, Media> catalog = new LinkedHashMap<>();
+
+        SegmentContent(int segment) {
+            this.segment = segment;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package repository;
+
+import exception.LibraryException;
+import model.media.Media;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Storage engine with Java serialization: every change rewrites the whole
+// snapshot (data/media.dat) with ObjectOutputStream. The snapshot is loaded
+// whatever its format, so that the catalog is kept when switching engines
+public class SerializationStorageEngine implements StorageEngine {
+    private final FileStorageManager storageManager;
+    private final Map<String, Media> mediaMap = new LinkedHashMap<>();
+
+    /**
+     * Create a new SerializationStorageEngine on the data directory of the
+     * application
+     */
+    public SerializationStorageEngine() {
+        this(FileStorageManager.getInstance());
+    }
+
+    /**
+     * Create a new SerializationStorageEngine
+     *
+     * @param storageManager : The manager of the data files
+     */
+    SerializationStorageEngine(FileStorageManager storageManager) {
+        this.storageManager = storageManager;
+    }
+
+    @Override
+    public synchronized List<Media> load() throws LibraryException {
+        storageManager.setSnapshotMode(FileStorageManager.SnapshotMode.STREAM);
+        List<Media> mediaList = storageManager.loadMedia();
+        mediaMap.clear();
+        for (Media media : mediaList) {
+            mediaMap.put(media.getId(), media);
+        }
+        return mediaList;
+    }
+
+    @Override
+    public synchronized void persist(Media media) throws LibraryException {
+        mediaMap.put(media.getId(), media);
+        flush();
+    }
+
+    @Override
+    public synchronized void persistAll(Collection<Media> mediaList) throws LibraryException {
+        for (Media media : mediaList) {
+            mediaMap.put(media.getId(), media);
+        }
+        flush();
+    }
+
+    @Override
+    public synchronized void applyChanges(Collection<Media> mediaList, Collection<String> deletedIds)
+            throws LibraryException {
+        for (Media media : mediaList) {
+            mediaMap.put(media.getId(), media);
+        }
+        for (String id : deletedIds) {
+            mediaMap.remove(id);
+        }
+        flush();
+    }
+
+    @Override
+    public synchronized void delete(String id) throws LibraryException {
+        mediaMap.remove(id);
+        flush();
+    }
+
+    @Override
+    public synchronized void flush() throws LibraryException {
+        storageManager.saveSerializedMedia(mediaMap.values());
+    }
+
+    @Override
+    public void close() {
+        // Every change is already written
+    }
+
+    @Override
+    public String getName() {
+        return "serialization";
+    }
+}
@@ -0,0 +1,73 @@
+package repository;
+
+import exception.LibraryException;
+import model.media.Media;
+import java.util.Collection;
+import java.util.List;
+
+// Interface for the persistence strategies of the media repository (Strategy
+// pattern), so that the storage can be swapped without changing the services
+public interface StorageEngine {
+    /**
+     * Load all the persisted media
+     * 
+     * @return List of the persisted media
+     * @throws LibraryException : If the media cannot be loaded
+     */
+    List<Media> load() throws LibraryException;
+
+    /**
+     * Persist a saved or updated media
+     * 
+     * @param media : The media to persist
+     * @throws LibraryException : If the media cannot be persisted
+     */
+    void persist(Media media) throws LibraryException;
+
+    /**
+     * Persist several saved or updated media
+     * 
+     * @param mediaList : The media to persist
+     * @throws LibraryException : If the media cannot be persisted
+     */
+    void persistAll(Collection<Media> mediaList) throws LibraryException;
+
+    /**
+     * Apply a batch of changes in a single storage pass: the saved or updated
+     * media are persisted and the deleted media are removed together
+     * 
+     * @param mediaList  : The saved or updated media
+     * @param deletedIds : The IDs of the deleted media
+     * @throws LibraryException : If the changes cannot be written
+     */
+    void applyChanges(Collection<Media> mediaList, Collection<String> deletedIds) throws LibraryException;
+
+    /**
+     * Remove a media from the storage
+     * 
+     * @param id : The ID of the media to remove
+     * @throws LibraryException : If the media cannot be removed
+     */
+    void delete(String id) throws LibraryException;
+
+    /**
+     * Write any pending change to the durable storage
+     * 
+     * @throws LibraryException : If the changes cannot be written
+     */
+    void flush() throws LibraryException;
+
+    /**
+     * Write the pending changes and release the resources of the engine
+     * 
+     * @throws LibraryException : If the changes cannot be written
+     */
+    void close() throws LibraryException;
+
+    /**
+     * Get the engine name
+     * 
+     * @return the engine name
+     */
+    String getName();
+}
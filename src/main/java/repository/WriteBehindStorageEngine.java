@@ -0,0 +1,220 @@
+package repository;
+
+import exception.LibraryException;
+import model.media.Media;
+import util.LoggerManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+// Decorator of a storage engine with write-behind persistence (group commit).
+// Changes are buffered in memory and a background flusher writes them to the
+// decorated engine every flush interval, or as soon as the buffer reaches the
+// maximum number of pending changes. Several changes to the same media are
+// merged into a single write.
+public class WriteBehindStorageEngine implements StorageEngine {
+    private static final Logger LOGGER = LoggerManager.getLogger(WriteBehindStorageEngine.class.getName());
+    private final StorageEngine delegate;
+    private final int maxPendingChanges;
+    private final ScheduledExecutorService flusher;
+    // Held while a batch is written, so that batches reach the delegate in order
+    private final Object flushLock = new Object();
+    private Map<String, Media> pendingUpdates = new LinkedHashMap<>();
+    private Set<String> pendingDeletions = new LinkedHashSet<>();
+    private boolean closed;
+
+    /**
+     * Create a new WriteBehindStorageEngine
+     *
+     * @param delegate            : The engine that persists the changes
+     * @param flushIntervalMillis : The maximum delay before a change is written
+     * @param maxPendingChanges   : The number of pending changes that triggers a
+     *                            flush
+     */
+    public WriteBehindStorageEngine(StorageEngine delegate, long flushIntervalMillis, int maxPendingChanges) {
+        this.delegate = delegate;
+        this.maxPendingChanges = maxPendingChanges;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "media-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flushPendingChanges, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        LOGGER.info("Write-behind enabled on " + delegate.getName() + " storage, interval: " + flushIntervalMillis
+                + " ms, max pending changes: " + maxPendingChanges);
+    }
+
+    @Override
+    public List<Media> load() throws LibraryException {
+        return delegate.load();
+    }
+
+    @Override
+    public void persist(Media media) throws LibraryException {
+        synchronized (this) {
+            ensureOpen();
+            pendingDeletions.remove(media.getId());
+            pendingUpdates.put(media.getId(), media);
+        }
+        flushIfFull();
+    }
+
+    @Override
+    public void persistAll(Collection<Media> mediaList) throws LibraryException {
+        synchronized (this) {
+            ensureOpen();
+            for (Media media : mediaList) {
+                pendingDeletions.remove(media.getId());
+                pendingUpdates.put(media.getId(), media);
+            }
+        }
+        flushIfFull();
+    }
+
+    @Override
+    public void applyChanges(Collection<Media> mediaList, Collection<String> deletedIds) throws LibraryException {
+        synchronized (this) {
+            ensureOpen();
+            for (Media media : mediaList) {
+                pendingDeletions.remove(media.getId());
+                pendingUpdates.put(media.getId(), media);
+            }
+            for (String id : deletedIds) {
+                pendingUpdates.remove(id);
+                pendingDeletions.add(id);
+            }
+        }
+        flushIfFull();
+    }
+
+    @Override
+    public void delete(String id) throws LibraryException {
+        synchronized (this) {
+            ensureOpen();
+            pendingUpdates.remove(id);
+            pendingDeletions.add(id);
+        }
+        flushIfFull();
+    }
+
+    @Override
+    public void flush() throws LibraryException {
+        writePendingChanges();
+        delegate.flush();
+    }
+
+    @Override
+    public void close() throws LibraryException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writePendingChanges();
+        delegate.close();
+        LOGGER.info("Write-behind storage drained and closed");
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName() + " (write-behind)";
+    }
+
+    /**
+     * Get the number of changes waiting to be written
+     *
+     * @return the number of pending changes
+     */
+    public synchronized int getPendingChanges() {
+        return pendingUpdates.size() + pendingDeletions.size();
+    }
+
+    // Ask the flusher for an early flush once the buffer is full. The flusher
+    // refuses the task once the engine is closed: the change was buffered before
+    // the close, which writes it when draining the buffer
+    private void flushIfFull() {
+        synchronized (this) {
+            if (closed || pendingUpdates.size() + pendingDeletions.size() < maxPendingChanges) {
+                return;
+            }
+        }
+        try {
+            flusher.execute(this::flushPendingChanges);
+        } catch (RejectedExecutionException e) {
+            LOGGER.fine("Write-behind closed, pending changes drained by the close");
+        }
+    }
+
+    // Task of the flusher, errors are logged and the changes kept for a retry
+    private void flushPendingChanges() {
+        try {
+            writePendingChanges();
+        } catch (LibraryException e) {
+            LOGGER.severe("Write-behind flush failed, changes kept for retry: " + e.getMessage());
+        }
+    }
+
+    // Swap the buffers and write the collected changes in a single batch
+    private void writePendingChanges() throws LibraryException {
+        synchronized (flushLock) {
+            Map<String, Media> updates;
+            Set<String> deletions;
+            synchronized (this) {
+                if (pendingUpdates.isEmpty() && pendingDeletions.isEmpty()) {
+                    return;
+                }
+                updates = pendingUpdates;
+                deletions = pendingDeletions;
+                pendingUpdates = new LinkedHashMap<>();
+                pendingDeletions = new LinkedHashSet<>();
+            }
+
+            try {
+                // A single pass of the delegate for the whole batch
+                delegate.applyChanges(new ArrayList<>(updates.values()), new ArrayList<>(deletions));
+                LOGGER.fine("Write-behind flushed " + updates.size() + " updates and " + deletions.size()
+                        + " deletions");
+            } catch (LibraryException e) {
+                requeue(updates, deletions);
+                throw e;
+            }
+        }
+    }
+
+    // Put back the changes of a failed batch, unless a newer change replaced them
+    private synchronized void requeue(Map<String, Media> updates, Set<String> deletions) {
+        for (Map.Entry<String, Media> entry : updates.entrySet()) {
+            if (!pendingUpdates.containsKey(entry.getKey()) && !pendingDeletions.contains(entry.getKey())) {
+                pendingUpdates.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (String id : deletions) {
+            if (!pendingUpdates.containsKey(id)) {
+                pendingDeletions.add(id);
+            }
+        }
+    }
+
+    private void ensureOpen() throws LibraryException {
+        if (closed) {
+            throw new LibraryException("The write-behind storage is closed");
+        }
+    }
+}
@@ -0,0 +1,440 @@
+package service;
+
+import exception.LibraryException;
+import model.media.Media;
+import query.MediaQuery;
+import query.ScoredMedia;
+import util.LoggerManager;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+// Asynchronous facade of the MediaService: every call returns at once with a
+// CompletableFuture, so a caller can start many lookups and combine their
+// results without blocking a thread on each. Reads run in parallel on a pool of
+// read threads; writes run one at a time on a single write thread, in the order
+// they were submitted. A failed call completes its future exceptionally with
+// the LibraryException of the service. Reads are not ordered after the pending
+// writes: to read the result of a write, chain the read on its future.
+// Checkouts and checkins are decided by compare-and-set in the repository, so
+// they run in parallel on the read threads, not ordered with the writes either
+public class AsyncMediaService {
+    private static final Logger LOGGER = LoggerManager.getLogger(AsyncMediaService.class.getName());
+    // Time given to the pending writes to complete on shutdown
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+    private static AsyncMediaService instance;
+    private final MediaService mediaService;
+    private final ExecutorService readExecutor;
+    private final ExecutorService writeExecutor;
+
+    // Call of the media service, run by an executor
+    @FunctionalInterface
+    private interface MediaCall<T> {
+        T call() throws LibraryException;
+    }
+
+    // Call of the media service without result
+    @FunctionalInterface
+    private interface MediaAction {
+        void run() throws LibraryException;
+    }
+
+    /**
+     * AsyncMediaService constructor
+     *
+     * @param mediaService : The service running the calls
+     * @param readThreads  : The number of threads running the reads
+     */
+    public AsyncMediaService(MediaService mediaService, int readThreads) {
+        if (readThreads <= 0) {
+            throw new IllegalArgumentException("The number of read threads must be positive");
+        }
+        this.mediaService = mediaService;
+        this.readExecutor = Executors.newFixedThreadPool(readThreads, daemonThreads("media-read-"));
+        this.writeExecutor = Executors.newSingleThreadExecutor(daemonThreads("media-write-"));
+        LOGGER.info("Starting the asynchronous media service with " + readThreads + " read threads");
+    }
+
+    /**
+     * Get instance of the service, with a read thread per available processor
+     *
+     * @return The instance of the service
+     */
+    public static synchronized AsyncMediaService getInstance() {
+        if (instance == null) {
+            instance = new AsyncMediaService(MediaService.getInstance(), Runtime.getRuntime().availableProcessors());
+        }
+        return instance;
+    }
+
+    /**
+     * Shutdown the service: the new calls are refused, the pending writes and
+     * loans are completed. The wrapped MediaService is not shut down
+     */
+    public void shutdown() {
+        readExecutor.shutdown();
+        writeExecutor.shutdown();
+        try {
+            if (!writeExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    || !readExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.warning("Pending media writes or loans not completed at shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LOGGER.info("AsyncMediaService shutdown successfully");
+    }
+
+    /**
+     * Save media in repository
+     *
+     * @param media : The media to save
+     * @return The future of the saved media
+     */
+    public CompletableFuture<Media> saveMedia(Media media) {
+        return write(() -> mediaService.saveMedia(media));
+    }
+
+    /**
+     * Restore the previous state of a media
+     *
+     * @param mediaId : The ID of the media to restore
+     * @return The future of the restored media, or of null if no previous state
+     *         exists
+     */
+    public CompletableFuture<Media> restoreMediaChanges(String mediaId) {
+        return write(() -> mediaService.restoreMediaChanges(mediaId));
+    }
+
+    /**
+     * Find media by ID
+     *
+     * @param id : The ID of the media to find
+     * @return The future of the found media, failing with a
+     *         MediaNotFoundException if not found
+     */
+    public CompletableFuture<Media> findMediaById(String id) {
+        return read(() -> mediaService.findMediaById(id));
+    }
+
+    /**
+     * Find all media
+     *
+     * @return The future of the list of all media
+     */
+    public CompletableFuture<List<Media>> findAllMedia() {
+        return read(mediaService::findAllMedia);
+    }
+
+    /**
+     * Delete media
+     *
+     * @param id : The ID of the media to delete
+     * @return The future of the deletion
+     */
+    public CompletableFuture<Void> deleteMedia(String id) {
+        return write(() -> mediaService.deleteMedia(id));
+    }
+
+    /**
+     * Update media
+     *
+     * @param media : The media to update
+     * @return The future of the updated media
+     */
+    public CompletableFuture<Media> updateMedia(Media media) {
+        return write(() -> mediaService.updateMedia(media));
+    }
+
+    /**
+     * Save several media at once, either all or none
+     *
+     * @param mediaList : The media to save
+     * @return The future of the saved media
+     */
+    public CompletableFuture<List<Media>> saveAllMedia(Collection<Media> mediaList) {
+        return write(() -> mediaService.saveAllMedia(mediaList));
+    }
+
+    /**
+     * Update several media at once, either all or none
+     *
+     * @param mediaList : The media to update
+     * @return The future of the updated media
+     */
+    public CompletableFuture<List<Media>> updateAllMedia(Collection<Media> mediaList) {
+        return write(() -> mediaService.updateAllMedia(mediaList));
+    }
+
+    /**
+     * Delete several media at once, either all or none
+     *
+     * @param ids : The IDs of the media to delete
+     * @return The future of the deletion
+     */
+    public CompletableFuture<Void> deleteAllMedia(Collection<String> ids) {
+        return write(() -> mediaService.deleteAllMedia(ids));
+    }
+
+    /**
+     * Find media by title, matching every word of the title
+     *
+     * @param title : The title to search
+     * @return The future of the found media
+     */
+    public CompletableFuture<List<Media>> findMediaByTitle(String title) {
+        return read(() -> mediaService.findMediaByTitle(title));
+    }
+
+    /**
+     * Find the media with the most relevant titles, best first
+     *
+     * @param title : The title to search
+     * @param limit : The maximum number of results
+     * @return The future of the found media with their relevance score
+     */
+    public CompletableFuture<List<ScoredMedia>> findMediaByTitleRanked(String title, int limit) {
+        return read(() -> mediaService.findMediaByTitleRanked(title, limit));
+    }
+
+    /**
+     * Find media by title tolerating typos in the words
+     *
+     * @param title : The title to search
+     * @return The future of the found media
+     */
+    public CompletableFuture<List<Media>> findMediaByTitleFuzzy(String title) {
+        return read(() -> mediaService.findMediaByTitleFuzzy(title));
+    }
+
+    /**
+     * Find media whose title contains the given text anywhere
+     *
+     * @param text : The text to search in the titles
+     * @return The future of the found media
+     */
+    public CompletableFuture<List<Media>> findMediaByTitleContaining(String text) {
+        return read(() -> mediaService.findMediaByTitleContaining(text));
+    }
+
+    /**
+     * Find media by publication year
+     *
+     * @param year : The publication year
+     * @return The future of the found media
+     */
+    public CompletableFuture<List<Media>> findMediaByPublicationYear(int year) {
+        return read(() -> mediaService.findMediaByPublicationYear(year));
+    }
+
+    /**
+     * Find books by author, ignoring case
+     *
+     * @param author : The author
+     * @return The future of the found books
+     */
+    public CompletableFuture<List<Media>> findMediaByAuthor(String author) {
+        return read(() -> mediaService.findMediaByAuthor(author));
+    }
+
+    /**
+     * Find books whose author starts with a prefix, ignoring case
+     *
+     * @param prefix : The prefix of the author
+     * @return The future of the found books
+     */
+    public CompletableFuture<List<Media>> findMediaByAuthorPrefix(String prefix) {
+        return read(() -> mediaService.findMediaByAuthorPrefix(prefix));
+    }
+
+    /**
+     * Find books and magazines by publisher, ignoring case
+     *
+     * @param publisher : The publisher
+     * @return The future of the found media
+     */
+    public CompletableFuture<List<Media>> findMediaByPublisher(String publisher) {
+        return read(() -> mediaService.findMediaByPublisher(publisher));
+    }
+
+    /**
+     * Find books and magazines whose publisher starts with a prefix, ignoring case
+     *
+     * @param prefix : The prefix of the publisher
+     * @return The future of the found media
+     */
+    public CompletableFuture<List<Media>> findMediaByPublisherPrefix(String prefix) {
+        return read(() -> mediaService.findMediaByPublisherPrefix(prefix));
+    }
+
+    /**
+     * Suggest media whose title or ID starts with a prefix, for autocompletion
+     *
+     * @param prefix : The beginning of a title or ID
+     * @param limit  : The maximum number of suggestions
+     * @return The future of the suggested media
+     */
+    public CompletableFuture<List<Media>> suggest(String prefix, int limit) {
+        return read(() -> mediaService.suggest(prefix, limit));
+    }
+
+    /**
+     * Find the media matching a query built with the MediaQueryBuilder
+     *
+     * @param query : The query
+     * @return The future of the found media
+     */
+    public CompletableFuture<List<Media>> findMedia(MediaQuery query) {
+        return read(() -> mediaService.findMedia(query));
+    }
+
+    /**
+     * Count the media matching a query built with the MediaQueryBuilder
+     *
+     * @param query : The query
+     * @return The future of the number of matching media
+     */
+    public CompletableFuture<Integer> countMedia(MediaQuery query) {
+        return read(() -> mediaService.countMedia(query));
+    }
+
+    /**
+     * Find media published between two years, both included
+     *
+     * @param fromYear : The first year of the range
+     * @param toYear   : The last year of the range
+     * @return The future of the found media, sorted by publication date
+     */
+    public CompletableFuture<List<Media>> findMediaByPublicationYearRange(int fromYear, int toYear) {
+        return read(() -> mediaService.findMediaByPublicationYearRange(fromYear, toYear));
+    }
+
+    /**
+     * Find media published between two dates, both included
+     *
+     * @param from : The first date of the range
+     * @param to   : The last date of the range
+     * @return The future of the found media, sorted by publication date
+     */
+    public CompletableFuture<List<Media>> findMediaByPublicationDateBetween(LocalDate from, LocalDate to) {
+        return read(() -> mediaService.findMediaByPublicationDateBetween(from, to));
+    }
+
+    /**
+     * Add media to collection
+     *
+     * @param collectionId : The ID of the collection
+     * @param mediaId      : The ID of the media to add
+     * @return The future of the addition
+     */
+    public CompletableFuture<Void> addMediaToCollection(String collectionId, String mediaId) {
+        return write(() -> mediaService.addMediaToCollection(collectionId, mediaId));
+    }
+
+    /**
+     * Remove media from collection
+     *
+     * @param collectionId : The ID of the collection
+     * @param mediaId      : The ID of the media to remove
+     * @return The future of the removal
+     */
+    public CompletableFuture<Void> removeMediaFromCollection(String collectionId, String mediaId) {
+        return write(() -> mediaService.removeMediaFromCollection(collectionId, mediaId));
+    }
+
+    /**
+     * Check out a book or magazine, making it unavailable
+     *
+     * @param id : The ID of the media to check out
+     * @return The future of the checked out media
+     */
+    public CompletableFuture<Media> checkout(String id) {
+        return loan(() -> mediaService.checkout(id));
+    }
+
+    /**
+     * Check in a checked out book or magazine, making it available again
+     *
+     * @param id : The ID of the media to check in
+     * @return The future of the checked in media
+     */
+    public CompletableFuture<Media> checkin(String id) {
+        return loan(() -> mediaService.checkin(id));
+    }
+
+    /**
+     * Check out several books and magazines at once, all or none
+     *
+     * @param ids : The IDs of the media to check out
+     * @return The future of the checked out media
+     */
+    public CompletableFuture<List<Media>> checkoutAll(Collection<String> ids) {
+        return loan(() -> mediaService.checkoutAll(ids));
+    }
+
+    /**
+     * Check in several checked out books and magazines at once, all or none
+     *
+     * @param ids : The IDs of the media to check in
+     * @return The future of the checked in media
+     */
+    public CompletableFuture<List<Media>> checkinAll(Collection<String> ids) {
+        return loan(() -> mediaService.checkinAll(ids));
+    }
+
+    private <T> CompletableFuture<T> read(MediaCall<T> call) {
+        return submit(call, readExecutor);
+    }
+
+    private <T> CompletableFuture<T> write(MediaCall<T> call) {
+        return submit(call, writeExecutor);
+    }
+
+    // Loans do not wait for the writes: concurrent checkouts of the same media
+    // are decided by their compare-and-set, and share the storage passes
+    private <T> CompletableFuture<T> loan(MediaCall<T> call) {
+        return submit(call, readExecutor);
+    }
+
+    private CompletableFuture<Void> write(MediaAction action) {
+        return submit(() -> {
+            action.run();
+            return null;
+        }, writeExecutor);
+    }
+
+    private static <T> CompletableFuture<T> submit(MediaCall<T> call, Executor executor) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(call.call());
+                } catch (LibraryException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new LibraryException("The asynchronous media service is shut down"));
+        }
+        return future;
+    }
+
+    // Daemon threads, so that idle executors do not keep the application running
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,49 @@
+package service;
+
+import builder.MediaQueryBuilder;
+import query.FacetCounts;
+import query.MediaQuery;
+import repository.MediaRepository;
+import util.LoggerManager;
+import java.util.logging.Logger;
+
+// Service for the facet counts of the media, for dashboards and summaries: the
+// number of media by publication year, publisher, type and availability. The
+// repository keeps the counts up to date on every change, so reading them does
+// not copy or group the media
+public class FacetService {
+    private static final Logger LOGGER = LoggerManager.getLogger(FacetService.class.getName());
+    private static FacetService instance;
+    private final MediaRepository mediaRepository;
+
+    private FacetService() {
+        this.mediaRepository = MediaRepository.getInstance();
+    }
+
+    public static synchronized FacetService getInstance() {
+        if (instance == null) {
+            instance = new FacetService();
+        }
+        return instance;
+    }
+
+    /**
+     * Get the facet counts of all the media
+     * 
+     * @return The facet counts
+     */
+    public FacetCounts getFacets() {
+        return getFacets(new MediaQueryBuilder().build());
+    }
+
+    /**
+     * Get the facet counts of the media matching a query
+     * 
+     * @param query : The query
+     * @return The facet counts
+     */
+    public FacetCounts getFacets(MediaQuery query) {
+        LOGGER.fine("Facet counts for query: " + query);
+        return mediaRepository.getFacets(query);
+    }
+}
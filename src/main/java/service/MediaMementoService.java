@@ -29,8 +29,16 @@ public class MediaMementoService {
      * @param media : The media to save
      */
     public void saveState(Media media) {
-        String mediaId = media.getId();
-        MediaMemento memento = new MediaMemento(media);
+        saveState(new MediaMemento(media));
+    }
+
+    /**
+     * Save a state of a media taken earlier
+     * 
+     * @param memento : The state to save
+     */
+    public void saveState(MediaMemento memento) {
+        String mediaId = memento.getId();
 
         if (!history.containsKey(mediaId)) {
             history.put(mediaId, new Stack<>());
@@ -1,28 +1,41 @@
 package service;
 
 import exception.LibraryException;
+import exception.MediaAvailabilityException;
 import exception.MediaNotFoundException;
 import model.media.Media;
 import model.media.MediaCollection;
+import query.MediaQuery;
+import query.ScoredMedia;
 import repository.MediaRepository;
 import util.LoggerManager;
 import memento.MediaMemento;
+import observer.MediaChangeBatch;
 import observer.MediaChangeExecutor;
 import observer.MediaChangeObserver;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.logging.Logger;
 
 // Service for media management
 public class MediaService {
     private static final Logger LOGGER = LoggerManager.getLogger(MediaService.class.getName());
+    // Memory budget of the cached title and year search results
+    private static final long SEARCH_CACHE_BYTES = 8L * 1024 * 1024;
     private static MediaService instance;
     private final MediaRepository mediaRepository;
     private final MediaChangeExecutor mediaChangeSubject;
+    private final SearchResultCache searchResultCache;
 
     private MediaService() {
         this.mediaRepository = MediaRepository.getInstance();
         this.mediaChangeSubject = new MediaChangeExecutor();
+        this.searchResultCache = new SearchResultCache(SEARCH_CACHE_BYTES);
+        // Invalidated in the thread of the change, so a search never sees a stale result
+        mediaChangeSubject.addSynchronousObserver(searchResultCache);
         LOGGER.info("Starting the media service");
     }
 
@@ -44,11 +57,27 @@ public class MediaService {
         mediaChangeSubject.removeObserver(observer);
     }
 
+    /**
+     * Get the cache of the title and year search results, for its metrics
+     * 
+     * @return The search result cache
+     */
+    public SearchResultCache getSearchResultCache() {
+        return searchResultCache;
+    }
+
     /**
      * Shutdown the service
      */
     public void shutdown() {
+        LOGGER.info("Search cache at shutdown: " + searchResultCache);
         mediaChangeSubject.shutdown();
+        try {
+            // Drain the changes not yet written by the storage engine
+            mediaRepository.close();
+        } catch (LibraryException e) {
+            LOGGER.severe("Error closing the media storage: " + e.getMessage());
+        }
         LOGGER.info("MediaService shutdown successfully");
     }
 
@@ -144,7 +173,9 @@ public class MediaService {
             restoredMedia.setAvailable(currentMedia.isAvailable());
 
             // Save the restored media
-            return mediaRepository.update(restoredMedia);
+            Media updatedMedia = mediaRepository.update(restoredMedia);
+            mediaChangeSubject.notifyMediaUpdated(currentMedia, updatedMedia);
+            return updatedMedia;
 
         } catch (Exception e) {
             LOGGER.severe("Error restoring media state: " + e.getMessage());
@@ -210,13 +241,207 @@ public class MediaService {
     }
 
     /**
-     * Find media by title
+     * Begin a unit of work to change copies of several media and replace the
+     * media by them together; the change is notified and the media states are
+     * saved in the history on commit
+     * 
+     * @return The unit of work, to commit or roll back
+     */
+    public UnitOfWork beginUnitOfWork() {
+        return new UnitOfWork(mediaRepository, mediaChangeSubject);
+    }
+
+    /**
+     * Save several media at once, with a single storage pass and a single
+     * notification: either all the media are saved or none is
+     * 
+     * @param mediaList : The media to save
+     * @return The saved media
+     * @throws LibraryException : If a media is invalid or the batch cannot be
+     *                          saved
+     */
+    public List<Media> saveAllMedia(Collection<Media> mediaList) throws LibraryException {
+        LOGGER.info("Media batch save request");
+        List<Media> savedMedia = mediaRepository.saveAll(mediaList);
+        mediaChangeSubject.notifyMediaBatchChanged(MediaChangeBatch.added(savedMedia));
+        return savedMedia;
+    }
+
+    /**
+     * Update several media at once, with a single storage pass and a single
+     * notification: either all the media are updated or none is
+     * 
+     * @param mediaList : The media to update
+     * @return The updated media
+     * @throws LibraryException : If a media is not found or the batch cannot be
+     *                          updated
+     */
+    public List<Media> updateAllMedia(Collection<Media> mediaList) throws LibraryException {
+        if (mediaList == null) {
+            throw new LibraryException("Impossible to update a null batch of media");
+        }
+        LOGGER.info("Media batch update request: " + mediaList.size() + " media");
+        // Save the current states before updating
+        List<Media> oldMedia = new ArrayList<>(mediaList.size());
+        for (Media media : mediaList) {
+            if (media == null) {
+                throw new LibraryException("Impossible to update a null media");
+            }
+            oldMedia.add(mediaRepository.findById(media.getId()));
+        }
+        for (Media media : oldMedia) {
+            MediaMementoService.getInstance().saveState(media);
+        }
+        List<Media> updatedMedia = mediaRepository.updateAll(mediaList);
+        mediaChangeSubject.notifyMediaBatchChanged(MediaChangeBatch.updated(oldMedia, updatedMedia));
+        return updatedMedia;
+    }
+
+    /**
+     * Delete several media at once, with a single storage pass and a single
+     * notification: either all the media are deleted or none is
+     * 
+     * @param ids : The IDs of the media to delete
+     * @throws LibraryException : If a media is not found or the batch cannot be
+     *                          deleted
+     */
+    public void deleteAllMedia(Collection<String> ids) throws LibraryException {
+        if (ids == null || ids.contains(null)) {
+            throw new LibraryException("Impossible to delete a null media ID");
+        }
+        LOGGER.info("Media batch delete request: " + ids.size() + " media");
+        // Save the states before deleting
+        List<Media> mediaToDelete = new ArrayList<>(ids.size());
+        for (String id : new LinkedHashSet<>(ids)) {
+            mediaToDelete.add(mediaRepository.findById(id));
+        }
+        for (Media media : mediaToDelete) {
+            MediaMementoService.getInstance().saveState(media);
+        }
+        mediaRepository.deleteAll(ids);
+        mediaChangeSubject.notifyMediaBatchChanged(MediaChangeBatch.removed(mediaToDelete));
+    }
+
+    /**
+     * Check out a book or magazine, making it unavailable. The availability is
+     * compared and set atomically: of concurrent checkouts of the same media,
+     * exactly one succeeds, without a lock. The checkout returns once written,
+     * concurrent checkouts sharing the storage passes of their commit group;
+     * only the storage engine may serialize its own writes. The observers are
+     * notified of an update of the media, changed in place
+     * 
+     * @param id : The ID of the media to check out
+     * @return The checked out media
+     * @throws MediaAvailabilityException : If the media is already checked out
+     * @throws LibraryException           : If the media is not found, is a
+     *                                    collection or cannot be persisted
+     */
+    public Media checkout(String id) throws LibraryException {
+        LOGGER.fine("Checkout request for media with ID: " + id);
+        Media media = mediaRepository.compareAndSetAvailable(id, true, false);
+        mediaChangeSubject.notifyMediaUpdated(media, media);
+        return media;
+    }
+
+    /**
+     * Check in a checked out book or magazine, making it available again. The
+     * observers are notified of an update of the media, changed in place
+     * 
+     * @param id : The ID of the media to check in
+     * @return The checked in media
+     * @throws MediaAvailabilityException : If the media is not checked out
+     * @throws LibraryException           : If the media is not found, is a
+     *                                    collection or cannot be persisted
+     */
+    public Media checkin(String id) throws LibraryException {
+        LOGGER.fine("Checkin request for media with ID: " + id);
+        Media media = mediaRepository.compareAndSetAvailable(id, false, true);
+        mediaChangeSubject.notifyMediaUpdated(media, media);
+        return media;
+    }
+
+    /**
+     * Check out several books and magazines at once, with a single storage
+     * pass and a single notification: either all the media are checked out or
+     * none is
+     * 
+     * @param ids : The IDs of the media to check out
+     * @return The checked out media
+     * @throws MediaAvailabilityException : If some media are already checked
+     *                                    out, with their IDs
+     * @throws LibraryException           : If a media is not found, is a
+     *                                    collection or the batch cannot be
+     *                                    persisted
+     */
+    public List<Media> checkoutAll(Collection<String> ids) throws LibraryException {
+        LOGGER.fine("Batch checkout request");
+        List<Media> checkedOut = mediaRepository.compareAndSetAllAvailable(ids, true, false);
+        mediaChangeSubject.notifyMediaBatchChanged(MediaChangeBatch.updated(checkedOut, checkedOut));
+        return checkedOut;
+    }
+
+    /**
+     * Check in several checked out books and magazines at once, with a single
+     * storage pass and a single notification: either all the media are checked
+     * in or none is
+     * 
+     * @param ids : The IDs of the media to check in
+     * @return The checked in media
+     * @throws MediaAvailabilityException : If some media are not checked out,
+     *                                    with their IDs
+     * @throws LibraryException           : If a media is not found, is a
+     *                                    collection or the batch cannot be
+     *                                    persisted
+     */
+    public List<Media> checkinAll(Collection<String> ids) throws LibraryException {
+        LOGGER.fine("Batch checkin request");
+        List<Media> checkedIn = mediaRepository.compareAndSetAllAvailable(ids, false, true);
+        mediaChangeSubject.notifyMediaBatchChanged(MediaChangeBatch.updated(checkedIn, checkedIn));
+        return checkedIn;
+    }
+
+    /**
+     * Find media by title, matching every word of the title
      * 
      * @return The found media
      */
     public List<Media> findMediaByTitle(String title) {
         LOGGER.info("Media search by title: " + title);
-        return mediaRepository.findByTitle(title);
+        return searchResultCache.getByTitle(title, () -> mediaRepository.findByTitle(title));
+    }
+
+    /**
+     * Find the media with the most relevant titles, best first
+     * 
+     * @param title : The title to search
+     * @param limit : The maximum number of results
+     * @return The found media with their relevance score
+     */
+    public List<ScoredMedia> findMediaByTitleRanked(String title, int limit) {
+        LOGGER.info("Ranked media search by title: " + title);
+        return mediaRepository.findByTitleRanked(title, limit);
+    }
+
+    /**
+     * Find media by title tolerating typos in the words
+     * 
+     * @param title : The title to search
+     * @return The found media
+     */
+    public List<Media> findMediaByTitleFuzzy(String title) {
+        LOGGER.info("Media fuzzy search by title: " + title);
+        return mediaRepository.findByTitleFuzzy(title);
+    }
+
+    /**
+     * Find media whose title contains the given text anywhere
+     * 
+     * @param text : The text to search in the titles
+     * @return The found media
+     */
+    public List<Media> findMediaByTitleContaining(String text) {
+        LOGGER.info("Media search by title containing: " + text);
+        return mediaRepository.findByTitleContaining(text);
     }
 
     /**
@@ -226,7 +451,107 @@ public class MediaService {
      */
     public List<Media> findMediaByPublicationYear(int year) {
         LOGGER.info("Search media by publication year: " + year);
-        return mediaRepository.findByPublicationYear(year);
+        return searchResultCache.getByPublicationYear(year, () -> mediaRepository.findByPublicationYear(year));
+    }
+
+    /**
+     * Find books by author, ignoring case
+     * 
+     * @param author : The author
+     * @return The found books
+     */
+    public List<Media> findMediaByAuthor(String author) {
+        LOGGER.info("Search media by author: " + author);
+        return mediaRepository.findByAuthor(author);
+    }
+
+    /**
+     * Find books whose author starts with a prefix, ignoring case
+     * 
+     * @param prefix : The prefix of the author
+     * @return The found books
+     */
+    public List<Media> findMediaByAuthorPrefix(String prefix) {
+        LOGGER.info("Search media by author prefix: " + prefix);
+        return mediaRepository.findByAuthorPrefix(prefix);
+    }
+
+    /**
+     * Find books and magazines by publisher, ignoring case
+     * 
+     * @param publisher : The publisher
+     * @return The found media
+     */
+    public List<Media> findMediaByPublisher(String publisher) {
+        LOGGER.info("Search media by publisher: " + publisher);
+        return mediaRepository.findByPublisher(publisher);
+    }
+
+    /**
+     * Find books and magazines whose publisher starts with a prefix, ignoring case
+     * 
+     * @param prefix : The prefix of the publisher
+     * @return The found media
+     */
+    public List<Media> findMediaByPublisherPrefix(String prefix) {
+        LOGGER.info("Search media by publisher prefix: " + prefix);
+        return mediaRepository.findByPublisherPrefix(prefix);
+    }
+
+    /**
+     * Suggest media whose title or ID starts with a prefix, for autocompletion
+     * 
+     * @param prefix : The beginning of a title or ID
+     * @param limit  : The maximum number of suggestions
+     * @return The suggested media
+     */
+    public List<Media> suggest(String prefix, int limit) {
+        return mediaRepository.suggest(prefix, limit);
+    }
+
+    /**
+     * Find the media matching a query built with the MediaQueryBuilder
+     * 
+     * @param query : The query
+     * @return The found media
+     */
+    public List<Media> findMedia(MediaQuery query) {
+        LOGGER.info("Search media by query: " + query);
+        return mediaRepository.findByQuery(query);
+    }
+
+    /**
+     * Count the media matching a query built with the MediaQueryBuilder
+     * 
+     * @param query : The query
+     * @return The number of matching media
+     */
+    public int countMedia(MediaQuery query) {
+        return mediaRepository.countByQuery(query);
+    }
+
+    /**
+     * Find media published between two years, both included
+     * 
+     * @param fromYear : The first year of the range
+     * @param toYear   : The last year of the range
+     * @return The found media, sorted by publication date
+     */
+    public List<Media> findMediaByPublicationYearRange(int fromYear, int toYear) {
+        LOGGER.info("Search media by publication years: " + fromYear + " - " + toYear);
+        return mediaRepository.findByPublicationYearRange(fromYear, toYear);
+    }
+
+    /**
+     * Find media published between two dates, both included
+     * 
+     * @param from : The first date of the range
+     * @param to   : The last date of the range
+     * @return The found media, sorted by publication date
+     */
+    public List<Media> findMediaByPublicationDateBetween(LocalDate from, LocalDate to) {
+        LOGGER.info("Search media by publication dates: " + from + " - " + to);
+        return mediaRepository.findByPublicationDateBetween(from, to);
     }
 
     /**
@@ -249,16 +574,16 @@ public class MediaService {
             throw new LibraryException("The specified ID does not match a collection");
         }
 
-        // Save states before modifying
-        MediaMementoService.getInstance().saveState(collection);
-        MediaMementoService.getInstance().saveState(media);
-
-        // Set media as unavailable when added to a collection
-        media.setAvailable(false);
-        mediaRepository.update(media);
+        // Both changes are persisted together, or rolled back together
+        try (UnitOfWork unitOfWork = beginUnitOfWork()) {
+            MediaCollection collectionCopy = (MediaCollection) unitOfWork.registerDirty(collection);
+            Media mediaCopy = unitOfWork.registerDirty(media);
 
-        ((MediaCollection) collection).addMedia(media);
-        mediaRepository.update(collection);
+            // Set media as unavailable when added to a collection
+            mediaCopy.setAvailable(false);
+            collectionCopy.addMedia(mediaCopy);
+            unitOfWork.commit();
+        }
         LOGGER.info("Media " + mediaId + " added to collection " + collectionId);
     }
 
@@ -282,16 +607,16 @@ public class MediaService {
             throw new LibraryException("The specified ID does not match a collection");
         }
 
-        // Save states before modifying
-        MediaMementoService.getInstance().saveState(collection);
-        MediaMementoService.getInstance().saveState(media);
-
-        // Set media as available when removed from a collection
-        media.setAvailable(true);
-        mediaRepository.update(media);
+        // Both changes are persisted together, or rolled back together
+        try (UnitOfWork unitOfWork = beginUnitOfWork()) {
+            MediaCollection collectionCopy = (MediaCollection) unitOfWork.registerDirty(collection);
+            Media mediaCopy = unitOfWork.registerDirty(media);
 
-        ((MediaCollection) collection).removeMedia(media);
-        mediaRepository.update(collection);
+            // Set media as available when removed from a collection
+            mediaCopy.setAvailable(true);
+            collectionCopy.removeMedia(mediaCopy);
+            unitOfWork.commit();
+        }
         LOGGER.info("Media " + mediaId + " removed from collection " + collectionId);
     }
 }
\ No newline at end of file
@@ -0,0 +1,269 @@
+package service;
+
+import index.TitleTokenizer;
+import model.media.Media;
+import observer.MediaChangeBatch;
+import observer.MediaChangeObserver;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+// Bounded LRU cache of the title and publication year search results, kept
+// within a memory budget. It observes the media changes synchronously and drops
+// only the entries a change can affect: the year entries of the old and new
+// publication years, and the title entries whose words are all in the old or
+// new title. A result loaded while a change happened is not cached, so a
+// concurrent load cannot bring back a stale result
+public class SearchResultCache implements MediaChangeObserver {
+    // Estimated bytes of an entry besides its key and results: map entry, list, arrays
+    private static final int ENTRY_OVERHEAD = 96;
+    private static final int REFERENCE_SIZE = 8;
+    private static final String TITLE_PREFIX = "title:";
+    private static final String YEAR_PREFIX = "year:";
+
+    private final long maxBytes;
+    // Least recently used first
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Title entries with their words, by the first of their words, to find the
+    // entries a title affects without touching the LRU order
+    private final Map<String, Map<String, Set<String>>> titleKeysByToken = new HashMap<>();
+    private long usedBytes;
+    // Incremented on every change, a load started before a change is not cached
+    private long generation;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * SearchResultCache constructor
+     *
+     * @param maxBytes : The memory budget of the cached results, estimated
+     */
+    public SearchResultCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("The memory budget of the cache must be positive");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Get the result of a title search, loading it on a miss
+     *
+     * @param title  : The searched title
+     * @param loader : The search, run on a miss
+     * @return a copy of the found media
+     */
+    public List<Media> getByTitle(String title, Supplier<List<Media>> loader) {
+        Set<String> tokens = new TreeSet<>(TitleTokenizer.tokenize(title));
+        if (tokens.isEmpty()) {
+            // Nothing to match, not worth an entry
+            return loader.get();
+        }
+        return get(TITLE_PREFIX + String.join(" ", tokens), tokens, loader);
+    }
+
+    /**
+     * Get the result of a publication year search, loading it on a miss
+     *
+     * @param year   : The searched year
+     * @param loader : The search, run on a miss
+     * @return a copy of the found media
+     */
+    public List<Media> getByPublicationYear(int year, Supplier<List<Media>> loader) {
+        return get(YEAR_PREFIX + year, null, loader);
+    }
+
+    @Override
+    public void onMediaAdded(Media media) {
+        invalidate(media, null);
+    }
+
+    @Override
+    public void onMediaRemoved(Media media) {
+        invalidate(media, null);
+    }
+
+    @Override
+    public void onMediaUpdated(Media oldMedia, Media newMedia) {
+        invalidate(oldMedia, newMedia);
+    }
+
+    @Override
+    public synchronized void onMediaBatchChanged(MediaChangeBatch batch) {
+        for (Media media : batch.getAddedMedia()) {
+            invalidate(media, null);
+        }
+        for (MediaChangeBatch.Update update : batch.getUpdates()) {
+            invalidate(update.getOldMedia(), update.getNewMedia());
+        }
+        for (Media media : batch.getRemovedMedia()) {
+            invalidate(media, null);
+        }
+    }
+
+    /**
+     * Remove all the entries
+     */
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+        titleKeysByToken.clear();
+        usedBytes = 0;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get the share of the searches answered by the cache
+     *
+     * @return the hit rate between 0 and 1, 0 before any search
+     */
+    public synchronized double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("SearchResultCache [entries=%d, usedBytes=%d, maxBytes=%d, hits=%d, misses=%d, "
+                + "hitRate=%.2f, evictions=%d, invalidations=%d]", entries.size(), usedBytes, maxBytes, hits, misses,
+                getHitRate(), evictions, invalidations);
+    }
+
+    private List<Media> get(String key, Set<String> tokens, Supplier<List<Media>> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                return new ArrayList<>(entry.results);
+            }
+            misses++;
+            loadGeneration = generation;
+        }
+
+        // The search runs outside the lock, concurrent misses of a key may both load it
+        List<Media> results = loader.get();
+        synchronized (this) {
+            if (loadGeneration == generation && !entries.containsKey(key)) {
+                put(key, tokens, results);
+            }
+        }
+        return new ArrayList<>(results);
+    }
+
+    // Called with the lock held
+    private void put(String key, Set<String> tokens, List<Media> results) {
+        Entry entry = new Entry(tokens, Collections.unmodifiableList(new ArrayList<>(results)),
+                ENTRY_OVERHEAD + 2L * key.length() + (long) REFERENCE_SIZE * results.size());
+        if (entry.bytes > maxBytes) {
+            // Larger than the whole budget, never cached
+            return;
+        }
+        entries.put(key, entry);
+        usedBytes += entry.bytes;
+        if (tokens != null) {
+            titleKeysByToken.computeIfAbsent(tokens.iterator().next(), token -> new HashMap<>()).put(key, tokens);
+        }
+
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (usedBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Entry> evicted = eldest.next();
+            eldest.remove();
+            forget(evicted.getKey(), evicted.getValue());
+            evictions++;
+        }
+    }
+
+    // Called with the lock held, after the entry left the map
+    private void forget(String key, Entry entry) {
+        usedBytes -= entry.bytes;
+        if (entry.tokens != null) {
+            String token = entry.tokens.iterator().next();
+            Map<String, Set<String>> keys = titleKeysByToken.get(token);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    titleKeysByToken.remove(token);
+                }
+            }
+        }
+    }
+
+    private synchronized void invalidate(Media oldMedia, Media newMedia) {
+        generation++;
+        for (Media media : new Media[] { oldMedia, newMedia }) {
+            if (media == null) {
+                continue;
+            }
+            remove(YEAR_PREFIX + media.getPublicationDate().getYear());
+
+            // A title entry is affected only if all its words are in the title
+            Set<String> titleTokens = new HashSet<>(TitleTokenizer.tokenize(media.getTitle()));
+            for (String token : titleTokens) {
+                Map<String, Set<String>> keys = titleKeysByToken.get(token);
+                if (keys == null) {
+                    continue;
+                }
+                for (Map.Entry<String, Set<String>> key : new ArrayList<>(keys.entrySet())) {
+                    if (titleTokens.containsAll(key.getValue())) {
+                        remove(key.getKey());
+                    }
+                }
+            }
+        }
+    }
+
+    // Called with the lock held
+    private void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            forget(key, entry);
+            invalidations++;
+        }
+    }
+
+    // Cached result with the words of its title search and its estimated size
+    private static class Entry {
+        private final Set<String> tokens;
+        private final List<Media> results;
+        private final long bytes;
+
+        Entry(Set<String> tokens, List<Media> results, long bytes) {
+            this.tokens = tokens;
+            this.results = results;
+            this.bytes = bytes;
+        }
+    }
+}
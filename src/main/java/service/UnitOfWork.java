@@ -0,0 +1,175 @@
+package service;
+
+import exception.LibraryException;
+import exception.MediaNotFoundException;
+import memento.MediaMemento;
+import model.media.Book;
+import model.media.Magazine;
+import model.media.Media;
+import model.media.MediaCollection;
+import observer.MediaChangeBatch;
+import observer.MediaChangeExecutor;
+import repository.MediaRepository;
+import util.LoggerManager;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+// Unit of work for service operations changing several media. Registering a
+// media gives a working copy of it, with a memento of its state: the changes
+// are made on the copies only, so the shared media are never seen half
+// changed. Commit replaces the media by their copies with one batch update,
+// under the repository locks and only if no media changed since it was
+// registered, then notifies the observers and adds the mementos to the
+// history; rollback drops the copies. Used with try-with-resources, a unit of
+// work not committed is rolled back on close. Not thread-safe, a unit of work
+// belongs to a single operation
+public class UnitOfWork implements AutoCloseable {
+    private static final Logger LOGGER = LoggerManager.getLogger(UnitOfWork.class.getName());
+    private final MediaRepository mediaRepository;
+    private final MediaChangeExecutor mediaChangeSubject;
+    private final Map<String, Media> registeredMedia = new LinkedHashMap<>();
+    private final Map<String, Media> workingCopies = new LinkedHashMap<>();
+    private final Map<String, MediaMemento> snapshots = new LinkedHashMap<>();
+    private boolean completed;
+
+    /**
+     * UnitOfWork constructor
+     *
+     * @param mediaRepository    : The repository persisting the changes
+     * @param mediaChangeSubject : The subject notifying the committed changes
+     */
+    public UnitOfWork(MediaRepository mediaRepository, MediaChangeExecutor mediaChangeSubject) {
+        this.mediaRepository = mediaRepository;
+        this.mediaChangeSubject = mediaChangeSubject;
+    }
+
+    /**
+     * Register a media about to be changed, taking a snapshot of its state. The
+     * changes must be made on the returned copy; a collection copy resolves its
+     * members to their own copies, registered on first access
+     *
+     * @param media : The media to change
+     * @return the working copy of the media
+     * @throws LibraryException : If the media type cannot be copied
+     */
+    public Media registerDirty(Media media) throws LibraryException {
+        ensureActive();
+        Media workingCopy = workingCopies.get(media.getId());
+        if (workingCopy == null) {
+            MediaMemento snapshot = new MediaMemento(media);
+            workingCopy = copyOf(media, snapshot);
+            registeredMedia.put(media.getId(), media);
+            snapshots.put(media.getId(), snapshot);
+            workingCopies.put(media.getId(), workingCopy);
+        }
+        return workingCopy;
+    }
+
+    /**
+     * Replace the registered media by their copies with a single batch update,
+     * notify the change and save the snapshots in the memento history. If a
+     * media changed since it was registered or the update fails, nothing is
+     * changed and the unit of work is rolled back
+     *
+     * @throws LibraryException : If a media changed meanwhile or the changes
+     *                          cannot be persisted
+     */
+    public void commit() throws LibraryException {
+        ensureActive();
+        List<Media> updatedMedia;
+        try {
+            updatedMedia = mediaRepository.updateAllIfUnchanged(new ArrayList<>(workingCopies.values()),
+                    this::isUnchanged);
+        } catch (LibraryException e) {
+            LOGGER.warning("Unit of work failed, rolling back: " + e.getMessage());
+            rollback();
+            throw e;
+        }
+        completed = true;
+        mediaChangeSubject.notifyMediaBatchChanged(
+                MediaChangeBatch.updated(new ArrayList<>(registeredMedia.values()), updatedMedia));
+        for (MediaMemento snapshot : snapshots.values()) {
+            MediaMementoService.getInstance().saveState(snapshot);
+        }
+    }
+
+    /**
+     * Drop the working copies, the shared media were never changed
+     */
+    public void rollback() {
+        if (completed) {
+            return;
+        }
+        completed = true;
+        LOGGER.info("Unit of work rolled back: " + workingCopies.size() + " media dropped");
+    }
+
+    @Override
+    public void close() {
+        rollback();
+    }
+
+    // The current media is still the registered one, with the same state
+    private boolean isUnchanged(Media current) {
+        MediaMemento snapshot = snapshots.get(current.getId());
+        if (current != registeredMedia.get(current.getId()) || current.isAvailable() != snapshot.isAvailable()) {
+            return false;
+        }
+        return !(current instanceof MediaCollection)
+                || ((MediaCollection) current).getMediaIds().equals(snapshot.getMediaIds());
+    }
+
+    // Member of a collection copy: its own copy, registered on first access
+    private Media resolveMember(String mediaId) {
+        Media workingCopy = workingCopies.get(mediaId);
+        if (workingCopy != null || completed) {
+            return workingCopy;
+        }
+        try {
+            return registerDirty(mediaRepository.findById(mediaId));
+        } catch (MediaNotFoundException e) {
+            // Deleted meanwhile, as the repository resolves it
+            return null;
+        } catch (LibraryException e) {
+            LOGGER.warning("Unable to register the member " + mediaId + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Copy of a media, with the availability and the members of its snapshot
+    private Media copyOf(Media media, MediaMemento snapshot) throws LibraryException {
+        Media workingCopy;
+        if (media instanceof Book) {
+            Book book = (Book) media;
+            workingCopy = new Book(book.getId(), book.getTitle(), book.getAuthor(), book.getPublicationDate(),
+                    book.getPublisher(), book.getPages());
+        } else if (media instanceof Magazine) {
+            Magazine magazine = (Magazine) media;
+            workingCopy = new Magazine(magazine.getId(), magazine.getTitle(), magazine.getPublicationDate(),
+                    magazine.getPublisher(), magazine.getIssue());
+        } else if (media instanceof MediaCollection) {
+            // Availability set before the members, so it does not cascade to them
+            MediaCollection collection = new MediaCollection(media.getId(), media.getTitle(),
+                    media.getPublicationDate());
+            collection.setAvailable(snapshot.isAvailable());
+            for (String mediaId : snapshot.getMediaIds()) {
+                collection.addMediaId(mediaId);
+            }
+            collection.setMediaResolver(this::resolveMember);
+            return collection;
+        } else {
+            throw new LibraryException("Unsupported media type in a unit of work: " + media.getClass().getName());
+        }
+        workingCopy.setAvailable(snapshot.isAvailable());
+        return workingCopy;
+    }
+
+    private void ensureActive() {
+        if (completed) {
+            throw new IllegalStateException("The unit of work is already committed or rolled back");
+        }
+    }
+}
@@ -7,6 +7,11 @@ import factory.MediaFactory;
 import model.media.Media;
 import model.media.MediaCollection;
 import processor.ExportProcessor;
+import processor.ImportProcessor;
+import processor.ImportReport;
+import query.FacetCounts;
+import query.ScoredMedia;
+import service.FacetService;
 import service.MediaService;
 import strategy.DateSortStrategy;
 import strategy.SortingStrategy;
@@ -25,6 +30,8 @@ import util.ConcurrentMediaProcessor;
 // Class for the User Interface in console
 public class UserInterfaceUI {
     private static final Logger LOGGER = LoggerManager.getLogger(UserInterfaceUI.class.getName());
+    private static final int SUGGESTION_LIMIT = 5;
+    private static final int RESULT_LIMIT = 20;
 
     @Inject
     // Annotation: Dependency injection for Scanner
@@ -34,12 +41,17 @@ public class UserInterfaceUI {
     // Annotation: Dependency injection for MediaService
     private MediaService mediaService;
 
+    @Inject
+    // Annotation: Dependency injection for FacetService
+    private FacetService facetService;
+
     public UserInterfaceUI() {
         // The constructor is empty because the dependencies are injected through the
         // IoCContainer
         // Fallback to default implementation if the IoCContainer is not initialized
         this.scanner = new Scanner(System.in);
         this.mediaService = MediaService.getInstance();
+        this.facetService = FacetService.getInstance();
     }
 
     public void start() {
@@ -68,6 +80,9 @@ public class UserInterfaceUI {
                     case 5:
                         exportMedia();
                         break;
+                    case 6:
+                        importMedia();
+                        break;
                     case 0:
                         running = false;
                         break;
@@ -101,6 +116,7 @@ public class UserInterfaceUI {
         System.out.println("3. Search media or collection");
         System.out.println("4. Manage collections");
         System.out.println("5. Export media");
+        System.out.println("6. Import media from file");
         System.out.println("0. Exit");
     }
 
@@ -210,11 +226,16 @@ public class UserInterfaceUI {
         System.out.println("\nVIEW ALL MEDIA");
         System.out.println("1. View without sorting");
         System.out.println("2. Sort by publication date (desc)");
+        System.out.println("3. View summary");
         System.out.println("0. Go back");
 
         int sortChoice = readIntInput("Select an option: ");
         if (sortChoice == 0)
             return;
+        if (sortChoice == 3) {
+            viewMediaSummary();
+            return;
+        }
 
         List<Media> allMedia = mediaService.findAllMedia();
         List<Media> filteredMedia = new ArrayList<>();
@@ -245,12 +266,29 @@ public class UserInterfaceUI {
         }
     }
 
+    // Print the live counts by type, availability, publication year and publisher
+    private void viewMediaSummary() {
+        FacetCounts facets = facetService.getFacets();
+        if (facets.getTotal() == 0) {
+            System.out.println("No media available in the system.");
+            return;
+        }
+
+        System.out.println("\nSUMMARY (" + facets.getTotal() + " media):");
+        System.out.println("By type: " + facets.getByType());
+        System.out.println("Available: " + facets.getAvailable() + ", not available: " + facets.getUnavailable());
+        System.out.println("By publication year: " + facets.getByYear());
+        System.out.println("By publisher: " + facets.getByPublisher());
+    }
+
     private void searchMedia() throws LibraryException {
         System.out.println("\nSEARCH MEDIA OR COLLECTION");
         System.out.println("1. Search by title");
         System.out.println("2. Search by publication year");
         System.out.println("3. Search by ID");
-        System.out.println("4. Rollback last change");
+        System.out.println("4. Search by author");
+        System.out.println("5. Search by publisher");
+        System.out.println("6. Rollback last change");
         System.out.println("0. Go back");
 
         boolean validChoice = false;
@@ -271,13 +309,21 @@ public class UserInterfaceUI {
                     validChoice = true;
                     break;
                 case 4:
+                    searchByAuthor();
+                    validChoice = true;
+                    break;
+                case 5:
+                    searchByPublisher();
+                    validChoice = true;
+                    break;
+                case 6:
                     rollbackLastChange();
                     validChoice = true;
                     break;
                 case 0:
                     return;
                 default:
-                    System.out.println("Invalid option, please enter a number between 0 and 4.");
+                    System.out.println("Invalid option, please enter a number between 0 and 6.");
             }
         }
     }
@@ -285,7 +331,29 @@ public class UserInterfaceUI {
     private void searchByTitle() throws LibraryException {
         String title = readStringInput("Enter title: ");
 
-        List<Media> results = mediaService.findMediaByTitle(title);
+        // The most relevant titles first, only the best ones are shown
+        List<ScoredMedia> ranked = mediaService.findMediaByTitleRanked(title, RESULT_LIMIT);
+        if (!ranked.isEmpty()) {
+            System.out.println("\nSEARCH RESULTS (best " + ranked.size() + " by relevance):");
+            List<Media> results = new ArrayList<>();
+            for (int i = 0; i < ranked.size(); i++) {
+                System.out.println((i + 1) + ". [" + String.format("%.2f", ranked.get(i).getScore()) + "] "
+                        + ranked.get(i).getMedia().getDetails());
+                results.add(ranked.get(i).getMedia());
+            }
+            handleSearchResults(results);
+            return;
+        }
+
+        // No title with any of the words, search the text inside the titles
+        List<Media> results = mediaService.findMediaByTitleContaining(title);
+        if (results.isEmpty()) {
+            // Still nothing, tolerate typos in the words
+            results = mediaService.findMediaByTitleFuzzy(title);
+            if (!results.isEmpty()) {
+                System.out.println("\nNo exact match, showing similar titles.");
+            }
+        }
 
         if (results.isEmpty()) {
             System.out.println("\nNo media found with title '" + title + "'.");
@@ -318,6 +386,50 @@ public class UserInterfaceUI {
         handleSearchResults(results);
     }
 
+    private void searchByAuthor() throws LibraryException {
+        String author = readStringInput("Enter author (or its beginning): ");
+
+        List<Media> results = mediaService.findMediaByAuthor(author);
+        if (results.isEmpty()) {
+            // No exact author, search the authors starting with the text
+            results = mediaService.findMediaByAuthorPrefix(author);
+        }
+
+        if (results.isEmpty()) {
+            System.out.println("\nNo media found with author '" + author + "'.");
+            return;
+        }
+
+        System.out.println("\nSEARCH RESULTS:");
+        for (int i = 0; i < results.size(); i++) {
+            System.out.println((i + 1) + ". " + results.get(i).getDetails());
+        }
+
+        handleSearchResults(results);
+    }
+
+    private void searchByPublisher() throws LibraryException {
+        String publisher = readStringInput("Enter publisher (or its beginning): ");
+
+        List<Media> results = mediaService.findMediaByPublisher(publisher);
+        if (results.isEmpty()) {
+            // No exact publisher, search the publishers starting with the text
+            results = mediaService.findMediaByPublisherPrefix(publisher);
+        }
+
+        if (results.isEmpty()) {
+            System.out.println("\nNo media found with publisher '" + publisher + "'.");
+            return;
+        }
+
+        System.out.println("\nSEARCH RESULTS:");
+        for (int i = 0; i < results.size(); i++) {
+            System.out.println((i + 1) + ". " + results.get(i).getDetails());
+        }
+
+        handleSearchResults(results);
+    }
+
     private void searchById() throws LibraryException {
         String id = readStringInput("Enter media ID: ");
 
@@ -331,6 +443,37 @@ public class UserInterfaceUI {
             handleSearchResults(results);
         } catch (MediaNotFoundException e) {
             System.out.println("\nNo media found with ID '" + id + "'.");
+            suggestMedia(id);
+        }
+    }
+
+    // Propose the media whose ID or title starts with the text entered
+    private void suggestMedia(String prefix) throws LibraryException {
+        List<Media> suggestions = mediaService.suggest(prefix, SUGGESTION_LIMIT);
+        if (suggestions.isEmpty()) {
+            return;
+        }
+
+        System.out.println("\nDID YOU MEAN:");
+        for (int i = 0; i < suggestions.size(); i++) {
+            System.out.println((i + 1) + ". " + suggestions.get(i).getDetails());
+        }
+
+        while (true) {
+            int suggestionIndex = readIntInput("Select a media (0 to cancel): ") - 1;
+
+            if (suggestionIndex == -1) {
+                System.out.println("Action cancelled.");
+                return;
+            } else if (suggestionIndex < 0 || suggestionIndex >= suggestions.size()) {
+                System.out.println("Invalid selection, enter a number between 1 and " + suggestions.size()
+                        + " or 0 to cancel.");
+            } else {
+                List<Media> results = new ArrayList<>();
+                results.add(suggestions.get(suggestionIndex));
+                handleSearchResults(results);
+                return;
+            }
         }
     }
 
@@ -1262,4 +1405,15 @@ public class UserInterfaceUI {
             LOGGER.severe("Error during export: " + e.getMessage());
         }
     }
+
+    private void importMedia() throws LibraryException {
+        System.out.println("\nIMPORT MEDIA");
+        System.out.println("Books and magazines from a CSV file with a header (type, title, author, "
+                + "publicationDate, publisher, pages, issue) or an NDJSON file with these fields");
+        String path = readStringInput("Enter the path of the .csv, .ndjson or .jsonl file: ");
+
+        ImportReport report = new ImportProcessor(mediaService).importFile(path);
+        System.out.print(report);
+        System.out.println(report.getInserted() + " media imported.");
+    }
 }
\ No newline at end of file
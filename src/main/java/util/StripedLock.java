@@ -0,0 +1,81 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Utility class for lock striping: keys are mapped by hash to a fixed number of
+// locks, so operations on different keys rarely contend while the number of
+// locks stays bounded. Several keys are always locked in stripe order to avoid
+// deadlocks
+public class StripedLock {
+    private final ReentrantLock[] locks;
+
+    /**
+     * Create a new StripedLock
+     *
+     * @param stripes : The number of locks, rounded up to a power of two
+     */
+    public StripedLock(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("The number of stripes must be positive");
+        }
+        int size = Integer.highestOneBit(stripes);
+        if (size < stripes) {
+            size <<= 1;
+        }
+        this.locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Get the lock of a key
+     *
+     * @param key : The key
+     * @return the lock of the stripe of the key
+     */
+    public Lock getLock(Object key) {
+        return locks[stripeOf(key)];
+    }
+
+    /**
+     * Lock the stripes of several keys, in stripe order
+     *
+     * @param keys : The keys to lock
+     * @return the acquired locks, to release with unlockAll
+     */
+    public List<Lock> lockAll(Collection<?> keys) {
+        TreeSet<Integer> stripes = new TreeSet<>();
+        for (Object key : keys) {
+            stripes.add(stripeOf(key));
+        }
+        List<Lock> acquired = new ArrayList<>(stripes.size());
+        for (Integer stripe : stripes) {
+            locks[stripe].lock();
+            acquired.add(locks[stripe]);
+        }
+        return acquired;
+    }
+
+    /**
+     * Release locks acquired with lockAll, in reverse order
+     *
+     * @param acquired : The locks to release
+     */
+    public static void unlockAll(List<Lock> acquired) {
+        for (int i = acquired.size() - 1; i >= 0; i--) {
+            acquired.get(i).unlock();
+        }
+    }
+
+    private int stripeOf(Object key) {
+        int hash = key.hashCode();
+        // Spread the high bits, as HashMap does
+        return (hash ^ (hash >>> 16)) & (locks.length - 1);
+    }
+}
@@ -0,0 +1,71 @@
+package index;
+
+import model.media.Book;
+import model.media.Magazine;
+import model.media.Media;
+import model.media.MediaCollection;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+// Class for AttributeIndex tests: case-insensitive exact and prefix lookups of
+// authors and publishers
+public class AttributeIndexTest {
+        private AttributeIndex authors;
+        private AttributeIndex publishers;
+
+        @Before
+        // Annotation: Execute before each test
+        public void setUp() {
+                authors = new AttributeIndex(MediaAttributes::authorOf);
+                publishers = new AttributeIndex(MediaAttributes::publisherOf);
+                Media[] mediaList = {
+                                new Book("B-1", "Dune", "Frank Herbert", LocalDate.of(1965, 8, 1), "Chilton", 412),
+                                new Book("B-2", "Emma", "Jane Austen", LocalDate.of(1815, 12, 23), "John Murray", 474),
+                                new Book("B-3", "Persuasion", "jane austen", LocalDate.of(1817, 12, 20), "John Murray",
+                                                252),
+                                new Magazine("M-1", "Analog", LocalDate.of(1963, 12, 1), "Condé Nast", 4),
+                                new MediaCollection("C-1", "Classics", LocalDate.of(2020, 1, 1)) };
+                for (Media media : mediaList) {
+                        authors.add(media);
+                        publishers.add(media);
+                }
+        }
+
+        @Test
+        // Annotation: Test of exact lookups, ignoring case and surrounding spaces
+        public void testFindIgnoresCase() {
+                assertEquals(new HashSet<>(Arrays.asList("B-2", "B-3")), new HashSet<>(authors.find(" JANE AUSTEN ")));
+                assertEquals(Collections.singletonList("M-1"), publishers.find("condé nast"));
+                assertEquals(2, publishers.count("john murray"));
+                assertTrue(authors.find("Jane").isEmpty());
+        }
+
+        @Test
+        // Annotation: Test of prefix lookups, sorted by value
+        public void testFindByPrefix() {
+                assertEquals(Collections.singletonList("B-1"), authors.findByPrefix("fr"));
+                assertEquals(new HashSet<>(Arrays.asList("B-2", "B-3")), new HashSet<>(publishers.findByPrefix("jo")));
+                assertEquals("Chilton sorts before Condé Nast", Arrays.asList("B-1", "M-1"),
+                                publishers.findByPrefix("c"));
+                assertTrue(authors.findByPrefix("z").isEmpty());
+        }
+
+        @Test
+        // Annotation: Test of the media without the attribute and of a removal
+        public void testMissingAttributeAndRemove() {
+                Media collection = new MediaCollection("C-1", "Classics", LocalDate.of(2020, 1, 1));
+                assertFalse("A collection has no author", authors.matches(collection, "Classics"));
+
+                Media emma = new Book("B-2", "Emma", "Jane Austen", LocalDate.of(1815, 12, 23), "John Murray", 474);
+                assertTrue(authors.matchesPrefix(emma, "JANE"));
+                authors.remove(emma);
+                assertEquals(Collections.singletonList("B-3"), authors.find("jane austen"));
+        }
+}
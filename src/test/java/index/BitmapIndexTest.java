@@ -0,0 +1,67 @@
+package index;
+
+import model.media.Book;
+import model.media.Magazine;
+import model.media.Media;
+import model.media.MediaCollection;
+import model.media.MediaType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+// Class for BitmapIndex tests: counts and filters by availability and type
+public class BitmapIndexTest {
+        private BitmapIndex index;
+        private Book book;
+        private Magazine magazine;
+
+        @Before
+        // Annotation: Execute before each test
+        public void setUp() {
+                index = new BitmapIndex();
+                book = new Book("B-1", "Book", "Author", LocalDate.of(2020, 1, 1), "Publisher", 100);
+                magazine = new Magazine("M-1", "Magazine", LocalDate.of(2020, 1, 1), "Publisher", 1);
+                magazine.setAvailable(false);
+                index.add(book);
+                index.add(magazine);
+                index.add(new MediaCollection("C-1", "Collection", LocalDate.of(2020, 1, 1)));
+        }
+
+        @Test
+        // Annotation: Test of the counts and filters on availability and type
+        public void testCountAndFind() {
+                assertEquals(3, index.count(null, null));
+                assertEquals(2, index.count(true, null));
+                assertEquals(1, index.count(false, MediaType.MAGAZINE));
+                assertEquals(0, index.count(false, MediaType.BOOK));
+                assertEquals(new HashSet<>(Arrays.asList("B-1", "C-1")), new HashSet<>(index.find(true, null)));
+                assertEquals(Arrays.asList("M-1"), index.find(null, MediaType.MAGAZINE));
+        }
+
+        @Test
+        // Annotation: Test of an availability change
+        public void testUpdateAvailability() {
+                book.setAvailable(false);
+                index.updateAvailability(book);
+                assertEquals(Arrays.asList("B-1"), index.find(false, MediaType.BOOK));
+                assertEquals(1, index.count(true, null));
+        }
+
+        @Test
+        // Annotation: Test of a removed media, whose ordinal is reused
+        public void testRemoveReusesOrdinal() {
+                index.remove(book);
+                assertEquals(2, index.count(null, null));
+                assertEquals(0, index.count(null, MediaType.BOOK));
+
+                Media other = new Book("B-2", "Other", "Author", LocalDate.of(2020, 1, 1), "Publisher", 100);
+                index.add(other);
+                assertEquals(Arrays.asList("B-2"), index.find(null, MediaType.BOOK));
+                assertEquals(3, index.count(null, null));
+        }
+}
@@ -0,0 +1,84 @@
+package index;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+// Class for BkTree tests: distances and fuzzy searches checked against a scan
+// of the dictionary
+public class BkTreeTest {
+        private BkTree tree;
+        private Random random;
+
+        @Before
+        // Annotation: Execute before each test
+        public void setUp() {
+                tree = new BkTree();
+                random = new Random(13);
+        }
+
+        @Test
+        // Annotation: Test of the Levenshtein distance
+        public void testDistance() {
+                assertEquals(0, BkTree.distance("potter", "potter"));
+                assertEquals(1, BkTree.distance("poter", "potter"));
+                assertEquals(3, BkTree.distance("kitten", "sitting"));
+                assertEquals(4, BkTree.distance("", "dune"));
+                assertEquals(BkTree.distance("flaw", "lawn"), BkTree.distance("lawn", "flaw"));
+        }
+
+        @Test
+        // Annotation: Test of random searches against a scan of the words
+        public void testSearchMatchesScan() {
+                List<String> words = new ArrayList<>();
+                for (int i = 0; i < 2000; i++) {
+                        String word = randomWord();
+                        words.add(word);
+                        tree.add(word);
+                }
+                assertEquals(new HashSet<>(words).size(), tree.size());
+                for (int i = 0; i < 200; i++) {
+                        String query = randomWord();
+                        int maxDistance = random.nextInt(3);
+                        Set<String> expected = new HashSet<>();
+                        for (String word : words) {
+                                if (BkTree.distance(query, word) <= maxDistance) {
+                                        expected.add(word);
+                                }
+                        }
+                        assertEquals("Unexpected words near " + query, expected,
+                                        new HashSet<>(tree.search(query, maxDistance)));
+                }
+        }
+
+        @Test
+        // Annotation: Test of a rebuild keeping only the given words
+        public void testRebuild() {
+                tree.add("harry");
+                tree.add("potter");
+                tree.add("hurry");
+                tree.rebuild(Arrays.asList("potter", "hurry"));
+
+                assertEquals(2, tree.size());
+                assertEquals(Arrays.asList("hurry"), tree.search("harry", 1));
+                assertEquals(Arrays.asList("potter"), tree.search("poter", 1));
+        }
+
+        // Short words over a small alphabet, so many of them are close
+        private String randomWord() {
+                StringBuilder word = new StringBuilder();
+                int length = 1 + random.nextInt(7);
+                for (int i = 0; i < length; i++) {
+                        word.append((char) ('a' + random.nextInt(5)));
+                }
+                return word.toString();
+        }
+}
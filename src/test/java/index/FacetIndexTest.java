@@ -0,0 +1,76 @@
+package index;
+
+import model.media.Book;
+import model.media.Magazine;
+import model.media.MediaCollection;
+import model.media.MediaType;
+import org.junit.Before;
+import org.junit.Test;
+import query.FacetCounts;
+
+import java.time.LocalDate;
+
+import static org.junit.Assert.*;
+
+// Class for FacetIndex tests: live counters by year, publisher, type and
+// availability
+public class FacetIndexTest {
+        private FacetIndex index;
+        private Book book;
+
+        @Before
+        // Annotation: Execute before each test
+        public void setUp() {
+                index = new FacetIndex();
+                book = new Book("B-1", "Book", "Author", LocalDate.of(2001, 1, 1), " North ", 100);
+                index.add(book);
+                index.add(new Book("B-2", "Book", "Author", LocalDate.of(2001, 5, 1), "North", 100));
+                index.add(new Magazine("M-1", "Magazine", LocalDate.of(2002, 1, 1), "South", 1));
+                index.add(new MediaCollection("C-1", "Collection", LocalDate.of(2002, 1, 1)));
+        }
+
+        @Test
+        // Annotation: Test of the counts, publishers trimmed and collections without
+        // publisher
+        public void testSnapshot() {
+                FacetCounts facets = index.snapshot();
+                assertEquals(4, facets.getTotal());
+                assertEquals(Long.valueOf(2), facets.getByYear().get(2001));
+                assertEquals(Long.valueOf(2), facets.getByPublisher().get("North"));
+                assertEquals(2, facets.getByPublisher().size());
+                assertEquals(Long.valueOf(1), facets.getByType().get(MediaType.COLLECTION));
+                assertEquals(4, facets.getAvailable());
+        }
+
+        @Test
+        // Annotation: Test of an availability change, uncounted as it was counted
+        public void testAvailabilityChange() {
+                book.setAvailable(false);
+                index.updateAvailability(book);
+                index.updateAvailability(book);
+                assertEquals(3, index.snapshot().getAvailable());
+                assertEquals(1, index.snapshot().getUnavailable());
+
+                // Changed in place without update, the removal uses the counted value
+                book.setAvailable(true);
+                index.remove(book);
+                FacetCounts facets = index.snapshot();
+                assertEquals(3, facets.getAvailable());
+                assertEquals(0, facets.getUnavailable());
+        }
+
+        @Test
+        // Annotation: Test of a media added again, replacing its counts, and of the
+        // values dropping to zero
+        public void testReplaceAndRemove() {
+                index.add(new Book("B-1", "Book", "Author", LocalDate.of(2003, 1, 1), "East", 100));
+                index.remove(new Magazine("M-1", "Magazine", LocalDate.of(2002, 1, 1), "South", 1));
+
+                FacetCounts facets = index.snapshot();
+                assertEquals(3, facets.getTotal());
+                assertEquals(Long.valueOf(1), facets.getByYear().get(2001));
+                assertEquals(Long.valueOf(1), facets.getByPublisher().get("East"));
+                assertFalse(facets.getByPublisher().containsKey("South"));
+                assertFalse(facets.getByType().containsKey(MediaType.MAGAZINE));
+        }
+}
@@ -0,0 +1,57 @@
+package index;
+
+import model.media.Book;
+import model.media.Magazine;
+import model.media.Media;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+// Class for PublicationDateIndex tests: range queries and counts
+public class PublicationDateIndexTest {
+        private PublicationDateIndex index;
+
+        @Before
+        // Annotation: Execute before each test
+        public void setUp() {
+                index = new PublicationDateIndex();
+                index.add(new Book("B-1", "First", "Author", LocalDate.of(1999, 12, 31), "Publisher", 100));
+                index.add(new Book("B-2", "Second", "Author", LocalDate.of(2000, 1, 1), "Publisher", 100));
+                index.add(new Magazine("M-1", "Third", LocalDate.of(2000, 6, 15), "Publisher", 1));
+                index.add(new Book("B-3", "Fourth", "Author", LocalDate.of(2001, 1, 1), "Publisher", 100));
+        }
+
+        @Test
+        // Annotation: Test of a range with both bounds included, sorted by date
+        public void testFindBetweenIncludesBounds() {
+                List<String> ids = index.findBetween(LocalDate.of(2000, 1, 1), LocalDate.of(2001, 1, 1));
+                assertEquals(Arrays.asList("B-2", "M-1", "B-3"), ids);
+                assertEquals(3, index.count(LocalDate.of(2000, 1, 1), LocalDate.of(2001, 1, 1)));
+        }
+
+        @Test
+        // Annotation: Test of empty and reversed ranges
+        public void testEmptyAndReversedRanges() {
+                assertEquals(Collections.emptyList(),
+                                index.findBetween(LocalDate.of(2002, 1, 1), LocalDate.of(2003, 1, 1)));
+                assertEquals(Collections.emptyList(),
+                                index.findBetween(LocalDate.of(2001, 1, 1), LocalDate.of(2000, 1, 1)));
+                assertEquals(0, index.count(LocalDate.of(2001, 1, 1), LocalDate.of(2000, 1, 1)));
+        }
+
+        @Test
+        // Annotation: Test of a removed media, no longer in its day
+        public void testRemove() {
+                Media removed = new Magazine("M-1", "Third", LocalDate.of(2000, 6, 15), "Publisher", 1);
+                index.remove(removed);
+                assertEquals(Arrays.asList("B-2", "B-3"),
+                                index.findBetween(LocalDate.of(2000, 1, 1), LocalDate.of(2001, 1, 1)));
+                assertEquals(0, index.count(LocalDate.of(2000, 6, 15), LocalDate.of(2000, 6, 15)));
+        }
+}
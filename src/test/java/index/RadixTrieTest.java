@@ -0,0 +1,121 @@
+package index;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+// Class for RadixTrie tests: prefix searches checked against a sorted map,
+// after edge splits and merges
+public class RadixTrieTest {
+        private RadixTrie trie;
+        private TreeMap<String, Set<String>> expected;
+        private Random random;
+
+        @Before
+        // Annotation: Execute before each test
+        public void setUp() {
+                trie = new RadixTrie();
+                expected = new TreeMap<>();
+                random = new Random(11);
+        }
+
+        @Test
+        // Annotation: Test of keys that split and extend edges
+        public void testSplitEdges() {
+                trie.put("romance", "1");
+                trie.put("romanus", "2");
+                trie.put("rom", "3");
+                trie.put("rubicon", "4");
+                trie.put("romance", "5");
+
+                assertEquals(Arrays.asList("3", "1", "5", "2"), trie.findByPrefix("rom", 10));
+                assertEquals(Arrays.asList("1", "5"), trie.findByPrefix("romanc", 10));
+                assertEquals(Arrays.asList("3", "1"), trie.findByPrefix("r", 2));
+                assertTrue(trie.findByPrefix("romb", 10).isEmpty());
+                assertTrue(trie.findByPrefix("romances", 10).isEmpty());
+                assertTrue(trie.findByPrefix("r", 0).isEmpty());
+        }
+
+        @Test
+        // Annotation: Test of removals that prune and merge nodes
+        public void testRemoveMergesNodes() {
+                trie.put("romance", "1");
+                trie.put("romanus", "2");
+                trie.put("rom", "3");
+                trie.remove("roman", "1");
+                trie.remove("romance", "9");
+                assertEquals(Arrays.asList("3", "1", "2"), trie.findByPrefix("", 10));
+
+                trie.remove("romance", "1");
+                trie.remove("rom", "3");
+                assertEquals(Arrays.asList("2"), trie.findByPrefix("ro", 10));
+                assertEquals(Arrays.asList("2"), trie.findByPrefix("romanu", 10));
+                trie.put("romeo", "6");
+                assertEquals(Arrays.asList("2", "6"), trie.findByPrefix("rom", 10));
+        }
+
+        @Test
+        // Annotation: Test of random puts, removes and prefix searches against a
+        // sorted map
+        public void testMatchesSortedMap() {
+                List<String[]> entries = new ArrayList<>();
+                for (int i = 0; i < 5000; i++) {
+                        if (!entries.isEmpty() && random.nextInt(3) == 0) {
+                                String[] entry = entries.remove(random.nextInt(entries.size()));
+                                trie.remove(entry[0], entry[1]);
+                                Set<String> values = expected.get(entry[0]);
+                                values.remove(entry[1]);
+                                if (values.isEmpty()) {
+                                        expected.remove(entry[0]);
+                                }
+                        } else {
+                                String[] entry = { randomKey(6), String.valueOf(i) };
+                                entries.add(entry);
+                                trie.put(entry[0], entry[1]);
+                                expected.computeIfAbsent(entry[0], key -> new LinkedHashSet<>()).add(entry[1]);
+                        }
+                        if (i % 50 == 0) {
+                                String prefix = randomKey(3);
+                                int limit = 1 + random.nextInt(20);
+                                assertEquals("Unexpected values for " + prefix, findByPrefix(prefix, limit),
+                                                trie.findByPrefix(prefix, limit));
+                        }
+                }
+        }
+
+        // Brute-force prefix search over the sorted map
+        private List<String> findByPrefix(String prefix, int limit) {
+                Set<String> result = new LinkedHashSet<>();
+                for (Map.Entry<String, Set<String>> entry : expected.tailMap(prefix).entrySet()) {
+                        if (!entry.getKey().startsWith(prefix)) {
+                                break;
+                        }
+                        for (String value : entry.getValue()) {
+                                if (result.size() < limit) {
+                                        result.add(value);
+                                }
+                        }
+                }
+                return new ArrayList<>(result);
+        }
+
+        // Short keys over a small alphabet, so they share many prefixes
+        private String randomKey(int maxLength) {
+                StringBuilder key = new StringBuilder();
+                int length = random.nextInt(maxLength + 1);
+                for (int i = 0; i < length; i++) {
+                        key.append((char) ('a' + random.nextInt(3)));
+                }
+                return key.toString();
+        }
+}
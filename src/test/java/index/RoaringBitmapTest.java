@@ -0,0 +1,96 @@
+package index;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+// Class for RoaringBitmap tests: random operations checked against a BitSet,
+// across sparse (array) and dense (bitmap) chunks
+public class RoaringBitmapTest {
+
+        @Test
+        // Annotation: Test of adds, removes and lookups against a BitSet
+        public void testMatchesBitSet() {
+                Random random = new Random(3);
+                RoaringBitmap bitmap = new RoaringBitmap();
+                BitSet expected = new BitSet();
+                for (int i = 0; i < 200000; i++) {
+                        int value = randomValue(random);
+                        if (random.nextInt(4) == 0) {
+                                bitmap.remove(value);
+                                expected.clear(value);
+                        } else {
+                                bitmap.add(value);
+                                expected.set(value);
+                        }
+                }
+                assertEquals(expected.cardinality(), bitmap.cardinality());
+                assertEquals(expected, toBitSet(bitmap));
+                for (int i = 0; i < 10000; i++) {
+                        int value = randomValue(random);
+                        assertEquals("Unexpected lookup of " + value, expected.get(value), bitmap.contains(value));
+                }
+        }
+
+        @Test
+        // Annotation: Test of intersections between sparse and dense chunks
+        public void testAnd() {
+                Random random = new Random(5);
+                RoaringBitmap first = new RoaringBitmap();
+                RoaringBitmap second = new RoaringBitmap();
+                BitSet firstExpected = new BitSet();
+                BitSet secondExpected = new BitSet();
+                for (int i = 0; i < 100000; i++) {
+                        int value = randomValue(random);
+                        first.add(value);
+                        firstExpected.set(value);
+                        value = randomValue(random);
+                        second.add(value);
+                        secondExpected.set(value);
+                }
+                BitSet expected = (BitSet) firstExpected.clone();
+                expected.and(secondExpected);
+
+                assertEquals(expected, toBitSet(first.and(second)));
+                assertEquals(expected.cardinality(), first.andCardinality(second));
+                assertEquals(expected.cardinality(), second.andCardinality(first));
+        }
+
+        @Test
+        // Annotation: Test of a dense chunk emptied, then cleared bitmap
+        public void testRemoveAllAndClear() {
+                RoaringBitmap bitmap = new RoaringBitmap();
+                for (int value = 0; value < 10000; value++) {
+                        bitmap.add(value);
+                }
+                for (int value = 0; value < 10000; value += 2) {
+                        bitmap.remove(value);
+                }
+                assertEquals(5000, bitmap.cardinality());
+                assertFalse(bitmap.contains(4096));
+                assertTrue(bitmap.contains(4097));
+                for (int value = 1; value < 10000; value += 2) {
+                        bitmap.remove(value);
+                }
+                assertEquals(0, bitmap.cardinality());
+
+                bitmap.add(70000);
+                bitmap.clear();
+                assertFalse(bitmap.contains(70000));
+                assertEquals(0, bitmap.cardinality());
+        }
+
+        // Values dense in the first chunk and sparse in the next ones
+        private int randomValue(Random random) {
+                return random.nextBoolean() ? random.nextInt(20000) : 65536 + random.nextInt(1 << 20);
+        }
+
+        private BitSet toBitSet(RoaringBitmap bitmap) {
+                BitSet bits = new BitSet();
+                bitmap.forEach(bits::set);
+                return bits;
+        }
+}
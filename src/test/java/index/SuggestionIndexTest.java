@@ -0,0 +1,52 @@
+package index;
+
+import model.media.Book;
+import model.media.Magazine;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+// Class for SuggestionIndex tests: completions of titles and IDs
+public class SuggestionIndexTest {
+        private SuggestionIndex index;
+        private Book book;
+
+        @Before
+        // Annotation: Execute before each test
+        public void setUp() {
+                index = new SuggestionIndex();
+                book = new Book("5f3a-91", "Éclat de lune", "Author", LocalDate.of(2020, 1, 1), "Publisher", 100);
+                index.add(book);
+                index.add(new Book("5f3b-02", "Eclipse", "Author", LocalDate.of(2020, 1, 1), "Publisher", 100));
+                index.add(new Magazine("M-1", "Écho", LocalDate.of(2020, 1, 1), "Publisher", 1));
+        }
+
+        @Test
+        // Annotation: Test of title completions, ignoring case and accents
+        public void testSuggestTitles() {
+                assertEquals("Echo sorts before Eclat", Arrays.asList("M-1", "5f3a-91", "5f3b-02"),
+                                index.suggest("EC", 10));
+                assertEquals(Arrays.asList("5f3a-91"), index.suggest("éclat", 10));
+                assertEquals(Arrays.asList("M-1", "5f3a-91"), index.suggest("ec", 2));
+        }
+
+        @Test
+        // Annotation: Test of ID completions
+        public void testSuggestIds() {
+                assertEquals(Arrays.asList("5f3a-91", "5f3b-02"), index.suggest("5F3", 10));
+                assertEquals(Arrays.asList("M-1"), index.suggest("m-", 10));
+        }
+
+        @Test
+        // Annotation: Test of a removed media, no longer suggested
+        public void testRemove() {
+                index.remove(book);
+                assertEquals(Collections.emptyList(), index.suggest("5f3a", 10));
+                assertEquals(Arrays.asList("M-1", "5f3b-02"), index.suggest("ec", 10));
+        }
+}
@@ -0,0 +1,204 @@
+package index;
+
+import model.media.Book;
+import model.media.Media;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+// Class for TitleTokenIndex tests: token search and concurrent updates of the
+// posting lists
+public class TitleTokenIndexTest {
+        private static final int THREADS = 8;
+        private static final int OPERATIONS = 5000;
+
+        private TitleTokenIndex index;
+
+        @Before
+        // Annotation: Execute before each test
+        public void setUp() {
+                index = new TitleTokenIndex();
+        }
+
+        @Test
+        // Annotation: Test of a search matching every token of the query
+        public void testSearchMatchesAllTokens() {
+                index.add(createBook("B-1", "The Lord of the Rings"));
+                index.add(createBook("B-2", "The Rings of Saturn"));
+                index.add(createBook("B-3", "Lord Jim"));
+
+                assertEquals(new HashSet<>(Arrays.asList("B-1", "B-2")), index.search("rings"));
+                assertEquals(Collections.singleton("B-1"), index.search("LORD rings"));
+                assertTrue(index.search("lord saturn").isEmpty());
+                assertTrue("A query without token matches nothing", index.search("  ").isEmpty());
+        }
+
+        @Test
+        // Annotation: Test of the removal of a media and of its tokens
+        public void testRemove() {
+                Media book = createBook("B-1", "Solaris");
+                index.add(book);
+                index.add(createBook("B-2", "Solaris again"));
+                index.remove(book);
+
+                assertEquals(Collections.singleton("B-2"), index.search("solaris"));
+                index.remove(createBook("B-2", "Solaris again"));
+                assertTrue(index.search("solaris").isEmpty());
+                assertEquals("Tokens without postings should be dropped", 0, index.getTokenCount());
+        }
+
+        @Test
+        // Annotation: Test of the BM25 ranking: rare tokens, repetitions and short
+        // titles score higher
+        public void testSearchRankedOrder() {
+                index.add(createBook("B-1", "The Night"));
+                index.add(createBook("B-2", "The Night of the Long Knives and the Short Ones"));
+                index.add(createBook("B-3", "Night Night Night"));
+                index.add(createBook("B-4", "The Garden"));
+
+                Map<String, Double> hits = index.searchRanked("night", 10);
+                assertEquals(Arrays.asList("B-3", "B-1", "B-2"), new ArrayList<>(hits.keySet()));
+                assertTrue(hits.get("B-1") > hits.get("B-2"));
+                assertEquals("The rare token outweighs the common one", "B-4",
+                                index.searchRanked("the garden", 1).keySet().iterator().next());
+                assertTrue(index.searchRanked("night", 0).isEmpty());
+        }
+
+        @Test
+        // Annotation: Test of the top hits against a full scoring and sort
+        public void testSearchRankedMatchesFullSort() {
+                String[] words = { "red", "blue", "green", "dark", "sea", "sky" };
+                Random random = new Random(17);
+                List<Media> mediaList = new ArrayList<>();
+                for (int i = 0; i < 500; i++) {
+                        StringBuilder title = new StringBuilder();
+                        for (int n = random.nextInt(6); n >= 0; n--) {
+                                title.append(words[random.nextInt(words.length)]).append(' ');
+                        }
+                        Media media = createBook(String.format("B-%03d", i), title.toString());
+                        mediaList.add(media);
+                        index.add(media);
+                }
+
+                for (int i = 0; i < 50; i++) {
+                        String query = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)];
+                        int limit = 1 + random.nextInt(30);
+                        Map<String, Double> scores = score(mediaList, query);
+                        List<String> expected = new ArrayList<>(scores.keySet());
+                        expected.sort((first, second) -> {
+                                int byScore = Double.compare(scores.get(second), scores.get(first));
+                                return byScore != 0 ? byScore : first.compareTo(second);
+                        });
+                        Map<String, Double> hits = index.searchRanked(query, limit);
+                        assertEquals("Unexpected hits for " + query,
+                                        expected.subList(0, Math.min(limit, expected.size())),
+                                        new ArrayList<>(hits.keySet()));
+                        for (Map.Entry<String, Double> hit : hits.entrySet()) {
+                                assertEquals(scores.get(hit.getKey()), hit.getValue(), 1e-9);
+                        }
+                }
+        }
+
+        @Test
+        // Annotation: Test of the dictionary rebuilt once the removed tokens
+        // outnumber the live ones
+        public void testDictionaryDropsDeadTokens() {
+                index.add(createBook("B-0", "Harry Potter"));
+                for (int i = 1; i <= 3000; i++) {
+                        Media media = createBook("B-" + i, "volume" + i);
+                        index.add(media);
+                        index.remove(media);
+                }
+
+                assertEquals(2, index.getTokenCount());
+                assertTrue("The dead tokens should be dropped: " + index.getDictionarySize(),
+                                index.getDictionarySize() < 1100);
+                assertEquals(Collections.singleton("B-0"), index.searchFuzzy("Harry Poter"));
+                assertTrue(index.searchFuzzy("volume12").isEmpty());
+
+                index.add(createBook("B-1", "volume1"));
+                assertEquals("A token added again is searchable", Collections.singleton("B-1"),
+                                index.searchFuzzy("volume2"));
+        }
+
+        @Test
+        // Annotation: Test of concurrent adds and removes sharing the same tokens
+        public void testConcurrentAddAndRemove() throws Exception {
+                ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Void>> futures = new ArrayList<>();
+                try {
+                        for (int i = 0; i < THREADS; i++) {
+                                final int thread = i;
+                                futures.add(executorService.submit(() -> {
+                                        start.await();
+                                        for (int n = 0; n < OPERATIONS; n++) {
+                                                // The posting lists are emptied by the other threads again and again
+                                                Media media = createBook("B-" + thread + "-" + n, "shared words");
+                                                index.add(media);
+                                                assertTrue("A media should be found once added: " + media.getId(),
+                                                                index.search("shared words").contains(media.getId()));
+                                                index.remove(media);
+                                        }
+                                        return null;
+                                }));
+                        }
+                        start.countDown();
+                        for (Future<Void> future : futures) {
+                                future.get(60, TimeUnit.SECONDS);
+                        }
+                } finally {
+                        executorService.shutdownNow();
+                }
+                assertEquals("Every token should be dropped at the end", 0, index.getTokenCount());
+        }
+
+        // BM25 score of every matching title, computed from scratch
+        private Map<String, Double> score(List<Media> mediaList, String query) {
+                double totalLength = 0;
+                for (Media media : mediaList) {
+                        totalLength += TitleTokenizer.tokenize(media.getTitle()).size();
+                }
+                double averageLength = Math.max(totalLength / mediaList.size(), 1);
+                Map<String, Double> scores = new HashMap<>();
+                for (String token : new HashSet<>(TitleTokenizer.tokenize(query))) {
+                        double matches = 0;
+                        for (Media media : mediaList) {
+                                if (TitleTokenizer.tokenize(media.getTitle()).contains(token)) {
+                                        matches++;
+                                }
+                        }
+                        double idf = Math.log(1 + (mediaList.size() - matches + 0.5) / (matches + 0.5));
+                        for (Media media : mediaList) {
+                                List<String> tokens = TitleTokenizer.tokenize(media.getTitle());
+                                double frequency = Collections.frequency(tokens, token);
+                                if (frequency > 0) {
+                                        double score = idf * frequency * 2.2
+                                                        / (frequency + 1.2 * (0.25 + 0.75 * tokens.size() / averageLength));
+                                        scores.merge(media.getId(), score, Double::sum);
+                                }
+                        }
+                }
+                return scores;
+        }
+
+        private Media createBook(String id, String title) {
+                return new Book(id, title, "Author", LocalDate.of(2020, 1, 1), "Publisher", 100);
+        }
+}
@@ -0,0 +1,122 @@
+package index;
+
+import model.media.Book;
+import model.media.Media;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+// Class for TrigramIndex tests: candidates checked against a linear scan of the
+// titles, and concurrent updates of the trigram sets
+public class TrigramIndexTest {
+        private static final String[] WORDS = { "the", "lord", "rings", "ring", "of", "saturn", "lore", "sat",
+                        "urn", "strings", "thermal", "dune" };
+        private static final int THREADS = 8;
+        private static final int OPERATIONS = 5000;
+
+        private TrigramIndex index;
+
+        @Before
+        // Annotation: Execute before each test
+        public void setUp() {
+                index = new TrigramIndex();
+        }
+
+        @Test
+        // Annotation: Test of the verified candidates against a linear contains scan
+        public void testCandidatesMatchLinearScan() {
+                Random random = new Random(42);
+                Map<String, String> titles = new HashMap<>();
+                for (int i = 0; i < 500; i++) {
+                        StringBuilder title = new StringBuilder();
+                        for (int w = 0; w < 1 + random.nextInt(4); w++) {
+                                title.append(w == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+                        }
+                        Media book = createBook("B-" + i, title.toString());
+                        titles.put(book.getId(), title.toString().toLowerCase());
+                        index.add(book);
+                }
+                // Remove some media, their trigrams must not match anymore
+                for (int i = 0; i < 500; i += 3) {
+                        index.remove(createBook("B-" + i, titles.remove("B-" + i)));
+                }
+
+                String[] queries = { "ring", "rings of", "lor", "e lo", "saturn", "urn", "thermal dune", "xyz",
+                                "s s" };
+                for (String query : queries) {
+                        Set<String> expected = new HashSet<>();
+                        for (Map.Entry<String, String> title : titles.entrySet()) {
+                                if (title.getValue().contains(query)) {
+                                        expected.add(title.getKey());
+                                }
+                        }
+                        Set<String> found = new HashSet<>();
+                        for (String id : index.candidates(query)) {
+                                // The caller verifies the candidates
+                                assertTrue("A removed media should not be a candidate", titles.containsKey(id));
+                                if (titles.get(id).contains(query)) {
+                                        found.add(id);
+                                }
+                        }
+                        assertEquals("Unexpected matches for '" + query + "'", expected, found);
+                }
+        }
+
+        @Test
+        // Annotation: Test of a text shorter than a trigram, which cannot be narrowed
+        public void testShortTextHasNoCandidates() {
+                index.add(createBook("B-1", "Dune"));
+                assertNull(index.candidates("du"));
+        }
+
+        @Test
+        // Annotation: Test of concurrent adds and removes sharing the same trigrams
+        public void testConcurrentAddAndRemove() throws Exception {
+                ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Void>> futures = new ArrayList<>();
+                try {
+                        for (int i = 0; i < THREADS; i++) {
+                                final int thread = i;
+                                futures.add(executorService.submit(() -> {
+                                        start.await();
+                                        for (int n = 0; n < OPERATIONS; n++) {
+                                                // The trigram sets are emptied by the other threads again and again
+                                                Media media = createBook("B-" + thread + "-" + n, "Dune");
+                                                index.add(media);
+                                                assertTrue("A media should be a candidate once added: " + media.getId(),
+                                                                index.candidates("dune").contains(media.getId()));
+                                                index.remove(media);
+                                        }
+                                        return null;
+                                }));
+                        }
+                        start.countDown();
+                        for (Future<Void> future : futures) {
+                                future.get(60, TimeUnit.SECONDS);
+                        }
+                } finally {
+                        executorService.shutdownNow();
+                }
+                assertTrue(index.candidates("dune").isEmpty());
+        }
+
+        private Media createBook(String id, String title) {
+                return new Book(id, title, "Author", LocalDate.of(2020, 1, 1), "Publisher", 100);
+        }
+}
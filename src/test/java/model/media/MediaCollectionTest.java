@@ -0,0 +1,68 @@
+package model.media;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+// Class for MediaCollection tests: members held by ID and resolved on access
+public class MediaCollectionTest {
+
+        @Test
+        // Annotation: Test of the members of a collection not attached to a resolver
+        public void testDetachedMembers() {
+                MediaCollection collection = new MediaCollection("C-1", "Collection", LocalDate.of(2020, 1, 1));
+                Book first = createBook("B-1");
+                Book second = createBook("B-2");
+                collection.addMedia(first);
+                collection.addMedia(second);
+                collection.removeMedia(first);
+
+                assertEquals(Collections.singletonList(second), collection.getMediaItems());
+                assertEquals(Collections.singletonList("B-2"), collection.getMediaIds());
+        }
+
+        @Test
+        // Annotation: Test of the members resolved once the resolver is set
+        public void testResolvedMembers() {
+                MediaCollection collection = new MediaCollection("C-1", "Collection", LocalDate.of(2020, 1, 1));
+                Book first = createBook("B-1");
+                collection.addMedia(first);
+
+                Map<String, Media> catalog = new HashMap<>();
+                Book stored = createBook("B-1");
+                catalog.put(stored.getId(), stored);
+                collection.setMediaResolver(catalog::get);
+                assertSame("The member should be resolved, not the detached copy", stored,
+                                collection.getMediaItems().get(0));
+
+                // Added once attached: resolved only, not kept by the collection
+                Book second = createBook("B-2");
+                collection.addMedia(second);
+                assertEquals(Arrays.asList("B-1", "B-2"), collection.getMediaIds());
+                assertEquals(Collections.singletonList(stored), collection.getMediaItems());
+                catalog.put(second.getId(), second);
+                assertEquals(Arrays.asList(stored, second), collection.getMediaItems());
+        }
+
+        @Test
+        // Annotation: Test of the unavailability cascading to the members
+        public void testUnavailableCollectionMakesMembersUnavailable() {
+                MediaCollection collection = new MediaCollection("C-1", "Collection", LocalDate.of(2020, 1, 1));
+                Book book = createBook("B-1");
+                collection.addMedia(book);
+
+                assertTrue(collection.compareAndSetAvailable(true, false));
+                assertFalse(book.isAvailable());
+                assertFalse("A second checkout should fail", collection.compareAndSetAvailable(true, false));
+        }
+
+        private Book createBook(String id) {
+                return new Book(id, "Title " + id, "Author", LocalDate.of(2020, 1, 1), "Publisher", 100);
+        }
+}
@@ -0,0 +1,58 @@
+package observer;
+
+import model.media.Book;
+import model.media.Media;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+// Class for MediaChangeObserver tests: a batch passed change by change to an
+// observer that does not handle batches
+public class MediaChangeObserverTest {
+
+        @Test
+        // Annotation: Test of the default batch notification, in the order of
+        // the batch
+        public void testBatchIsPassedChangeByChange() {
+                Media added = createBook("B-1");
+                Media oldMedia = createBook("B-2");
+                Media newMedia = createBook("B-2");
+                Media removed = createBook("B-3");
+                List<String> calls = new ArrayList<>();
+                MediaChangeObserver observer = new MediaChangeObserver() {
+                        @Override
+                        public void onMediaAdded(Media media) {
+                                calls.add("added " + media.getId());
+                        }
+
+                        @Override
+                        public void onMediaRemoved(Media media) {
+                                calls.add("removed " + media.getId());
+                        }
+
+                        @Override
+                        public void onMediaUpdated(Media oldState, Media newState) {
+                                assertSame(oldMedia, oldState);
+                                assertSame(newMedia, newState);
+                                calls.add("updated " + newState.getId());
+                        }
+                };
+
+                observer.onMediaBatchChanged(new MediaChangeBatch(Arrays.asList(added),
+                                Arrays.asList(new MediaChangeBatch.Update(oldMedia, newMedia)), Arrays.asList(removed)));
+                assertEquals(Arrays.asList("added B-1", "updated B-2", "removed B-3"), calls);
+
+                observer.onMediaBatchChanged(MediaChangeBatch.removed(Collections.emptyList()));
+                assertEquals(3, calls.size());
+        }
+
+        private Media createBook(String id) {
+                return new Book(id, "Title " + id, "Author", LocalDate.of(2020, 1, 1), "Publisher", 100);
+        }
+}
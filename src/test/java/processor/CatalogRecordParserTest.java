@@ -0,0 +1,75 @@
+package processor;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+// Class for CatalogRecordParser tests: CSV lines with quoted fields and flat
+// NDJSON objects
+public class CatalogRecordParserTest {
+
+        @Test
+        // Annotation: Test of CSV lines with quoted, empty and trailing fields
+        public void testParseCsvLine() {
+                assertEquals(Arrays.asList("Book", "Dune", "Frank Herbert"),
+                                CatalogRecordParser.parseCsvLine("Book,Dune,Frank Herbert"));
+                assertEquals(Arrays.asList("Book", "War, Peace", "He said \"no\""),
+                                CatalogRecordParser.parseCsvLine("Book,\"War, Peace\",\"He said \"\"no\"\"\""));
+                assertEquals(Arrays.asList("", "", ""), CatalogRecordParser.parseCsvLine(",,"));
+                assertEquals(Arrays.asList("a", ""), CatalogRecordParser.parseCsvLine("a,"));
+                assertEquals(Arrays.asList(""), CatalogRecordParser.parseCsvLine(""));
+        }
+
+        @Test
+        // Annotation: Test of malformed CSV lines and records
+        public void testMalformedCsv() {
+                try {
+                        CatalogRecordParser.parseCsvLine("Book,\"Unclosed");
+                        fail("An unclosed quote should be rejected");
+                } catch (IllegalArgumentException e) {
+                        // Expected
+                }
+                try {
+                        CatalogRecordParser.parseCsvRecord(Arrays.asList("type", "title"), "Book,Dune,Extra");
+                        fail("A line with too many fields should be rejected");
+                } catch (IllegalArgumentException e) {
+                        // Expected
+                }
+                Map<String, String> record = CatalogRecordParser.parseCsvRecord(Arrays.asList("type", "title"),
+                                "Magazine,\"Wired, US\"");
+                assertEquals("Wired, US", record.get("title"));
+        }
+
+        @Test
+        // Annotation: Test of NDJSON objects with escapes, numbers, booleans and
+        // nulls
+        public void testParseJsonRecord() {
+                Map<String, String> record = CatalogRecordParser.parseJsonRecord(
+                                " { \"Type\" : \"Book\", \"title\":\"Caf\\u00e9 \\\"Noir\\\"\\n\", \"pages\": 120,"
+                                                + " \"available\":true, \"author\": null } ");
+                assertEquals("Book", record.get("type"));
+                assertEquals("Café \"Noir\"\n", record.get("title"));
+                assertEquals("120", record.get("pages"));
+                assertEquals("true", record.get("available"));
+                assertFalse("A null value is left out", record.containsKey("author"));
+                assertTrue(CatalogRecordParser.parseJsonRecord("{}").isEmpty());
+        }
+
+        @Test
+        // Annotation: Test of malformed NDJSON lines
+        public void testMalformedJson() {
+                String[] lines = { "", "[1]", "{\"title\":\"Dune\"", "{\"title\":{\"a\":1}}", "{\"title\":}",
+                                "{\"title\":\"Dune\"} extra", "{\"title\":\"Unclosed}", "{\"t\":\"\\u12\"}" };
+                for (String line : lines) {
+                        try {
+                                CatalogRecordParser.parseJsonRecord(line);
+                                fail("The line should be rejected: " + line);
+                        } catch (IllegalArgumentException e) {
+                                // Expected
+                        }
+                }
+        }
+}
@@ -0,0 +1,175 @@
+package processor;
+
+import exception.LibraryException;
+import factory.MediaFactory;
+import model.media.Book;
+import model.media.Magazine;
+import model.media.Media;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import service.MediaService;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+// Class for ImportProcessor tests: the pipeline of an import, with a mocked
+// service recording the saved batches
+public class ImportProcessorTest {
+        @Rule
+        // Annotation: Temporary folder for the imported files
+        public TemporaryFolder folder = new TemporaryFolder();
+
+        private MediaService mediaService;
+        private List<Media> saved;
+        private List<Integer> batchSizes;
+
+        @Before
+        // Annotation: Execute before each test
+        @SuppressWarnings("unchecked")
+        public void setUp() throws LibraryException {
+                mediaService = mock(MediaService.class);
+                saved = Collections.synchronizedList(new ArrayList<>());
+                batchSizes = Collections.synchronizedList(new ArrayList<>());
+                Media known = MediaFactory.createBook("Dune", "Frank Herbert", LocalDate.of(1965, 8, 1), "Chilton",
+                                412);
+                when(mediaService.findAllMedia()).thenReturn(Collections.singletonList(known));
+                when(mediaService.saveAllMedia(anyCollection())).thenAnswer(invocation -> {
+                        Collection<Media> batch = invocation.getArgument(0);
+                        saved.addAll(batch);
+                        batchSizes.add(batch.size());
+                        return new ArrayList<>(batch);
+                });
+        }
+
+        @Test
+        // Annotation: Test of a CSV import with rejected lines and duplicates
+        public void testImportCsv() throws Exception {
+                File file = write("catalog.csv", "\uFEFFTitle,Type,Author,PublicationDate,Publisher,Pages,Issue",
+                                "\"Solaris, revised\",Book,Stanislaw Lem,01/01/1961,MON,204,",
+                                "Wired,Magazine,,01/05/2020,Condé Nast,,42",
+                                "dune,book,FRANK HERBERT,01/08/1965,Chilton,412,",
+                                "Solaris,Book,Stanislaw Lem,32/01/1961,MON,204,",
+                                "Solaris,Book,Stanislaw Lem,01/01/1961,MON,-3,",
+                                "Solaris,Novel,Stanislaw Lem,01/01/1961,MON,204,",
+                                "",
+                                "\"Solaris, revised\",Book,Stanislaw Lem,01/01/1961,Other,204,");
+
+                ImportReport report = new ImportProcessor(mediaService, 2, 10, 4).importFile(file.getPath());
+
+                assertEquals(8, report.getLinesRead());
+                assertEquals(4, report.getParsed());
+                assertEquals(3, report.getRejected());
+                assertEquals("Known in the catalog and repeated in the file", 2, report.getDuplicates());
+                assertEquals(2, report.getInserted());
+                assertTrue(report.isComplete());
+                assertEquals(3, report.getErrors().size());
+                assertEquals(4, report.getStages().size());
+
+                Set<String> titles = new HashSet<>();
+                for (Media media : saved) {
+                        titles.add(media.getTitle());
+                }
+                assertEquals(new HashSet<>(Arrays.asList("Solaris, revised", "Wired")), titles);
+                for (Media media : saved) {
+                        if (media instanceof Magazine) {
+                                assertEquals(42, ((Magazine) media).getIssue());
+                        } else {
+                                assertEquals(204, ((Book) media).getPages());
+                        }
+                }
+        }
+
+        @Test
+        // Annotation: Test of an NDJSON import
+        public void testImportNdjson() throws Exception {
+                File file = write("catalog.ndjson",
+                                "{\"type\":\"Book\",\"title\":\"Emma\",\"author\":\"Jane Austen\","
+                                                + "\"publicationDate\":\"23/12/1815\","
+                                                + "\"publisher\":\"John Murray\",\"pages\":474}",
+                                "{\"type\":\"Magazine\",\"title\":\"Analog\",\"publicationDate\":\"01/12/1963\","
+                                                + "\"publisher\":\"Condé Nast\",\"issue\":\"4\"}",
+                                "{\"type\":\"Book\",\"title\":\"Broken\"");
+
+                ImportReport report = new ImportProcessor(mediaService).importFile(file.getPath());
+
+                assertEquals(ImportProcessor.Format.NDJSON, report.getFormat());
+                assertEquals(2, report.getInserted());
+                assertEquals(1, report.getRejected());
+                assertEquals(1, report.getBatches());
+        }
+
+        @Test
+        // Annotation: Test of a large file, going through several chunks and
+        // batches with a failed batch
+        public void testImportInBatches() throws Exception {
+                List<String> lines = new ArrayList<>();
+                lines.add("type,title,author,publicationdate,publisher,pages");
+                for (int i = 0; i < 3000; i++) {
+                        lines.add("Book,Title " + i + ",Author,01/01/2000,Publisher," + (i + 1));
+                }
+                File file = write("large.csv", lines.toArray(new String[0]));
+                // Stubbed with doAnswer, so that the previous answer is not called
+                doAnswer(invocation -> {
+                        Collection<Media> batch = invocation.getArgument(0);
+                        if (batchSizes.size() == 1) {
+                                batchSizes.add(-batch.size());
+                                throw new LibraryException("Simulated failure");
+                        }
+                        saved.addAll(batch);
+                        batchSizes.add(batch.size());
+                        return new ArrayList<>(batch);
+                }).when(mediaService).saveAllMedia(anyCollection());
+
+                ImportReport report = new ImportProcessor(mediaService, 3, 500, 2).importFile(file.getPath());
+
+                assertEquals(3000, report.getLinesRead());
+                assertEquals(3000, report.getParsed());
+                assertEquals(500, report.getFailed());
+                assertEquals(2500, report.getInserted());
+                assertEquals(5, report.getBatches());
+                assertEquals(6, batchSizes.size());
+                Set<String> titles = new HashSet<>();
+                for (Media media : saved) {
+                        assertTrue("A media should be saved once: " + media.getTitle(), titles.add(media.getTitle()));
+                }
+        }
+
+        @Test
+        // Annotation: Test of the files that cannot be imported
+        public void testInvalidFiles() throws IOException {
+                File noPublisher = write("missing.csv", "type,title,publicationdate", "Book,Dune,01/08/1965");
+                File unknown = write("catalog.xml", "<catalog/>");
+                String[] paths = { noPublisher.getPath(), unknown.getPath(), new File(folder.getRoot(), "none.csv")
+                                .getPath() };
+                for (String path : paths) {
+                        try {
+                                new ImportProcessor(mediaService).importFile(path);
+                                fail("The import should fail: " + path);
+                        } catch (LibraryException e) {
+                                // Expected
+                        }
+                }
+        }
+
+        private File write(String name, String... lines) throws IOException {
+                File file = folder.newFile(name);
+                Files.write(file.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+                return file;
+        }
+}
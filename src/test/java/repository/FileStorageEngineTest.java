@@ -0,0 +1,210 @@
+package repository;
+
+import exception.LibraryException;
+import factory.MediaFactory;
+import model.media.Media;
+import model.media.MediaCollection;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+// Class for the file storage engines tests: switching between the serialization
+// and binary engines, journal first ordering of the binary engine, and snapshots
+// serialized by previous versions
+public class FileStorageEngineTest {
+
+        @Rule
+        // Annotation: Temporary data directory, deleted after each test
+        public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+        private File dataDir;
+
+        @Before
+        // Annotation: Execute before each test
+        public void setUp() throws IOException {
+                dataDir = temporaryFolder.newFolder("data");
+        }
+
+        @Test
+        // Annotation: Test of the serialization engine writing the snapshot read by the binary engine
+        public void testSerializationEngineWritesMediaDat() throws LibraryException {
+                SerializationStorageEngine serializationEngine = new SerializationStorageEngine(
+                                new FileStorageManager(dataDir));
+                serializationEngine.load();
+                Media book = createBook("Serialized book");
+                serializationEngine.persist(book);
+
+                assertTrue("The snapshot should be media.dat", new File(dataDir, "media.dat").exists());
+                assertFalse(new File(dataDir, "media.ser").exists());
+
+                BinaryFileStorageEngine binaryEngine = new BinaryFileStorageEngine(new FileStorageManager(dataDir),
+                                FileStorageManager.SnapshotMode.STREAM);
+                assertEquals(idsOf(book), idsOf(binaryEngine.load()));
+        }
+
+        @Test
+        // Annotation: Test of the serialization engine loading the journal of the binary engine
+        public void testSwitchFromBinaryEngineKeepsJournaledChanges() throws LibraryException {
+                BinaryFileStorageEngine binaryEngine = new BinaryFileStorageEngine(new FileStorageManager(dataDir),
+                                FileStorageManager.SnapshotMode.STREAM);
+                binaryEngine.load();
+                Media first = createBook("First book");
+                Media second = createBook("Second book");
+                binaryEngine.persist(first);
+                binaryEngine.persist(second);
+                // No close: the changes are only in the journal
+
+                SerializationStorageEngine serializationEngine = new SerializationStorageEngine(
+                                new FileStorageManager(dataDir));
+                assertEquals(idsOf(first, second), idsOf(serializationEngine.load()));
+                serializationEngine.delete(first.getId());
+
+                // The journal was merged, it must not bring the deleted media back
+                assertEquals(0, new File(dataDir, "media.journal").length());
+                BinaryFileStorageEngine reopened = new BinaryFileStorageEngine(new FileStorageManager(dataDir),
+                                FileStorageManager.SnapshotMode.STREAM);
+                assertEquals(idsOf(second), idsOf(reopened.load()));
+        }
+
+        @Test
+        // Annotation: Test of a failed journal append, which leaves the state unchanged
+        public void testFailedAppendLeavesStateUnchanged() throws LibraryException {
+                BinaryFileStorageEngine binaryEngine = new BinaryFileStorageEngine(new FileStorageManager(dataDir),
+                                FileStorageManager.SnapshotMode.STREAM);
+                binaryEngine.load();
+                Media kept = createBook("Kept book");
+                binaryEngine.persist(kept);
+                binaryEngine.flush();
+
+                // A directory in place of the journal makes the appends fail
+                File journal = new File(dataDir, "media.journal");
+                assertTrue(journal.delete());
+                assertTrue(journal.mkdir());
+                Media lost = createBook("Lost book");
+                try {
+                        binaryEngine.persist(lost);
+                        fail("The append should fail");
+                } catch (LibraryException e) {
+                        // Expected
+                }
+                try {
+                        binaryEngine.delete(kept.getId());
+                        fail("The append should fail");
+                } catch (LibraryException e) {
+                        // Expected
+                }
+                assertTrue(journal.delete());
+
+                // The next checkpoint writes the state without the failed changes
+                binaryEngine.flush();
+                BinaryFileStorageEngine reopened = new BinaryFileStorageEngine(new FileStorageManager(dataDir),
+                                FileStorageManager.SnapshotMode.STREAM);
+                assertEquals(idsOf(kept), idsOf(reopened.load()));
+        }
+
+        @Test
+        // Annotation: Test of a collection made unavailable, whose members are
+        // journaled with it and unavailable after a crash
+        public void testCollectionCascadeIsJournaled() throws LibraryException {
+                MediaRepository repository = new MediaRepository(new BinaryFileStorageEngine(
+                                new FileStorageManager(dataDir), FileStorageManager.SnapshotMode.STREAM));
+                Media book = repository.save(createBook("Member book"));
+                MediaCollection collection = new MediaCollection("C-1", "Collection", LocalDate.of(2020, 1, 1));
+                collection.addMedia(book);
+                repository.save(collection);
+                collection.setAvailable(false);
+                repository.update(collection);
+                // No close: the changes are only in the journal
+
+                MediaRepository reopened = new MediaRepository(new BinaryFileStorageEngine(
+                                new FileStorageManager(dataDir), FileStorageManager.SnapshotMode.STREAM));
+                assertFalse(reopened.findById("C-1").isAvailable());
+                assertFalse("The member should be unavailable with its collection",
+                                reopened.findById(book.getId()).isAvailable());
+        }
+
+        @Test
+        // Annotation: Test of the snapshots serialized by previous versions, with the
+        // availability as a boolean and the members inside or as IDs
+        public void testLoadPreviousSerializedSnapshots() throws LibraryException, IOException {
+                for (String snapshot : Arrays.asList("media-members.dat", "media-member-ids.dat")) {
+                        File snapshotDir = temporaryFolder.newFolder(snapshot);
+                        try (InputStream in = getClass().getResourceAsStream(snapshot)) {
+                                Files.copy(in, new File(snapshotDir, "media.dat").toPath());
+                        }
+                        MediaRepository repository = new MediaRepository(
+                                        new SerializationStorageEngine(new FileStorageManager(snapshotDir)));
+                        checkPreviousCatalog(snapshot, repository);
+
+                        // Rewritten in the current form, the catalog is read the same
+                        repository.compareAndSetAvailable("B-1", true, false);
+                        repository.compareAndSetAvailable("B-1", false, true);
+                        checkPreviousCatalog(snapshot, new MediaRepository(
+                                        new SerializationStorageEngine(new FileStorageManager(snapshotDir))));
+                }
+        }
+
+        @Test
+        // Annotation: Test of an unreadable snapshot, which stops the repository
+        // instead of being replaced by an empty catalog
+        public void testUnreadableSnapshotIsKept() throws IOException {
+                File snapshot = new File(dataDir, "media.dat");
+                byte[] content = { (byte) 0xAC, (byte) 0xED, 0, 5, 42, 42, 42 };
+                Files.write(snapshot.toPath(), content);
+                try {
+                        new MediaRepository(new SerializationStorageEngine(new FileStorageManager(dataDir)));
+                        fail("The repository should not start on an unreadable snapshot");
+                } catch (IllegalStateException e) {
+                        // Expected
+                }
+                assertArrayEquals("The snapshot should be left as it was", content,
+                                Files.readAllBytes(snapshot.toPath()));
+        }
+
+        // Catalog of the snapshot fixtures, written by previous versions
+        private void checkPreviousCatalog(String snapshot, MediaRepository repository) throws LibraryException {
+                assertEquals(snapshot, 5, repository.findAll().size());
+                assertEquals(snapshot, "Dune", repository.findById("B-1").getTitle());
+                assertEquals(snapshot, 1, repository.findByAuthor("Frank Herbert").size());
+                assertTrue(snapshot, repository.findById("B-1").isAvailable());
+                assertFalse(snapshot, repository.findById("B-2").isAvailable());
+                assertFalse(snapshot, repository.findById("M-1").isAvailable());
+                MediaCollection collection = (MediaCollection) repository.findById("C-1");
+                assertTrue(snapshot, collection.isAvailable());
+                assertEquals(snapshot, Arrays.asList(repository.findById("B-1"), repository.findById("M-1")),
+                                collection.getMediaItems());
+                assertFalse(snapshot, repository.findById("C-2").isAvailable());
+                assertEquals(snapshot, Collections.emptyList(), ((MediaCollection) repository.findById("C-2"))
+                                .getMediaItems());
+        }
+
+        private Set<String> idsOf(Media... mediaList) {
+                Set<String> ids = new HashSet<>();
+                for (Media media : mediaList) {
+                        ids.add(media.getId());
+                }
+                return ids;
+        }
+
+        private Set<String> idsOf(List<Media> mediaList) {
+                return idsOf(mediaList.toArray(new Media[0]));
+        }
+
+        private Media createBook(String title) {
+                return MediaFactory.createBook(title, "Author", LocalDate.of(2020, 1, 1), "Publisher", 100);
+        }
+}
@@ -0,0 +1,129 @@
+package repository;
+
+import exception.LibraryException;
+import factory.MediaFactory;
+import model.media.Book;
+import model.media.Media;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import util.LoggerManager;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.*;
+
+// Class for FileStorageManager tests: journal replay and checkpoints, in a
+// temporary data directory
+public class FileStorageManagerTest {
+        private static final Logger LOGGER = LoggerManager.getLogger(FileStorageManagerTest.class.getName());
+
+        @Rule
+        // Annotation: Temporary data directory, deleted after each test
+        public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+        private File dataDir;
+
+        @Before
+        // Annotation: Execute before each test
+        public void setUp() throws IOException {
+                dataDir = temporaryFolder.newFolder("data");
+        }
+
+        @Test
+        // Annotation: Test of the journal replayed after a crash, without checkpoint
+        public void testJournalReplayAfterCrash() throws LibraryException {
+                FileStorageManager storageManager = new FileStorageManager(dataDir);
+                Media first = createBook("First book");
+                Media second = createBook("Second book");
+                Media third = createBook("Third book");
+                storageManager.appendPut(first);
+                storageManager.appendPut(second);
+                storageManager.appendDelete(first.getId());
+                List<Media> batch = new ArrayList<>();
+                batch.add(third);
+                batch.add(new Book(second.getId(), "Second book updated", "Author", second.getPublicationDate(),
+                                "Publisher", 120));
+                storageManager.appendBatch(batch, Collections.<String>emptyList());
+
+                // The process stops here: a new manager reads the files left on disk
+                Map<String, Media> catalog = load(new FileStorageManager(dataDir));
+                assertEquals("Unexpected number of media after replay", 2, catalog.size());
+                assertFalse("A deleted media should not be replayed", catalog.containsKey(first.getId()));
+                assertEquals("The last version should be replayed", "Second book updated",
+                                catalog.get(second.getId()).getTitle());
+                assertEquals("Third book", catalog.get(third.getId()).getTitle());
+                LOGGER.info("Journal replayed after crash: " + catalog.size() + " media");
+        }
+
+        @Test
+        // Annotation: Test of a torn last record, dropped and truncated at load
+        public void testTornJournalRecordIsDropped() throws LibraryException, IOException {
+                FileStorageManager storageManager = new FileStorageManager(dataDir);
+                Media book = createBook("Complete record");
+                storageManager.appendPut(book);
+                File journal = new File(dataDir, "media.journal");
+                long completeLength = journal.length();
+
+                // Record interrupted in the middle of its payload
+                try (FileOutputStream fos = new FileOutputStream(journal, true)) {
+                        fos.write(new byte[] { 3, 0, 0, 1, 0, 42, 42 });
+                }
+
+                Map<String, Media> catalog = load(new FileStorageManager(dataDir));
+                assertEquals("Only the complete record should be replayed", 1, catalog.size());
+                assertTrue(catalog.containsKey(book.getId()));
+                assertEquals("The torn record should be truncated", completeLength, journal.length());
+        }
+
+        @Test
+        // Annotation: Test of a checkpoint, in both snapshot formats
+        public void testCheckpointReplacesSnapshotAndTruncatesJournal() throws LibraryException {
+                for (FileStorageManager.SnapshotMode mode : FileStorageManager.SnapshotMode.values()) {
+                        FileStorageManager storageManager = new FileStorageManager(dataDir);
+                        storageManager.setSnapshotMode(mode);
+                        Map<String, Media> catalog = load(storageManager);
+                        for (int i = 0; i < 10; i++) {
+                                Media book = createBook(mode + " book " + i);
+                                storageManager.appendPut(book);
+                                catalog.put(book.getId(), book);
+                        }
+                        storageManager.checkpoint(catalog);
+
+                        assertEquals("The journal should be empty after a checkpoint", 0,
+                                        new File(dataDir, "media.journal").length());
+                        for (String name : dataDir.list()) {
+                                assertFalse("No temporary file should be left: " + name, name.endsWith(".tmp"));
+                        }
+
+                        FileStorageManager reopened = new FileStorageManager(dataDir);
+                        reopened.setSnapshotMode(mode);
+                        Map<String, Media> reloaded = load(reopened);
+                        assertEquals("The snapshot should hold the whole catalog", catalog.keySet(),
+                                        reloaded.keySet());
+                        assertFalse("A checkpoint should leave nothing to checkpoint", reopened.needsCheckpoint());
+                }
+        }
+
+        private Map<String, Media> load(FileStorageManager storageManager) throws LibraryException {
+                Map<String, Media> catalog = new LinkedHashMap<>();
+                for (Media media : storageManager.loadMedia()) {
+                        catalog.put(media.getId(), media);
+                }
+                return catalog;
+        }
+
+        private Media createBook(String title) {
+                return MediaFactory.createBook(title, "Author", LocalDate.of(2020, 1, 1), "Publisher", 100);
+        }
+}
@@ -0,0 +1,83 @@
+package repository;
+
+import model.media.Book;
+import model.media.Magazine;
+import model.media.Media;
+import model.media.MediaCollection;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+// Class for MappedMediaStore tests: round trip of a catalog through the mapped file
+public class MappedMediaStoreTest {
+
+        @Rule
+        // Annotation: Temporary directory of the mapped files, deleted after each test
+        public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+        @Test
+        // Annotation: Test of the round trip of every media type and of shared strings
+        public void testWriteAndRead() throws IOException {
+                List<Media> mediaList = new ArrayList<>();
+                Book book = new Book("B-1", "Dune", null, LocalDate.of(1965, 8, 1), "Chilton", 412);
+                book.setAvailable(false);
+                mediaList.add(book);
+                mediaList.add(new Book("B-2", "Dune Messiah", "Frank Herbert", LocalDate.of(1969, 1, 1), "Chilton",
+                                256));
+                mediaList.add(new Magazine("M-1", "Analog", LocalDate.of(1963, 12, 1), "Condé Nast", 4));
+                MediaCollection collection = new MediaCollection("C-1", "Dune", LocalDate.of(2020, 1, 1));
+                collection.addMediaId("B-1");
+                collection.addMediaId("B-2");
+                mediaList.add(collection);
+
+                File file = temporaryFolder.newFile("media.map");
+                MappedMediaStore.write(file, mediaList);
+                Map<String, Media> catalog = new LinkedHashMap<>();
+                MappedMediaStore.read(file, catalog);
+
+                assertEquals("The media should be read in order", mediaList, new ArrayList<>(catalog.values()));
+                Book readBook = (Book) catalog.get("B-1");
+                assertNull("A null author should stay null", readBook.getAuthor());
+                assertEquals(412, readBook.getPages());
+                assertFalse("The availability should be kept", readBook.isAvailable());
+                assertEquals("Frank Herbert", ((Book) catalog.get("B-2")).getAuthor());
+                // A publisher shared by two slots is decoded once
+                assertSame(((Book) catalog.get("B-1")).getPublisher(), ((Book) catalog.get("B-2")).getPublisher());
+                Magazine readMagazine = (Magazine) catalog.get("M-1");
+                assertEquals("Condé Nast", readMagazine.getPublisher());
+                assertEquals(4, readMagazine.getIssue());
+                assertEquals(Arrays.asList("B-1", "B-2"), ((MediaCollection) catalog.get("C-1")).getMediaIds());
+        }
+
+        @Test
+        // Annotation: Test of an empty catalog
+        public void testEmptyCatalog() throws IOException {
+                File file = temporaryFolder.newFile("empty.map");
+                MappedMediaStore.write(file, new ArrayList<>());
+                Map<String, Media> catalog = new LinkedHashMap<>();
+                MappedMediaStore.read(file, catalog);
+                assertTrue(catalog.isEmpty());
+        }
+
+        @Test(expected = IOException.class)
+        // Annotation: Test of a file that is not a mapped snapshot
+        public void testWrongMagicIsRejected() throws IOException {
+                File file = temporaryFolder.newFile("other.map");
+                try (FileOutputStream fos = new FileOutputStream(file)) {
+                        fos.write(new byte[32]);
+                }
+                MappedMediaStore.read(file, new LinkedHashMap<>());
+        }
+}
@@ -0,0 +1,110 @@
+package repository;
+
+import model.media.Book;
+import model.media.Magazine;
+import model.media.Media;
+import model.media.MediaCollection;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+// Class for MediaCodec tests: round trip of every media type and rejection of
+// invalid input
+public class MediaCodecTest {
+
+        @Test
+        // Annotation: Test of the round trip of a book, with non-ASCII and null fields
+        public void testBookRoundTrip() throws IOException {
+                Book book = new Book("B-1", "L'Étranger — 異邦人", null, LocalDate.of(1942, 5, 19), "Gallimard", 159);
+                book.setAvailable(false);
+
+                Book decoded = (Book) roundTrip(book);
+                assertEquals(book.getId(), decoded.getId());
+                assertEquals(book.getTitle(), decoded.getTitle());
+                assertNull("A null author should stay null", decoded.getAuthor());
+                assertEquals(book.getPublicationDate(), decoded.getPublicationDate());
+                assertEquals(book.getPublisher(), decoded.getPublisher());
+                assertEquals(book.getPages(), decoded.getPages());
+                assertFalse("The availability should be kept", decoded.isAvailable());
+        }
+
+        @Test
+        // Annotation: Test of the round trip of a magazine
+        public void testMagazineRoundTrip() throws IOException {
+                Magazine magazine = new Magazine("M-1", "Science", LocalDate.of(1880, 7, 3), "AAAS", 6705);
+
+                Magazine decoded = (Magazine) roundTrip(magazine);
+                assertEquals(magazine.getId(), decoded.getId());
+                assertEquals(magazine.getTitle(), decoded.getTitle());
+                assertEquals(magazine.getPublicationDate(), decoded.getPublicationDate());
+                assertEquals(magazine.getPublisher(), decoded.getPublisher());
+                assertEquals(magazine.getIssue(), decoded.getIssue());
+                assertTrue(decoded.isAvailable());
+        }
+
+        @Test
+        // Annotation: Test of the round trip of a collection, members written as IDs
+        public void testCollectionRoundTrip() throws IOException {
+                MediaCollection collection = new MediaCollection("C-1", "Classics", LocalDate.of(2020, 1, 1));
+                collection.addMediaId("B-1");
+                collection.addMediaId("M-1");
+
+                MediaCollection decoded = (MediaCollection) roundTrip(collection);
+                assertEquals(collection.getId(), decoded.getId());
+                assertEquals(collection.getTitle(), decoded.getTitle());
+                assertEquals(collection.getPublicationDate(), decoded.getPublicationDate());
+                assertEquals(Arrays.asList("B-1", "M-1"), decoded.getMediaIds());
+        }
+
+        @Test
+        // Annotation: Test of the round trip of a whole catalog, in order
+        public void testCatalogRoundTrip() throws IOException {
+                List<Media> mediaList = new ArrayList<>();
+                for (int i = 0; i < 100; i++) {
+                        mediaList.add(new Book("B-" + i, "Book " + i, "Author " + i, LocalDate.of(2000, 1, 1)
+                                        .plusDays(i), "Publisher", i));
+                }
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                MediaCodec.writeCatalog(new DataOutputStream(bytes), mediaList);
+
+                Map<String, Media> catalog = new LinkedHashMap<>();
+                MediaCodec.readCatalog(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), catalog);
+                assertEquals(mediaList, new ArrayList<>(catalog.values()));
+        }
+
+        @Test(expected = IOException.class)
+        // Annotation: Test of a file without the magic number
+        public void testWrongMagicIsRejected() throws IOException {
+                byte[] bytes = { 0, 0, 0, 0, MediaCodec.FORMAT_VERSION, 0, 0, 0, 0 };
+                MediaCodec.readCatalog(new DataInputStream(new ByteArrayInputStream(bytes)), new LinkedHashMap<>());
+        }
+
+        @Test(expected = EOFException.class)
+        // Annotation: Test of a truncated record
+        public void testTruncatedRecordIsRejected() throws IOException {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                MediaCodec.encode(new DataOutputStream(bytes),
+                                new Magazine("M-1", "Science", LocalDate.of(1880, 7, 3), "AAAS", 1));
+                byte[] truncated = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 3);
+                MediaCodec.decode(new DataInputStream(new ByteArrayInputStream(truncated)));
+        }
+
+        private Media roundTrip(Media media) throws IOException {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                MediaCodec.encode(new DataOutputStream(bytes), media);
+                return MediaCodec.decode(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        }
+}
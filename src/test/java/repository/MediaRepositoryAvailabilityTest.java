@@ -0,0 +1,282 @@
+package repository;
+
+import exception.LibraryException;
+import exception.MediaAvailabilityException;
+import model.media.Book;
+import model.media.Media;
+import model.media.MediaCollection;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+// Class for the MediaRepository availability tests: compare-and-set of the
+// loans, with the changes of concurrent calls written in shared storage passes
+public class MediaRepositoryAvailabilityTest {
+        private static final int THREADS = 32;
+
+        private SlowStorageEngine storageEngine;
+        private MediaRepository mediaRepository;
+
+        @Before
+        // Annotation: Execute before each test
+        public void setUp() {
+                storageEngine = new SlowStorageEngine();
+                mediaRepository = new MediaRepository(storageEngine);
+        }
+
+        @Test
+        // Annotation: Test of a double checkout and a double checkin, the second
+        // one rejected
+        public void testDoubleCheckoutIsRejected() throws LibraryException {
+                Media book = mediaRepository.save(createBook("B-1"));
+                mediaRepository.compareAndSetAvailable("B-1", true, false);
+                try {
+                        mediaRepository.compareAndSetAvailable("B-1", true, false);
+                        fail("A second checkout should be rejected");
+                } catch (MediaAvailabilityException e) {
+                        assertEquals(Arrays.asList("B-1"), e.getMediaIds());
+                }
+                assertFalse(book.isAvailable());
+                assertFalse(storageEngine.written.get("B-1"));
+
+                mediaRepository.compareAndSetAvailable("B-1", false, true);
+                try {
+                        mediaRepository.compareAndSetAvailable("B-1", false, true);
+                        fail("A second checkin should be rejected");
+                } catch (MediaAvailabilityException e) {
+                        // Expected
+                }
+                assertTrue(book.isAvailable());
+        }
+
+        @Test
+        // Annotation: Test of a bulk checkout with a media already checked out,
+        // which changes nothing and reports the conflicts
+        public void testCheckoutAllIsAllOrNothing() throws LibraryException {
+                mediaRepository.saveAll(Arrays.asList(createBook("B-1"), createBook("B-2"), createBook("B-3")));
+                mediaRepository.compareAndSetAvailable("B-2", true, false);
+                int batches = storageEngine.batches.get();
+                try {
+                        mediaRepository.compareAndSetAllAvailable(Arrays.asList("B-1", "B-2", "B-3"), true, false);
+                        fail("The bulk checkout should be rejected");
+                } catch (MediaAvailabilityException e) {
+                        assertEquals(Arrays.asList("B-2"), e.getMediaIds());
+                }
+                assertTrue(mediaRepository.findById("B-1").isAvailable());
+                assertTrue(mediaRepository.findById("B-3").isAvailable());
+                assertEquals("Nothing should be written", batches, storageEngine.batches.get());
+
+                List<Media> checkedIn = mediaRepository.compareAndSetAllAvailable(Arrays.asList("B-2"), false, true);
+                assertEquals(1, checkedIn.size());
+                assertEquals(3, mediaRepository.compareAndSetAllAvailable(Arrays.asList("B-1", "B-2", "B-3"), true,
+                                false).size());
+        }
+
+        @Test
+        // Annotation: Test of a failed write and a collection, leaving the
+        // availability unchanged
+        public void testRejectedChangesAreSetBack() throws LibraryException {
+                mediaRepository.save(createBook("B-1"));
+                storageEngine.failures.set(1);
+                try {
+                        mediaRepository.compareAndSetAvailable("B-1", true, false);
+                        fail("A storage failure should fail the checkout");
+                } catch (LibraryException e) {
+                        assertFalse("The storage failure should be reported", e instanceof MediaAvailabilityException);
+                }
+                assertTrue("The failed checkout should be set back", mediaRepository.findById("B-1").isAvailable());
+                assertTrue(storageEngine.written.get("B-1"));
+
+                mediaRepository.save(new MediaCollection("C-1", "Collection", LocalDate.of(2020, 1, 1)));
+                try {
+                        mediaRepository.compareAndSetAvailable("C-1", true, false);
+                        fail("A collection should not be checked out on its own");
+                } catch (LibraryException e) {
+                        // Expected
+                }
+                assertTrue(mediaRepository.findById("C-1").isAvailable());
+                mediaRepository.compareAndSetAvailable("B-1", true, false);
+        }
+
+        @Test
+        // Annotation: Test of concurrent checkouts of the same media, with
+        // exactly one winner each time
+        public void testConcurrentCheckoutsHaveOneWinner() throws Exception {
+                for (int round = 0; round < 20; round++) {
+                        String id = "B-" + round;
+                        mediaRepository.save(createBook(id));
+                        AtomicInteger winners = new AtomicInteger();
+                        AtomicInteger rejected = new AtomicInteger();
+                        runConcurrently(thread -> {
+                                try {
+                                        mediaRepository.compareAndSetAvailable(id, true, false);
+                                        winners.incrementAndGet();
+                                } catch (MediaAvailabilityException e) {
+                                        rejected.incrementAndGet();
+                                }
+                        });
+                        assertEquals("A single checkout should succeed", 1, winners.get());
+                        assertEquals(THREADS - 1, rejected.get());
+                        assertFalse(storageEngine.written.get(id));
+                }
+        }
+
+        @Test
+        // Annotation: Test of concurrent checkouts and checkins of different
+        // media, written in fewer storage passes than changes
+        public void testConcurrentCheckoutsShareStoragePasses() throws Exception {
+                int perThread = 10;
+                List<Media> books = new ArrayList<>();
+                for (int i = 0; i < THREADS * perThread; i++) {
+                        books.add(createBook("B-" + i));
+                }
+                mediaRepository.saveAll(books);
+                int batches = storageEngine.batches.get();
+
+                runConcurrently(thread -> {
+                        for (int i = 0; i < perThread; i++) {
+                                String id = "B-" + (thread * perThread + i);
+                                mediaRepository.compareAndSetAvailable(id, true, false);
+                                if (i % 2 == 0) {
+                                        mediaRepository.compareAndSetAvailable(id, false, true);
+                                }
+                        }
+                });
+
+                int changes = THREADS * perThread * 3 / 2;
+                int passes = storageEngine.batches.get() - batches;
+                assertTrue("The changes should share storage passes: " + passes, passes < changes);
+                for (int i = 0; i < books.size(); i++) {
+                        boolean available = i % 2 == 0;
+                        assertEquals(available, books.get(i).isAvailable());
+                        assertEquals("The storage should hold the last availability", available,
+                                        storageEngine.written.get("B-" + i));
+                }
+        }
+
+        @Test
+        // Annotation: Test of checkouts completing while the storage pass of
+        // another media is blocked, with no lock common to all the checkouts
+        public void testBlockedPassDoesNotStopOtherCheckouts() throws Exception {
+                CountDownLatch release = new CountDownLatch(1);
+                RecordingStorageEngine blockingEngine = new RecordingStorageEngine() {
+                        @Override
+                        public void applyChanges(Collection<Media> mediaList, Collection<String> deletedIds)
+                                        throws LibraryException {
+                                if (mediaList.size() == 1 && mediaList.iterator().next().getId().equals("B-0")
+                                                && !mediaList.iterator().next().isAvailable()) {
+                                        try {
+                                                release.await(30, TimeUnit.SECONDS);
+                                        } catch (InterruptedException e) {
+                                                Thread.currentThread().interrupt();
+                                        }
+                                }
+                                super.applyChanges(mediaList, deletedIds);
+                        }
+                };
+                MediaRepository repository = new MediaRepository(blockingEngine);
+                List<Media> books = new ArrayList<>();
+                for (int i = 0; i < 32; i++) {
+                        books.add(createBook("B-" + i));
+                }
+                repository.saveAll(books);
+
+                ExecutorService executorService = Executors.newFixedThreadPool(books.size());
+                try {
+                        List<Future<Media>> checkouts = new ArrayList<>();
+                        for (Media book : books) {
+                                checkouts.add(executorService.submit(
+                                                () -> repository.compareAndSetAvailable(book.getId(), true, false)));
+                        }
+                        int completed = 0;
+                        for (Future<Media> checkout : checkouts.subList(1, checkouts.size())) {
+                                try {
+                                        checkout.get(2, TimeUnit.SECONDS);
+                                        completed++;
+                                } catch (TimeoutException e) {
+                                        // Same commit group as the blocked media
+                                }
+                        }
+                        assertTrue("Checkouts of other groups should complete: " + completed, completed > 0);
+                        assertFalse(checkouts.get(0).isDone());
+
+                        release.countDown();
+                        for (Future<Media> checkout : checkouts) {
+                                assertFalse(checkout.get(30, TimeUnit.SECONDS).isAvailable());
+                        }
+                } finally {
+                        release.countDown();
+                        executorService.shutdownNow();
+                }
+        }
+
+        // Start the task on all the threads at once and wait for them
+        private void runConcurrently(ThreadTask task) throws Exception {
+                ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+                CountDownLatch start = new CountDownLatch(1);
+                try {
+                        List<Future<Void>> futures = new ArrayList<>();
+                        for (int thread = 0; thread < THREADS; thread++) {
+                                int threadNumber = thread;
+                                Callable<Void> callable = () -> {
+                                        start.await();
+                                        task.run(threadNumber);
+                                        return null;
+                                };
+                                futures.add(executorService.submit(callable));
+                        }
+                        start.countDown();
+                        for (Future<Void> future : futures) {
+                                future.get(30, TimeUnit.SECONDS);
+                        }
+                } finally {
+                        executorService.shutdownNow();
+                }
+        }
+
+        private Media createBook(String id) {
+                return new Book(id, "Title " + id, "Author", LocalDate.of(2020, 1, 1), "Publisher", 100);
+        }
+
+        // Task run by each thread of a concurrent test
+        private interface ThreadTask {
+                void run(int thread) throws Exception;
+        }
+
+        // Recording storage engine taking some time for each pass, as a disk write,
+        // and recording the availability written
+        private static class SlowStorageEngine extends RecordingStorageEngine {
+                private final Map<String, Boolean> written = new ConcurrentHashMap<>();
+
+                @Override
+                public void applyChanges(Collection<Media> mediaList, Collection<String> deletedIds)
+                                throws LibraryException {
+                        try {
+                                Thread.sleep(1);
+                        } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                        }
+                        super.applyChanges(mediaList, deletedIds);
+                        for (Media media : mediaList) {
+                                written.put(media.getId(), media.isAvailable());
+                        }
+                }
+        }
+}
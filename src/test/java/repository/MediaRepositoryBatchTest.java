@@ -0,0 +1,115 @@
+package repository;
+
+import exception.LibraryException;
+import exception.MediaNotFoundException;
+import model.media.Book;
+import model.media.Media;
+import model.media.MediaCollection;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+// Class for the MediaRepository batch tests: a batch is persisted in a single
+// storage pass and applied entirely or not at all
+public class MediaRepositoryBatchTest {
+        private RecordingStorageEngine storageEngine;
+        private MediaRepository mediaRepository;
+
+        @Before
+        // Annotation: Execute before each test
+        public void setUp() {
+                storageEngine = new RecordingStorageEngine();
+                mediaRepository = new MediaRepository(storageEngine);
+        }
+
+        @Test
+        // Annotation: Test of a batch save in a single storage pass
+        public void testSaveAllInOnePass() throws LibraryException {
+                mediaRepository.saveAll(Arrays.asList(createBook("B-1"), createBook("B-2"), createBook("B-3")));
+                assertEquals(1, storageEngine.batches.get());
+                assertEquals(3, storageEngine.persisted.size());
+                assertEquals(3, mediaRepository.findAll().size());
+        }
+
+        @Test
+        // Annotation: Test of invalid and failed batches, leaving nothing behind
+        public void testFailedSaveAllStoresNothing() throws LibraryException {
+                try {
+                        mediaRepository.saveAll(Arrays.asList(createBook("B-1"), createBook("B-1")));
+                        fail("A repeated ID should fail the batch");
+                } catch (LibraryException e) {
+                        // Expected
+                }
+                storageEngine.failures.set(1);
+                try {
+                        mediaRepository.saveAll(Arrays.asList(createBook("B-1"), createBook("B-2")));
+                        fail("A storage failure should fail the batch");
+                } catch (LibraryException e) {
+                        // Expected
+                }
+                assertTrue(mediaRepository.findAll().isEmpty());
+                assertTrue(mediaRepository.findByTitle("book").isEmpty());
+                assertEquals(0, storageEngine.batches.get());
+        }
+
+        @Test
+        // Annotation: Test of a batch update with a missing media, changing nothing
+        public void testUpdateAllWithMissingMedia() throws LibraryException {
+                mediaRepository.saveAll(Arrays.asList(createBook("B-1"), createBook("B-2")));
+                try {
+                        mediaRepository.updateAll(Arrays.asList(
+                                        new Book("B-1", "Renamed", "Author", LocalDate.of(2020, 1, 1), "Publisher", 100),
+                                        createBook("B-9")));
+                        fail("A missing media should fail the batch");
+                } catch (MediaNotFoundException e) {
+                        // Expected
+                }
+                assertEquals("Book", mediaRepository.findById("B-1").getTitle());
+                assertEquals(1, storageEngine.batches.get());
+
+                mediaRepository.updateAll(Collections.singletonList(
+                                new Book("B-1", "Renamed", "Author", LocalDate.of(2020, 1, 1), "Publisher", 100)));
+                assertEquals(Collections.singletonList(mediaRepository.findById("B-1")),
+                                mediaRepository.findByTitle("renamed"));
+        }
+
+        @Test
+        // Annotation: Test of a failed batch delete, giving the collections their
+        // members back
+        public void testFailedDeleteAllRestoresCollections() throws LibraryException {
+                Media first = createBook("B-1");
+                Media second = createBook("B-2");
+                MediaCollection collection = new MediaCollection("C-1", "Collection", LocalDate.of(2020, 1, 1));
+                collection.addMedia(first);
+                collection.addMedia(second);
+                mediaRepository.saveAll(Arrays.asList(first, second, collection));
+
+                storageEngine.failures.set(1);
+                try {
+                        mediaRepository.deleteAll(Arrays.asList("B-1", "B-2"));
+                        fail("A storage failure should fail the batch");
+                } catch (LibraryException e) {
+                        // Expected
+                }
+                assertEquals(3, mediaRepository.findAll().size());
+                assertEquals(Arrays.asList("B-1", "B-2"), collection(mediaRepository).getMediaIds());
+
+                mediaRepository.deleteAll(Arrays.asList("B-1", "B-2"));
+                assertEquals(1, mediaRepository.findAll().size());
+                assertTrue(collection(mediaRepository).getMediaIds().isEmpty());
+                assertEquals(Collections.singleton("C-1"), storageEngine.persisted.keySet());
+        }
+
+        private static MediaCollection collection(MediaRepository mediaRepository) throws MediaNotFoundException {
+                return (MediaCollection) mediaRepository.findById("C-1");
+        }
+
+        private static Media createBook(String id) {
+                return new Book(id, "Book", "Author", LocalDate.of(2020, 1, 1), "Publisher", 100);
+        }
+}
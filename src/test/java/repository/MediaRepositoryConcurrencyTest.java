@@ -0,0 +1,216 @@
+package repository;
+
+import exception.LibraryException;
+import exception.MediaNotFoundException;
+import factory.MediaFactory;
+import model.media.Book;
+import model.media.Media;
+import model.media.MediaCollection;
+import org.junit.Before;
+import org.junit.Test;
+import util.LoggerManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.*;
+
+// Class for MediaRepository stress tests with 32 concurrent threads
+public class MediaRepositoryConcurrencyTest {
+        private static final Logger LOGGER = LoggerManager.getLogger(MediaRepositoryConcurrencyTest.class.getName());
+        private static final int THREADS = 32;
+        private static final int OPERATIONS = 200;
+
+        private RecordingStorageEngine storageEngine;
+        private MediaRepository mediaRepository;
+
+        @Before
+        // Annotation: Execute before each test
+        public void setUp() {
+                // A fresh repository for each test, not the singleton
+                storageEngine = new RecordingStorageEngine();
+                mediaRepository = new MediaRepository(storageEngine);
+        }
+
+        @Test
+        // Annotation: Test of concurrent CRUD operations, each thread on its own IDs
+        public void testConcurrentCrud() throws Exception {
+                Map<String, Media> expected = new ConcurrentHashMap<>();
+
+                runConcurrently(thread -> {
+                        List<Media> owned = new ArrayList<>();
+                        for (int i = 0; i < OPERATIONS; i++) {
+                                int action = ThreadLocalRandom.current().nextInt(4);
+                                if (owned.isEmpty() || action == 0) {
+                                        Media book = createBook("Thread " + thread + " book " + i);
+                                        mediaRepository.save(book);
+                                        owned.add(book);
+                                } else if (action == 1) {
+                                        // Update with a new instance of the same media
+                                        Media old = owned.remove(ThreadLocalRandom.current().nextInt(owned.size()));
+                                        Media updated = new Book(old.getId(), old.getTitle() + " updated", "Author",
+                                                        old.getPublicationDate(), "Publisher", 100);
+                                        mediaRepository.update(updated);
+                                        owned.add(updated);
+                                } else if (action == 2) {
+                                        Media deleted = owned.remove(ThreadLocalRandom.current().nextInt(owned.size()));
+                                        mediaRepository.delete(deleted.getId());
+                                        try {
+                                                mediaRepository.findById(deleted.getId());
+                                                fail("A deleted media should not be found");
+                                        } catch (MediaNotFoundException e) {
+                                                // Expected
+                                        }
+                                } else {
+                                        // A thread reads its own writes
+                                        Media read = owned.get(ThreadLocalRandom.current().nextInt(owned.size()));
+                                        assertSame("A thread should read its last write", read,
+                                                        mediaRepository.findById(read.getId()));
+                                }
+                        }
+                        for (Media media : owned) {
+                                expected.put(media.getId(), media);
+                        }
+                        return null;
+                });
+
+                assertRepositoryContains(expected);
+        }
+
+        @Test
+        // Annotation: Test of concurrent updates of the same media
+        public void testConcurrentUpdatesOfSameMedia() throws Exception {
+                Media book = mediaRepository.save(createBook("Shared book"));
+
+                runConcurrently(thread -> {
+                        for (int i = 0; i < OPERATIONS; i++) {
+                                mediaRepository.update(new Book(book.getId(), "Thread " + thread + " version " + i,
+                                                "Author", book.getPublicationDate(), "Publisher", 100));
+                                // Readers never see a missing media during updates
+                                assertNotNull(mediaRepository.findById(book.getId()));
+                        }
+                        return null;
+                });
+
+                // The last persisted version is the version in memory
+                assertSame("The storage should hold the last updated version",
+                                mediaRepository.findById(book.getId()), storageEngine.persisted.get(book.getId()));
+        }
+
+        @Test
+        // Annotation: Test of concurrent membership changes and deletes of members
+        public void testConcurrentDeleteOfCollectionMembers() throws Exception {
+                List<MediaCollection> collections = new ArrayList<>();
+                for (int i = 0; i < 4; i++) {
+                        collections.add((MediaCollection) mediaRepository
+                                        .save(MediaFactory.createMediaCollection("Collection " + i)));
+                }
+
+                runConcurrently(thread -> {
+                        for (int i = 0; i < OPERATIONS / 4; i++) {
+                                Media book = mediaRepository.save(createBook("Thread " + thread + " member " + i));
+                                for (MediaCollection collection : collections) {
+                                        collection.addMedia(book);
+                                        mediaRepository.update(collection);
+                                }
+                                if (i % 2 == 0) {
+                                        mediaRepository.delete(book.getId());
+                                }
+                        }
+                        return null;
+                });
+
+                // Deleted media are removed from every collection, kept media are in all
+                int expectedMembers = THREADS * (OPERATIONS / 4) / 2;
+                for (MediaCollection collection : collections) {
+                        List<String> memberIds = collection.getMediaIds();
+                        assertEquals("Unexpected number of members in " + collection.getTitle(), expectedMembers,
+                                        memberIds.size());
+                        for (String memberId : memberIds) {
+                                assertNotNull(mediaRepository.findById(memberId));
+                                assertTrue(mediaRepository.findCollectionIdsContaining(memberId)
+                                                .contains(collection.getId()));
+                        }
+                }
+                LOGGER.info("Collections checked after concurrent deletes: " + collections.size());
+        }
+
+        // Check that memory and storage hold exactly the expected media instances
+        private void assertRepositoryContains(Map<String, Media> expected) throws LibraryException {
+                List<Media> all = mediaRepository.findAll();
+                assertEquals("Unexpected number of media", expected.size(), all.size());
+                for (Media media : all) {
+                        assertSame("Unexpected version of " + media.getId(), expected.get(media.getId()), media);
+                }
+                assertEquals("Unexpected number of persisted media", expected.size(), storageEngine.persisted.size());
+                for (Map.Entry<String, Media> entry : expected.entrySet()) {
+                        assertSame("Unexpected persisted version of " + entry.getKey(), entry.getValue(),
+                                        storageEngine.persisted.get(entry.getKey()));
+                }
+        }
+
+        // Run the task on 32 threads started together and rethrow the first failure
+        private void runConcurrently(ThreadTask task) throws Exception {
+                ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Void>> futures = new ArrayList<>();
+                try {
+                        for (int i = 0; i < THREADS; i++) {
+                                final int thread = i;
+                                futures.add(executorService.submit((Callable<Void>) () -> {
+                                        start.await();
+                                        return task.run(thread);
+                                }));
+                        }
+                        start.countDown();
+                        for (Future<Void> future : futures) {
+                                future.get(60, TimeUnit.SECONDS);
+                        }
+                } finally {
+                        executorService.shutdownNow();
+                }
+        }
+
+        private Media createBook(String title) {
+                return MediaFactory.createBook(title, "Author", LocalDate.of(2020, 1, 1), "Publisher", 100);
+        }
+
+        // Task run by each thread of a stress test
+        private interface ThreadTask {
+                Void run(int thread) throws Exception;
+        }
+
+        // Storage engine that records the last persisted version of each media
+        private static class RecordingStorageEngine extends InMemoryStorageEngine {
+                private final Map<String, Media> persisted = new ConcurrentHashMap<>();
+
+                @Override
+                public void persist(Media media) {
+                        persisted.put(media.getId(), media);
+                }
+
+                @Override
+                public void persistAll(Collection<Media> mediaList) {
+                        for (Media media : mediaList) {
+                                persist(media);
+                        }
+                }
+
+                @Override
+                public void delete(String id) {
+                        persisted.remove(id);
+                }
+        }
+}
@@ -0,0 +1,190 @@
+package repository;
+
+import builder.MediaQueryBuilder;
+import exception.LibraryException;
+import exception.MediaNotFoundException;
+import model.media.Book;
+import model.media.Magazine;
+import model.media.Media;
+import model.media.MediaCollection;
+import model.media.MediaType;
+import org.junit.Before;
+import org.junit.Test;
+import query.FacetCounts;
+import query.MediaQuery;
+import util.LoggerManager;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.*;
+
+// Class for the MediaRepository query tests: every indexed query is checked
+// against a full scan of the catalog with MediaQuery.matches
+public class MediaRepositoryQueryTest {
+        private static final Logger LOGGER = LoggerManager.getLogger(MediaRepositoryQueryTest.class.getName());
+        private static final String[] WORDS = { "river", "night", "garden", "stone", "city", "winter", "song" };
+        private static final String[] AUTHORS = { "Ann Lee", "Bo Chen", "Cy Diaz", "Di Evans" };
+        private static final String[] PUBLISHERS = { "North", "South", "East" };
+
+        private MediaRepository mediaRepository;
+        private Random random;
+
+        @Before
+        // Annotation: Execute before each test
+        public void setUp() throws LibraryException {
+                mediaRepository = new MediaRepository(new InMemoryStorageEngine());
+                random = new Random(7);
+                for (int i = 0; i < 600; i++) {
+                        mediaRepository.save(createMedia(i));
+                }
+        }
+
+        @Test
+        // Annotation: Test of random queries against a full scan
+        public void testQueriesMatchFullScan() throws LibraryException {
+                checkRandomQueries(300);
+        }
+
+        @Test
+        // Annotation: Test of random queries after updates, deletes and checkouts
+        public void testQueriesMatchFullScanAfterChanges() throws LibraryException, MediaNotFoundException {
+                applyRandomChanges();
+                checkRandomQueries(300);
+        }
+
+        @Test
+        // Annotation: Test of the facet counts against a full scan, after changes
+        public void testFacetsMatchFullScan() throws LibraryException, MediaNotFoundException {
+                checkFacets(new MediaQueryBuilder().build());
+                applyRandomChanges();
+                checkFacets(new MediaQueryBuilder().build());
+                for (int i = 0; i < 50; i++) {
+                        checkFacets(randomQuery());
+                }
+        }
+
+        // Updates, deletes and checkouts of random media, collections excepted
+        private void applyRandomChanges() throws LibraryException, MediaNotFoundException {
+                List<Media> all = mediaRepository.findAll();
+                Set<String> deleted = new HashSet<>();
+                for (int i = 0; i < 200; i++) {
+                        String id = all.get(random.nextInt(all.size())).getId();
+                        if (deleted.contains(id) || id.startsWith("C-")) {
+                                continue;
+                        }
+                        Media media = mediaRepository.findById(id);
+                        int action = random.nextInt(3);
+                        if (action == 0 && media instanceof Book) {
+                                mediaRepository.update(new Book(id, title(), pick(AUTHORS),
+                                                LocalDate.of(1990 + random.nextInt(30), 1 + random.nextInt(12), 1),
+                                                pick(PUBLISHERS), 100));
+                        } else if (action == 1) {
+                                mediaRepository.delete(id);
+                                deleted.add(id);
+                        } else {
+                                mediaRepository.compareAndSetAvailable(id, media.isAvailable(), !media.isAvailable());
+                        }
+                }
+        }
+
+        private void checkFacets(MediaQuery query) throws LibraryException {
+                Map<Integer, Long> byYear = new HashMap<>();
+                Map<String, Long> byPublisher = new HashMap<>();
+                Map<MediaType, Long> byType = new HashMap<>();
+                long available = 0;
+                for (Media media : mediaRepository.findAll()) {
+                        if (!query.matches(media)) {
+                                continue;
+                        }
+                        byYear.merge(media.getPublicationDate().getYear(), 1L, Long::sum);
+                        if (!(media instanceof MediaCollection)) {
+                                byPublisher.merge(media instanceof Book ? ((Book) media).getPublisher()
+                                                : ((Magazine) media).getPublisher(), 1L, Long::sum);
+                        }
+                        byType.merge(MediaType.of(media), 1L, Long::sum);
+                        available += media.isAvailable() ? 1 : 0;
+                }
+                FacetCounts facets = mediaRepository.getFacets(query);
+                assertEquals("Unexpected years for " + query, byYear, facets.getByYear());
+                assertEquals("Unexpected publishers for " + query, byPublisher, facets.getByPublisher());
+                assertEquals("Unexpected types for " + query, byType, facets.getByType());
+                assertEquals("Unexpected availability for " + query, available, facets.getAvailable());
+        }
+
+        private void checkRandomQueries(int count) throws LibraryException {
+                List<Media> all = mediaRepository.findAll();
+                for (int i = 0; i < count; i++) {
+                        MediaQuery query = randomQuery();
+                        Set<String> expected = new HashSet<>();
+                        for (Media media : all) {
+                                if (query.matches(media)) {
+                                        expected.add(media.getId());
+                                }
+                        }
+                        Set<String> found = new HashSet<>();
+                        for (Media media : mediaRepository.findByQuery(query)) {
+                                found.add(media.getId());
+                        }
+                        assertEquals("Unexpected matches for " + query, expected, found);
+                        assertEquals("Unexpected count for " + query, expected.size(),
+                                        mediaRepository.countByQuery(query));
+                }
+                LOGGER.info("Queries checked against a full scan: " + count);
+        }
+
+        // Query with each criterion present half of the time
+        private MediaQuery randomQuery() {
+                MediaQueryBuilder builder = new MediaQueryBuilder();
+                if (random.nextBoolean()) {
+                        builder.withTitle(random.nextBoolean() ? pick(WORDS) : pick(WORDS) + " " + pick(WORDS));
+                }
+                if (random.nextBoolean()) {
+                        int fromYear = 1990 + random.nextInt(30);
+                        builder.withPublicationYearRange(fromYear, fromYear + random.nextInt(8));
+                }
+                if (random.nextBoolean()) {
+                        builder.withAvailable(random.nextBoolean());
+                }
+                if (random.nextInt(3) == 0) {
+                        builder.withType(MediaType.values()[random.nextInt(MediaType.values().length)]);
+                }
+                if (random.nextInt(3) == 0) {
+                        builder.withAuthor(pick(AUTHORS).toUpperCase());
+                }
+                if (random.nextInt(3) == 0) {
+                        builder.withPublisher(pick(PUBLISHERS));
+                }
+                return builder.build();
+        }
+
+        private Media createMedia(int i) {
+                LocalDate date = LocalDate.of(1990 + random.nextInt(30), 1 + random.nextInt(12), 1 + random.nextInt(28));
+                Media media;
+                if (i % 10 == 0) {
+                        media = new MediaCollection("C-" + i, title(), date);
+                } else if (i % 3 == 0) {
+                        media = new Magazine("M-" + i, title(), date, pick(PUBLISHERS), i);
+                } else {
+                        media = new Book("B-" + i, title(), pick(AUTHORS), date, pick(PUBLISHERS), 100 + i);
+                }
+                if (random.nextInt(4) == 0) {
+                        media.setAvailable(false);
+                }
+                return media;
+        }
+
+        private String title() {
+                return pick(WORDS) + " " + pick(WORDS) + " " + pick(WORDS);
+        }
+
+        private String pick(String[] values) {
+                return values[random.nextInt(values.length)];
+        }
+}
@@ -0,0 +1,70 @@
+package repository;
+
+import exception.LibraryException;
+import model.media.Media;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Class for a test storage engine that records the persisted media and can
+// fail its next batches
+public class RecordingStorageEngine implements StorageEngine {
+        public final Map<String, Media> persisted = new ConcurrentHashMap<>();
+        public final AtomicInteger batches = new AtomicInteger();
+        public final AtomicInteger failures = new AtomicInteger();
+
+        @Override
+        public List<Media> load() {
+                return new ArrayList<>(persisted.values());
+        }
+
+        @Override
+        public void persist(Media media) throws LibraryException {
+                applyChanges(Collections.singletonList(media), Collections.<String>emptyList());
+        }
+
+        @Override
+        public void persistAll(Collection<Media> mediaList) throws LibraryException {
+                applyChanges(mediaList, Collections.<String>emptyList());
+        }
+
+        @Override
+        public void applyChanges(Collection<Media> mediaList, Collection<String> deletedIds)
+                        throws LibraryException {
+                if (failures.getAndDecrement() > 0) {
+                        throw new LibraryException("Simulated storage failure");
+                }
+                batches.incrementAndGet();
+                for (Media media : mediaList) {
+                        persisted.put(media.getId(), media);
+                }
+                for (String id : deletedIds) {
+                        persisted.remove(id);
+                }
+        }
+
+        @Override
+        public void delete(String id) throws LibraryException {
+                applyChanges(Collections.<Media>emptyList(), Collections.singletonList(id));
+        }
+
+        @Override
+        public void flush() {
+                // Every batch is already recorded
+        }
+
+        @Override
+        public void close() {
+                // Nothing to release
+        }
+
+        @Override
+        public String getName() {
+                return "recording";
+        }
+}
@@ -0,0 +1,131 @@
+package repository;
+
+import exception.LibraryException;
+import factory.MediaFactory;
+import model.media.Media;
+import model.media.MediaCollection;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+// Class for SegmentedStorageEngine tests: dirty segments, reload, change of the
+// number of segments and restart after a collection cascade
+public class SegmentedStorageEngineTest {
+
+        @Rule
+        // Annotation: Temporary data directory, deleted after each test
+        public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+        private File dataDir;
+        private FileStorageManager storageManager;
+
+        @Before
+        // Annotation: Execute before each test
+        public void setUp() throws IOException {
+                dataDir = temporaryFolder.newFolder("data");
+                storageManager = new FileStorageManager(dataDir);
+        }
+
+        @Test
+        // Annotation: Test of a change that rewrites only the segment of the media
+        public void testOnlyTheSegmentOfTheChangeIsWritten() throws LibraryException {
+                SegmentedStorageEngine engine = new SegmentedStorageEngine(storageManager, 8);
+                engine.load();
+                List<Media> mediaList = createBooks(100);
+                engine.persistAll(mediaList);
+                assertEquals("Every segment should be written", 8, storageManager.listSegments().size());
+                assertTrue(engine.getDirtySegments().isEmpty());
+
+                // Removing the segment files shows which ones the next change writes
+                for (Integer segment : storageManager.listSegments()) {
+                        storageManager.deleteSegment(segment);
+                }
+                Media changed = mediaList.get(0);
+                engine.applyChanges(Collections.singletonList(changed),
+                                Collections.singletonList(mediaList.get(1).getId()));
+                Set<Integer> expected = new HashSet<>(Arrays.asList(engine.segmentOf(changed.getId()),
+                                engine.segmentOf(mediaList.get(1).getId())));
+                assertEquals(expected, new HashSet<>(storageManager.listSegments()));
+        }
+
+        @Test
+        // Annotation: Test of a reload with another number of segments
+        public void testReloadWithFewerSegments() throws LibraryException {
+                SegmentedStorageEngine engine = new SegmentedStorageEngine(storageManager, 16);
+                engine.load();
+                List<Media> mediaList = createBooks(200);
+                engine.persistAll(mediaList);
+                engine.delete(mediaList.get(0).getId());
+                engine.close();
+
+                SegmentedStorageEngine resized = new SegmentedStorageEngine(new FileStorageManager(dataDir), 4);
+                List<Media> loaded = resized.load();
+                assertEquals(idsOf(mediaList.subList(1, mediaList.size())), idsOf(loaded));
+                resized.close();
+                assertEquals("The obsolete segment files should be deleted", Arrays.asList(0, 1, 2, 3),
+                                storageManager.listSegments());
+
+                SegmentedStorageEngine reopened = new SegmentedStorageEngine(new FileStorageManager(dataDir), 4);
+                assertEquals(idsOf(loaded), idsOf(reopened.load()));
+                assertTrue("The media should be in their segment", reopened.getDirtySegments().isEmpty());
+        }
+
+        @Test
+        // Annotation: Test of a collection made unavailable, whose members in other
+        // segments are unavailable after a restart
+        public void testCollectionCascadeAcrossSegments() throws LibraryException {
+                SegmentedStorageEngine engine = new SegmentedStorageEngine(storageManager, 16);
+                MediaRepository repository = new MediaRepository(engine);
+                MediaCollection collection = new MediaCollection("C-1", "Collection", LocalDate.of(2020, 1, 1));
+                List<Media> members = new ArrayList<>();
+                for (Media book : repository.saveAll(createBooks(20))) {
+                        if (engine.segmentOf(book.getId()) != engine.segmentOf(collection.getId())) {
+                                members.add(book);
+                                collection.addMedia(book);
+                        }
+                }
+                assertFalse("Some members should be in other segments", members.isEmpty());
+                repository.save(collection);
+                collection.setAvailable(false);
+                repository.update(collection);
+                repository.close();
+
+                MediaRepository reopened = new MediaRepository(
+                                new SegmentedStorageEngine(new FileStorageManager(dataDir), 16));
+                assertFalse(reopened.findById("C-1").isAvailable());
+                for (Media member : members) {
+                        assertFalse("The member should be unavailable with its collection",
+                                        reopened.findById(member.getId()).isAvailable());
+                }
+        }
+
+        private Set<String> idsOf(List<Media> mediaList) {
+                Set<String> ids = new HashSet<>();
+                for (Media media : mediaList) {
+                        ids.add(media.getId());
+                }
+                return ids;
+        }
+
+        private List<Media> createBooks(int count) {
+                List<Media> mediaList = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                        mediaList.add(MediaFactory.createBook("Book " + i, "Author", LocalDate.of(2020, 1, 1),
+                                        "Publisher", 100));
+                }
+                return mediaList;
+        }
+}
@@ -0,0 +1,20 @@
+package repository;
+
+// Class for the repositories of the tests outside this package, with a storage
+// engine of their own instead of the shared data directory
+public final class TestRepositories {
+
+        // Private constructor to avoid instantiation
+        private TestRepositories() {
+        }
+
+        /**
+         * Create a repository over a storage engine
+         *
+         * @param storageEngine : The storage engine of the repository
+         * @return a new repository, loaded from the storage engine
+         */
+        public static MediaRepository create(StorageEngine storageEngine) {
+                return new MediaRepository(storageEngine);
+        }
+}
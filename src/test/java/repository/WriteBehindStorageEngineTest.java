@@ -0,0 +1,118 @@
+package repository;
+
+import exception.LibraryException;
+import factory.MediaFactory;
+import model.media.Media;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+// Class for WriteBehindStorageEngine tests: merged batches, retry of a failed
+// batch and changes made while the engine is closed
+public class WriteBehindStorageEngineTest {
+        // Long enough for the scheduled flush to never run during a test
+        private static final long NO_SCHEDULED_FLUSH = TimeUnit.HOURS.toMillis(1);
+
+        @Test
+        // Annotation: Test of several changes merged into a single batch
+        public void testChangesAreMergedIntoOneBatch() throws LibraryException {
+                RecordingStorageEngine delegate = new RecordingStorageEngine();
+                WriteBehindStorageEngine engine = new WriteBehindStorageEngine(delegate, NO_SCHEDULED_FLUSH, 1000);
+                Media kept = createBook("Kept");
+                Media deleted = createBook("Deleted");
+                engine.persist(deleted);
+                engine.persist(kept);
+                engine.persist(kept);
+                engine.delete(deleted.getId());
+                assertEquals("Nothing should be written before the flush", 0, delegate.batches.get());
+                assertEquals(2, engine.getPendingChanges());
+
+                engine.flush();
+                assertEquals("The changes should be written in one batch", 1, delegate.batches.get());
+                assertSame(kept, delegate.persisted.get(kept.getId()));
+                assertFalse(delegate.persisted.containsKey(deleted.getId()));
+                assertEquals(0, engine.getPendingChanges());
+                engine.close();
+        }
+
+        @Test
+        // Annotation: Test of a failed batch, kept for the next flush
+        public void testFailedBatchIsRetried() throws LibraryException {
+                RecordingStorageEngine delegate = new RecordingStorageEngine();
+                delegate.failures.set(1);
+                WriteBehindStorageEngine engine = new WriteBehindStorageEngine(delegate, NO_SCHEDULED_FLUSH, 1000);
+                Media book = createBook("Retried");
+                engine.persist(book);
+
+                try {
+                        engine.flush();
+                        fail("The first flush should fail");
+                } catch (LibraryException e) {
+                        // Expected
+                }
+                assertEquals("The failed change should be pending again", 1, engine.getPendingChanges());
+
+                engine.flush();
+                assertSame(book, delegate.persisted.get(book.getId()));
+                engine.close();
+        }
+
+        @Test
+        // Annotation: Test of changes made concurrently with the close of the engine
+        public void testChangesDuringCloseAreWrittenOrRefused() throws Exception {
+                RecordingStorageEngine delegate = new RecordingStorageEngine();
+                // Every change fills the buffer and asks the flusher for a flush
+                WriteBehindStorageEngine engine = new WriteBehindStorageEngine(delegate, NO_SCHEDULED_FLUSH, 1);
+                Set<String> acknowledged = ConcurrentHashMap.newKeySet();
+                ExecutorService executorService = Executors.newFixedThreadPool(8);
+                CountDownLatch started = new CountDownLatch(8);
+                List<Future<?>> futures = new ArrayList<>();
+                try {
+                        for (int i = 0; i < 8; i++) {
+                                futures.add(executorService.submit(() -> {
+                                        started.countDown();
+                                        while (true) {
+                                                Media book = createBook("Concurrent");
+                                                try {
+                                                        engine.persist(book);
+                                                } catch (LibraryException e) {
+                                                        // Refused once closed
+                                                        return null;
+                                                }
+                                                acknowledged.add(book.getId());
+                                        }
+                                }));
+                        }
+                        started.await();
+                        Thread.sleep(50);
+                        engine.close();
+                        for (Future<?> future : futures) {
+                                // A RejectedExecutionException would fail here
+                                future.get(30, TimeUnit.SECONDS);
+                        }
+                } finally {
+                        executorService.shutdownNow();
+                }
+
+                assertFalse(acknowledged.isEmpty());
+                for (String id : acknowledged) {
+                        assertTrue("An acknowledged change should be written: " + id,
+                                        delegate.persisted.containsKey(id));
+                }
+        }
+
+        private static Media createBook(String title) {
+                return MediaFactory.createBook(title, "Author", LocalDate.of(2020, 1, 1), "Publisher", 100);
+        }
+}
@@ -0,0 +1,181 @@
+package service;
+
+import exception.LibraryException;
+import exception.MediaAvailabilityException;
+import exception.MediaNotFoundException;
+import model.media.Book;
+import model.media.Media;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+// Class for AsyncMediaService tests: reads and loans in parallel on the read
+// threads, writes in order on the write thread, failures carried by the futures
+public class AsyncMediaServiceTest {
+        private MediaService mediaService;
+        private AsyncMediaService asyncMediaService;
+
+        @Before
+        // Annotation: Execute before each test
+        public void setUp() {
+                mediaService = mock(MediaService.class);
+                asyncMediaService = new AsyncMediaService(mediaService, 2);
+        }
+
+        @After
+        // Annotation: Execute after each test
+        public void tearDown() {
+                asyncMediaService.shutdown();
+        }
+
+        @Test
+        // Annotation: Test of reads running in parallel on the read threads
+        public void testReadsRunInParallel() throws Exception {
+                CountDownLatch bothStarted = new CountDownLatch(2);
+                List<String> threads = Collections.synchronizedList(new ArrayList<>());
+                when(mediaService.findMediaById(anyString())).thenAnswer(invocation -> {
+                        threads.add(Thread.currentThread().getName());
+                        bothStarted.countDown();
+                        // Only returns once the other read started too
+                        assertTrue(bothStarted.await(10, TimeUnit.SECONDS));
+                        return createBook(invocation.getArgument(0));
+                });
+
+                CompletableFuture<Media> first = asyncMediaService.findMediaById("B-1");
+                CompletableFuture<Media> second = asyncMediaService.findMediaById("B-2");
+                assertEquals("B-1", first.get(10, TimeUnit.SECONDS).getId());
+                assertEquals("B-2", second.get(10, TimeUnit.SECONDS).getId());
+                for (String thread : threads) {
+                        assertTrue(thread.startsWith("media-read-"));
+                }
+        }
+
+        @Test
+        // Annotation: Test of writes run one at a time, in the submission order
+        public void testWritesRunInOrder() throws Exception {
+                List<String> saved = Collections.synchronizedList(new ArrayList<>());
+                List<String> expected = new ArrayList<>();
+                when(mediaService.saveMedia(any(Media.class))).thenAnswer(invocation -> {
+                        Media media = invocation.getArgument(0);
+                        assertEquals("media-write-1", Thread.currentThread().getName());
+                        saved.add(media.getId());
+                        return media;
+                });
+
+                List<CompletableFuture<Media>> futures = new ArrayList<>();
+                for (int i = 0; i < 50; i++) {
+                        expected.add("B-" + i);
+                        futures.add(asyncMediaService.saveMedia(createBook("B-" + i)));
+                }
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+                assertEquals(expected, saved);
+        }
+
+        @Test
+        // Annotation: Test of a failed call, completing its future exceptionally
+        public void testFailureCompletesExceptionally() throws Exception {
+                when(mediaService.findMediaById("B-9")).thenThrow(new MediaNotFoundException("B-9"));
+                doThrow(new MediaNotFoundException("B-1")).when(mediaService).deleteMedia("B-1");
+
+                try {
+                        asyncMediaService.findMediaById("B-9").get(10, TimeUnit.SECONDS);
+                        fail("The read should fail");
+                } catch (ExecutionException e) {
+                        assertTrue(e.getCause() instanceof MediaNotFoundException);
+                }
+                CompletableFuture<Void> deletion = asyncMediaService.deleteMedia("B-1");
+                try {
+                        deletion.get(10, TimeUnit.SECONDS);
+                        fail("The write should fail");
+                } catch (ExecutionException e) {
+                        assertTrue(e.getCause() instanceof LibraryException);
+                }
+                // The write thread survives a failure
+                asyncMediaService.deleteAllMedia(Collections.singletonList("B-2")).get(10, TimeUnit.SECONDS);
+                verify(mediaService).deleteAllMedia(Collections.singletonList("B-2"));
+        }
+
+        @Test
+        // Annotation: Test of checkouts running in parallel on the read threads,
+        // a rejected checkout completing its future exceptionally
+        public void testLoansRunInParallel() throws Exception {
+                CountDownLatch bothStarted = new CountDownLatch(2);
+                when(mediaService.checkout(anyString())).thenAnswer(invocation -> {
+                        assertTrue(Thread.currentThread().getName().startsWith("media-read-"));
+                        bothStarted.countDown();
+                        // Only returns once the other checkout started too
+                        assertTrue(bothStarted.await(10, TimeUnit.SECONDS));
+                        return createBook(invocation.getArgument(0));
+                });
+                when(mediaService.checkin("B-1")).thenThrow(
+                                new MediaAvailabilityException(Collections.singletonList("B-1"), false));
+
+                CompletableFuture<Media> first = asyncMediaService.checkout("B-1");
+                CompletableFuture<Media> second = asyncMediaService.checkout("B-2");
+                assertEquals("B-1", first.get(10, TimeUnit.SECONDS).getId());
+                assertEquals("B-2", second.get(10, TimeUnit.SECONDS).getId());
+                try {
+                        asyncMediaService.checkin("B-1").get(10, TimeUnit.SECONDS);
+                        fail("The checkin should fail");
+                } catch (ExecutionException e) {
+                        assertTrue(e.getCause() instanceof MediaAvailabilityException);
+                }
+        }
+
+        @Test
+        // Annotation: Test of the bulk loans, run by the media service
+        public void testBulkLoans() throws Exception {
+                List<String> ids = Arrays.asList("B-1", "B-2");
+                List<Media> books = Arrays.<Media>asList(createBook("B-1"), createBook("B-2"));
+                when(mediaService.checkoutAll(ids)).thenReturn(books);
+                when(mediaService.checkinAll(ids)).thenReturn(books);
+
+                assertEquals(books, asyncMediaService.checkoutAll(ids).get(10, TimeUnit.SECONDS));
+                assertEquals(books, asyncMediaService.checkinAll(ids).get(10, TimeUnit.SECONDS));
+                verify(mediaService).checkoutAll(ids);
+                verify(mediaService).checkinAll(ids);
+        }
+
+        @Test
+        // Annotation: Test of the shutdown, completing the pending writes and
+        // refusing the new calls
+        public void testShutdown() throws Exception {
+                CountDownLatch release = new CountDownLatch(1);
+                when(mediaService.saveMedia(any(Media.class))).thenAnswer(invocation -> {
+                        release.await(10, TimeUnit.SECONDS);
+                        return invocation.getArgument(0);
+                });
+                CompletableFuture<Media> pending = asyncMediaService.saveMedia(createBook("B-1"));
+                CompletableFuture<Media> queued = asyncMediaService.saveMedia(createBook("B-2"));
+                release.countDown();
+                asyncMediaService.shutdown();
+
+                assertTrue(pending.isDone());
+                assertEquals("B-2", queued.get().getId());
+                try {
+                        asyncMediaService.findAllMedia().get(10, TimeUnit.SECONDS);
+                        fail("A call after the shutdown should fail");
+                } catch (ExecutionException e) {
+                        assertTrue(e.getCause() instanceof LibraryException);
+                }
+        }
+
+        private static Book createBook(String id) {
+                return new Book(id, "Book", "Author", LocalDate.of(2020, 1, 1), "Publisher", 100);
+        }
+}
@@ -6,9 +6,12 @@ import factory.MediaFactory;
 import model.media.Book;
 import model.media.Media;
 import model.media.MediaCollection;
+import observer.MediaChangeBatch;
+import observer.MediaChangeObserver;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.Spy;
@@ -19,6 +22,7 @@ import util.LoggerManager;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -342,4 +346,31 @@ public class MediaServiceJUnitTest {
 
                 LOGGER.info("Collection verification completed successfully");
         }
+
+        @Test
+        // Annotation: Test of the notifications of the checkouts and checkins,
+        // one update per loan and one batch per bulk loan
+        public void testLoansNotifyObservers() throws LibraryException {
+                MediaChangeObserver observer = mock(MediaChangeObserver.class);
+                mediaService.addMediaChangeObserver(observer);
+
+                when(mediaRepository.compareAndSetAvailable(testBook.getId(), true, false)).thenReturn(testBook);
+                when(mediaRepository.compareAndSetAvailable(testBook.getId(), false, true)).thenReturn(testBook);
+                mediaService.checkout(testBook.getId());
+                mediaService.checkin(testBook.getId());
+                // Unit Test: The observers are notified asynchronously
+                verify(observer, timeout(5000).times(2)).onMediaUpdated(testBook, testBook);
+
+                List<Media> loans = Arrays.asList(testBook, testMagazine);
+                List<String> ids = Arrays.asList(testBook.getId(), testMagazine.getId());
+                when(mediaRepository.compareAndSetAllAvailable(ids, true, false)).thenReturn(loans);
+                mediaService.checkoutAll(ids);
+                ArgumentCaptor<MediaChangeBatch> batch = ArgumentCaptor.forClass(MediaChangeBatch.class);
+                verify(observer, timeout(5000)).onMediaBatchChanged(batch.capture());
+                assertEquals(2, batch.getValue().getUpdates().size());
+                assertSame(testMagazine, batch.getValue().getUpdates().get(1).getNewMedia());
+                assertTrue(batch.getValue().getAddedMedia().isEmpty());
+
+                mediaService.removeMediaChangeObserver(observer);
+        }
 }
\ No newline at end of file
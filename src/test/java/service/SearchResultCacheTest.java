@@ -0,0 +1,112 @@
+package service;
+
+import model.media.Book;
+import model.media.Media;
+import observer.MediaChangeBatch;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+// Class for SearchResultCache tests: hits, precise invalidation by the change
+// events and eviction within the memory budget
+public class SearchResultCacheTest {
+        private SearchResultCache cache;
+        private AtomicInteger loads;
+        private Book dune;
+
+        @Before
+        // Annotation: Execute before each test
+        public void setUp() {
+                cache = new SearchResultCache(1024 * 1024);
+                loads = new AtomicInteger();
+                dune = createBook("B-1", "Dune Messiah", 1969);
+        }
+
+        @Test
+        // Annotation: Test of a repeated search answered by the cache
+        public void testHit() {
+                assertEquals(Arrays.asList(dune), cache.getByTitle("messiah DUNE", loader(dune)));
+                assertEquals(Arrays.asList(dune), cache.getByTitle("Dune  Messiah", loader(dune)));
+                assertEquals("The same words in another order or case share the entry", 1, loads.get());
+                assertEquals(1, cache.getHits());
+                assertEquals(0.5, cache.getHitRate(), 1e-9);
+
+                List<Media> copy = cache.getByPublicationYear(1969, loader(dune));
+                copy.clear();
+                assertEquals("A caller cannot change the cached result", Arrays.asList(dune),
+                                cache.getByPublicationYear(1969, loader(dune)));
+        }
+
+        @Test
+        // Annotation: Test of the entries dropped by a change, and only those
+        public void testPreciseInvalidation() {
+                cache.getByTitle("dune", loader(dune));
+                cache.getByTitle("dune messiah", loader(dune));
+                cache.getByTitle("emma", loader());
+                cache.getByPublicationYear(1969, loader(dune));
+                cache.getByPublicationYear(1815, loader());
+
+                cache.onMediaAdded(createBook("B-2", "Dune", 1965));
+                assertEquals("Only the entries matching the added title or year are dropped", 4, cache.size());
+                cache.getByTitle("dune", loader());
+                cache.getByTitle("dune messiah", loader());
+                assertEquals(6, loads.get());
+
+                cache.onMediaUpdated(dune, createBook("B-1", "Emma", 1815));
+                assertEquals("The entries of the old and new states are dropped", 0, cache.size());
+                assertEquals(6, cache.getInvalidations());
+
+                cache.getByTitle("dune", loader(dune));
+                cache.getByTitle("messiah", loader(dune));
+                cache.onMediaBatchChanged(
+                                MediaChangeBatch.removed(Collections.singletonList(createBook("B-2", "Dune", 1965))));
+                assertEquals(1, cache.size());
+        }
+
+        @Test
+        // Annotation: Test of a result loaded during a change, not cached
+        public void testLoadDuringChangeNotCached() {
+                cache.getByTitle("dune", () -> {
+                        cache.onMediaRemoved(dune);
+                        return new ArrayList<>(Collections.singletonList(dune));
+                });
+                assertEquals(0, cache.size());
+        }
+
+        @Test
+        // Annotation: Test of the least recently used entries evicted over the budget
+        public void testEvictionWithinBudget() {
+                cache = new SearchResultCache(400);
+                for (int year = 2000; year < 2010; year++) {
+                        cache.getByPublicationYear(year, loader(dune));
+                        cache.getByPublicationYear(2000, loader(dune));
+                }
+                assertTrue(cache.getUsedBytes() <= 400);
+                assertTrue(cache.getEvictions() > 0);
+                int before = loads.get();
+                cache.getByPublicationYear(2000, loader(dune));
+                assertEquals("The most used entry is kept", before, loads.get());
+                cache.getByPublicationYear(2001, loader(dune));
+                assertEquals("An old entry is evicted", before + 1, loads.get());
+        }
+
+        private Supplier<List<Media>> loader(Media... results) {
+                return () -> {
+                        loads.incrementAndGet();
+                        return new ArrayList<>(Arrays.asList(results));
+                };
+        }
+
+        private Book createBook(String id, String title, int year) {
+                return new Book(id, title, "Author", LocalDate.of(year, 1, 1), "Publisher", 100);
+        }
+}
@@ -0,0 +1,161 @@
+package service;
+
+import builder.MediaQueryBuilder;
+import exception.LibraryException;
+import model.media.Book;
+import model.media.Media;
+import model.media.MediaCollection;
+import observer.MediaChangeExecutor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import repository.MediaRepository;
+import repository.RecordingStorageEngine;
+import repository.TestRepositories;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+// Class for UnitOfWork tests: changes staged on copies, applied together on
+// commit and dropped on rollback
+public class UnitOfWorkTest {
+        private RecordingStorageEngine storageEngine;
+        private MediaRepository mediaRepository;
+        private MediaChangeExecutor mediaChangeSubject;
+        private SearchResultCache searchResultCache;
+        private Book book;
+        private MediaCollection collection;
+
+        @Before
+        // Annotation: Execute before each test
+        public void setUp() throws LibraryException {
+                storageEngine = new RecordingStorageEngine();
+                mediaRepository = TestRepositories.create(storageEngine);
+                mediaChangeSubject = new MediaChangeExecutor();
+                searchResultCache = new SearchResultCache(1024 * 1024);
+                mediaChangeSubject.addSynchronousObserver(searchResultCache);
+                book = new Book("B-1", "Solaris", "Stanislaw Lem", LocalDate.of(1961, 1, 1), "Publisher", 204);
+                collection = new MediaCollection("C-1", "Classics", LocalDate.of(2020, 1, 1));
+                mediaRepository.saveAll(Arrays.asList(book, collection));
+        }
+
+        @After
+        // Annotation: Execute after each test
+        public void tearDown() {
+                mediaChangeSubject.shutdown();
+        }
+
+        @Test
+        // Annotation: Test of a commit replacing the media and invalidating the
+        // cached searches
+        public void testCommitReplacesMedia() throws LibraryException {
+                assertSame(book, searchSolaris().get(0));
+                int batches = storageEngine.batches.get();
+
+                addToCollection();
+
+                Media committed = mediaRepository.findById("B-1");
+                assertNotSame(book, committed);
+                assertFalse(committed.isAvailable());
+                assertTrue(((MediaCollection) mediaRepository.findById("C-1")).containsMedia("B-1"));
+                assertEquals("Both media are persisted in one pass", batches + 1, storageEngine.batches.get());
+                assertSame("The cached search sees the committed media", committed, searchSolaris().get(0));
+                assertTrue("The replaced media is never changed", book.isAvailable());
+                assertEquals(1, mediaRepository.countByQuery(new MediaQueryBuilder().withAvailable(false).build()));
+        }
+
+        @Test
+        // Annotation: Test of a rollback, the shared media never changed
+        public void testRollbackDropsChanges() throws LibraryException {
+                int batches = storageEngine.batches.get();
+                try (UnitOfWork unitOfWork = new UnitOfWork(mediaRepository, mediaChangeSubject)) {
+                        MediaCollection collectionCopy = (MediaCollection) unitOfWork.registerDirty(collection);
+                        Media bookCopy = unitOfWork.registerDirty(book);
+                        bookCopy.setAvailable(false);
+                        collectionCopy.addMedia(bookCopy);
+
+                        assertTrue("Staged changes are not visible", book.isAvailable());
+                        assertTrue(collection.getMediaIds().isEmpty());
+                        assertEquals(0, mediaRepository
+                                        .countByQuery(new MediaQueryBuilder().withAvailable(false).build()));
+                }
+                assertSame(book, mediaRepository.findById("B-1"));
+                assertSame(collection, mediaRepository.findById("C-1"));
+                assertTrue(collection.getMediaIds().isEmpty());
+                assertEquals(batches, storageEngine.batches.get());
+        }
+
+        @Test
+        // Annotation: Test of a commit refused when a media changed since it was
+        // registered
+        public void testCommitFailsOnConcurrentChange() throws LibraryException {
+                UnitOfWork unitOfWork = new UnitOfWork(mediaRepository, mediaChangeSubject);
+                MediaCollection collectionCopy = (MediaCollection) unitOfWork.registerDirty(collection);
+                Media bookCopy = unitOfWork.registerDirty(book);
+                bookCopy.setAvailable(false);
+                collectionCopy.addMedia(bookCopy);
+
+                mediaRepository.compareAndSetAvailable("B-1", true, false);
+                try {
+                        unitOfWork.commit();
+                        fail("The checkout made meanwhile should not be overwritten");
+                } catch (LibraryException e) {
+                        // Expected
+                }
+                assertSame(book, mediaRepository.findById("B-1"));
+                assertFalse(book.isAvailable());
+                assertTrue(((MediaCollection) mediaRepository.findById("C-1")).getMediaIds().isEmpty());
+        }
+
+        @Test
+        // Annotation: Test of a failed persist, leaving the repository unchanged
+        public void testFailedPersistChangesNothing() throws LibraryException {
+                storageEngine.failures.set(1);
+                try {
+                        addToCollection();
+                        fail("The storage failure should fail the commit");
+                } catch (LibraryException e) {
+                        // Expected
+                }
+                assertSame(book, mediaRepository.findById("B-1"));
+                assertTrue(book.isAvailable());
+                assertTrue(collection.getMediaIds().isEmpty());
+                assertEquals(0, mediaRepository.countByQuery(new MediaQueryBuilder().withAvailable(false).build()));
+        }
+
+        @Test
+        // Annotation: Test of a collection copy cascading to copies of its members
+        public void testCollectionCopyCascadesToMemberCopies() throws LibraryException {
+                addToCollection();
+                mediaRepository.compareAndSetAvailable("B-1", false, true);
+                Media member = mediaRepository.findById("B-1");
+
+                try (UnitOfWork unitOfWork = new UnitOfWork(mediaRepository, mediaChangeSubject)) {
+                        unitOfWork.registerDirty(mediaRepository.findById("C-1")).setAvailable(false);
+                        assertTrue("The shared member is not changed before the commit", member.isAvailable());
+                        unitOfWork.commit();
+                }
+                assertFalse(mediaRepository.findById("C-1").isAvailable());
+                assertFalse(mediaRepository.findById("B-1").isAvailable());
+                assertTrue(member.isAvailable());
+        }
+
+        // The steps of MediaService.addMediaToCollection
+        private void addToCollection() throws LibraryException {
+                try (UnitOfWork unitOfWork = new UnitOfWork(mediaRepository, mediaChangeSubject)) {
+                        MediaCollection collectionCopy = (MediaCollection) unitOfWork
+                                        .registerDirty(mediaRepository.findById("C-1"));
+                        Media bookCopy = unitOfWork.registerDirty(mediaRepository.findById("B-1"));
+                        bookCopy.setAvailable(false);
+                        collectionCopy.addMedia(bookCopy);
+                        unitOfWork.commit();
+                }
+        }
+
+        private List<Media> searchSolaris() {
+                return searchResultCache.getByTitle("solaris", () -> mediaRepository.findByTitle("solaris"));
+        }
+}